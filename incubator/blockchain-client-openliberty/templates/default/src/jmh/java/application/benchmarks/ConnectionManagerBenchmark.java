@@ -0,0 +1,55 @@
+package application.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.utils.ConnectionManager;
+import application.utils.ContractCache;
+
+/**
+ * ConnectionManager.getContract on the cached path every request after the
+ * first one takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.config.file=src/jmh/resources/logging.properties")
+public class ConnectionManagerBenchmark {
+
+    private static final String IDENTITY = "admin";
+
+    @Setup
+    public void setup() {
+        String channel = ConnectionManager.getDefaultChannel();
+        StubNetwork network = new StubNetwork();
+        ConnectionManager.getContractCache().put(
+                new ContractCache.HandleKey(IDENTITY, channel, ConnectionManager.getDefaultContractId()),
+                network.getContract(ConnectionManager.getDefaultContractId()));
+        ConnectionManager.getAssetCache().listen(channel, IDENTITY, network);
+    }
+
+    @Benchmark
+    public Contract getContract() throws Exception {
+        return ConnectionManager.getContract(IDENTITY);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Contract getContractContended() throws Exception {
+        return ConnectionManager.getContract(IDENTITY);
+    }
+}
@@ -0,0 +1,45 @@
+package application.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.api.IdentityMapperFilter;
+
+/**
+ * IdentityMapperFilter.filter, which runs ahead of every asset request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.config.file=src/jmh/resources/logging.properties")
+public class IdentityMapperFilterBenchmark {
+
+    private final IdentityMapperFilter filter = new IdentityMapperFilter();
+
+    @Benchmark
+    public StubRequestContext filter() throws Exception {
+        StubRequestContext context = new StubRequestContext("GET");
+        filter.filter(context);
+        return context;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public StubRequestContext filterContended() throws Exception {
+        StubRequestContext context = new StubRequestContext("GET");
+        filter.filter(context);
+        return context;
+    }
+}
@@ -0,0 +1,79 @@
+package application.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.api.MyAsset;
+import application.api.MyAssetController;
+import application.utils.AssetCache;
+
+/**
+ * MyAssetController against a stub contract, with and without the asset cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.config.file=src/jmh/resources/logging.properties")
+public class MyAssetControllerBenchmark {
+
+    private static final String CHANNEL = "mychannel";
+    private static final String CONTRACT = "myasset";
+
+    private Contract contract;
+    private MyAssetController uncached;
+    private MyAssetController cached;
+    private MyAsset asset;
+
+    @Setup
+    public void setup() {
+        contract = new StubContract();
+        uncached = new MyAssetController(new AssetCache(0, 0, TimeUnit.SECONDS), CHANNEL, CONTRACT);
+        AssetCache cache = new AssetCache(1000, 0, TimeUnit.SECONDS);
+        cache.listen(CHANNEL, "admin", new StubNetwork());
+        cached = new MyAssetController(cache, CHANNEL, CONTRACT);
+        asset = new MyAsset();
+        asset.setMyAssetId("asset1");
+        asset.setValue("benchmark");
+    }
+
+    @Benchmark
+    public byte[] getMyAsset() throws Exception {
+        return uncached.getMyAsset(contract, "asset1");
+    }
+
+    @Benchmark
+    public byte[] getMyAssetCached() throws Exception {
+        return cached.getMyAsset(contract, "asset1");
+    }
+
+    @Benchmark
+    public String createMyAsset() throws Exception {
+        return uncached.createMyAsset(contract, asset);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] getMyAssetContended() throws Exception {
+        return uncached.getMyAsset(contract, "asset1");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] getMyAssetCachedContended() throws Exception {
+        return cached.getMyAsset(contract, "asset1");
+    }
+}
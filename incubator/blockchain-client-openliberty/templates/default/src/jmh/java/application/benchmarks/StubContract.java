@@ -0,0 +1,87 @@
+package application.benchmarks;
+
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractEvent;
+import org.hyperledger.fabric.gateway.Transaction;
+import org.hyperledger.fabric.gateway.spi.Checkpointer;
+
+/**
+ * In-process Contract that answers every transaction immediately, so
+ * benchmarks measure the client code rather than a Fabric network.
+ */
+public class StubContract implements Contract {
+
+    private static final byte[] ASSET = "{\"myAssetId\":\"asset1\",\"value\":\"benchmark\"}".getBytes();
+    private static final byte[] EMPTY = new byte[0];
+
+    @Override
+    public Transaction createTransaction(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public byte[] submitTransaction(String name, String... args) {
+        return EMPTY;
+    }
+
+    @Override
+    public byte[] evaluateTransaction(String name, String... args) {
+        return ASSET;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener, String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener, Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener,
+            String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener,
+            Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener,
+            String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener,
+            Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public void removeContractListener(Consumer<ContractEvent> listener) {
+    }
+}
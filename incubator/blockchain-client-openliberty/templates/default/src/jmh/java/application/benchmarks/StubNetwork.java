@@ -0,0 +1,70 @@
+package application.benchmarks;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.spi.Checkpointer;
+import org.hyperledger.fabric.gateway.spi.CommitListener;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Peer;
+
+/**
+ * In-process Network handing out StubContracts; block listeners are
+ * accepted but never called.
+ */
+public class StubNetwork implements Network {
+
+    private final Contract contract = new StubContract();
+
+    @Override
+    public Contract getContract(String chaincodeId) {
+        return contract;
+    }
+
+    @Override
+    public Contract getContract(String chaincodeId, String name) {
+        return contract;
+    }
+
+    @Override
+    public Gateway getGateway() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Channel getChannel() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Consumer<BlockEvent> addBlockListener(Consumer<BlockEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<BlockEvent> addBlockListener(Checkpointer checkpointer, Consumer<BlockEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<BlockEvent> addBlockListener(long startBlock, Consumer<BlockEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public void removeBlockListener(Consumer<BlockEvent> listener) {
+    }
+
+    @Override
+    public CommitListener addCommitListener(CommitListener listener, Collection<Peer> peers, String transactionId) {
+        return listener;
+    }
+
+    @Override
+    public void removeCommitListener(CommitListener listener) {
+    }
+}
@@ -0,0 +1,49 @@
+package application.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.Wallet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.utils.InMemoryWallet;
+import application.utils.WalletManager;
+
+/**
+ * Wallet construction from FABRIC_WALLET_CREDENTIALS against the shared
+ * wallet gateways use.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.config.file=src/jmh/resources/logging.properties")
+public class WalletBenchmark {
+
+    @Benchmark
+    public Wallet walletManager() throws Exception {
+        return new WalletManager().getWallet();
+    }
+
+    @Benchmark
+    public Wallet inMemoryWallet() throws Exception {
+        return new InMemoryWallet().getWallet();
+    }
+
+    @Benchmark
+    public Wallet sharedWallet() throws Exception {
+        return WalletManager.getSharedWallet();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Wallet sharedWalletContended() throws Exception {
+        return WalletManager.getSharedWallet();
+    }
+}
@@ -0,0 +1,78 @@
+package application.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks which of the preloaded assets a request targets.
+ */
+public abstract class KeyDistribution {
+
+    protected final int keys;
+
+    protected KeyDistribution(int keys) {
+        this.keys = keys;
+    }
+
+    // An index in [0, keys).
+    public abstract int next();
+
+    public static KeyDistribution of(LoadOptions options) {
+        if (LoadOptions.DISTRIBUTION_ZIPFIAN.equals(options.distribution)) {
+            return new Zipfian(options.keys, options.zipfTheta);
+        }
+        return new Uniform(options.keys);
+    }
+
+    static class Uniform extends KeyDistribution {
+
+        Uniform(int keys) {
+            super(keys);
+        }
+
+        @Override
+        public int next() {
+            return ThreadLocalRandom.current().nextInt(keys);
+        }
+    }
+
+    /**
+     * Zipfian over the key indexes, index 0 being the most popular, using the
+     * rejection-free method of Gray et al., "Quickly Generating Billion-Record
+     * Synthetic Databases", as popularised by YCSB.
+     */
+    static class Zipfian extends KeyDistribution {
+        private final double theta;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        Zipfian(int keys, double theta) {
+            super(keys);
+            this.theta = theta;
+            this.zetaN = zeta(keys, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / keys, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        @Override
+        public int next() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, keys - 1);
+            }
+            return (int) Math.min(keys - 1, (long) (keys * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package application.loadgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Load generator for the /myassets API.
+ *
+ * Preloads a set of assets, then reads and updates them with a configurable
+ * mix and key distribution, either in a closed loop or at a fixed arrival
+ * rate. In open-loop mode each request is timed from when it was due to
+ * start rather than when a worker got to it, so a server that falls behind
+ * shows up in the percentiles instead of silently lowering the rate.
+ *
+ * Writes a summary.json plus HdrHistogram percentile distributions (.hgrm)
+ * for each operation to the output directory, so runs can be compared.
+ *
+ * Usage: LoadGenerator [--url http://localhost:9080/api/myassets] [--duration 60] [--warmup 10]
+ * [--rate 0] [--concurrency 16] [--reads 0.9] [--keys 1000] [--distribution uniform|zipfian]
+ * [--zipf 0.99] [--prefix load-] [--preload true] [--output target/loadgen] [--timeout 30]
+ */
+public class LoadGenerator {
+
+    private static final String OPERATION_READ = "read";
+    private static final String OPERATION_WRITE = "write";
+    private static final int PRELOAD_BATCH_SIZE = 100;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+    private final LoadOptions options;
+    private final KeyDistribution keys;
+    private final Map<String, OperationStats> stats = new TreeMap<String, OperationStats>();
+
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.keys = KeyDistribution.of(options);
+        stats.put(OPERATION_READ, new OperationStats());
+        stats.put(OPERATION_WRITE, new OperationStats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        LoadGenerator generator = new LoadGenerator(options);
+        if (options.preload) {
+            generator.preload();
+        }
+        if (options.warmupSeconds > 0) {
+            System.out.println("Warming up for " + options.warmupSeconds + " s...");
+            generator.run(options.warmupSeconds);
+            generator.reset();
+        }
+        System.out.println("Measuring for " + options.durationSeconds + " s...");
+        long elapsed = generator.run(options.durationSeconds);
+        generator.report(elapsed, System.out);
+        File summary = generator.write(elapsed);
+        System.out.println("Summary written to " + summary.getPath());
+    }
+
+    // Creates every key through the batch endpoint, assets left by an earlier run just fail to be created again.
+    public void preload() throws IOException {
+        long start = System.nanoTime();
+        int failedBatches = 0;
+        for (int first = 0; first < options.keys; first += PRELOAD_BATCH_SIZE) {
+            JSONArray batch = new JSONArray();
+            for (int i = first; i < Math.min(options.keys, first + PRELOAD_BATCH_SIZE); i++) {
+                batch.put(new JSONObject().put("operation", "create").put("asset", asset(key(i))));
+            }
+            int status = send("POST", options.url + "/batch", batch.toString());
+            if (status != 200) {
+                failedBatches++;
+            }
+        }
+        System.out.println("Preloaded " + options.keys + " keys in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms" + (failedBatches > 0 ? ", " + failedBatches + " batches failed" : "") + ".");
+    }
+
+    // Drives load for the given time and waits for the requests in flight, returns the elapsed nanoseconds.
+    public long run(long seconds) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        if (options.isOpenLoop()) {
+            double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+            for (long i = 0;; i++) {
+                long due = start + (long) (i * intervalNanos);
+                if (due - deadline >= 0) {
+                    break;
+                }
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                workers.execute(() -> request(due));
+            }
+        } else {
+            for (int i = 0; i < options.concurrency; i++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() - deadline < 0) {
+                        request(System.nanoTime());
+                    }
+                });
+            }
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(seconds + 2L * options.timeoutSeconds, TimeUnit.SECONDS)) {
+            System.err.println("Requests still in flight after the run, they are not counted.");
+            workers.shutdownNow();
+        }
+        return System.nanoTime() - start;
+    }
+
+    public void reset() {
+        for (OperationStats operation : stats.values()) {
+            operation.reset();
+        }
+    }
+
+    private void request(long due) {
+        String id = key(keys.next());
+        boolean read = ThreadLocalRandom.current().nextDouble() < options.readRatio;
+        long sent = System.nanoTime();
+        int status = read ? send("GET", options.url + "/" + id, null)
+                : send("PUT", options.url + "/" + id, asset(id).toString());
+        long done = System.nanoTime();
+        stats.get(read ? OPERATION_READ : OPERATION_WRITE).record(done - due, done - sent, status);
+    }
+
+    // The response status, or 0 when the request failed with an I/O error.
+    private int send(String method, String url, String body) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(options.timeoutSeconds));
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(options.timeoutSeconds));
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            // Reading the body to the end lets the connection be reused.
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return 0;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {
+                // discard
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private String key(int index) {
+        return options.keyPrefix + index;
+    }
+
+    private static JSONObject asset(String id) {
+        return new JSONObject().put("myAssetId", id).put("value", Long.toString(System.currentTimeMillis()));
+    }
+
+    public void report(long elapsedNanos, PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.println(String.format("%-6s %10s %8s %10s %9s %9s %9s %9s %9s %9s", "op", "requests", "errors", "req/s",
+                "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+            Histogram latency = entry.getValue().latency;
+            long count = latency.getTotalCount();
+            out.println(String.format("%-6s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f", entry.getKey(), count,
+                    entry.getValue().errorCount(), count / seconds, latency.getMean() / 1000, millis(latency, 50),
+                    millis(latency, 90), millis(latency, 99), millis(latency, 99.9), latency.getMaxValue() / 1000.0));
+        }
+    }
+
+    public File write(long elapsedNanos) throws IOException {
+        File directory = new File(options.output);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        double seconds = elapsedNanos / 1e9;
+        JSONObject operations = new JSONObject();
+        for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+            OperationStats operation = entry.getValue();
+            operations.put(entry.getKey(), new JSONObject()
+                    .put("requests", operation.latency.getTotalCount())
+                    .put("throughput", operation.latency.getTotalCount() / seconds)
+                    .put("errors", operation.errorsJson())
+                    .put("latencyMillis", summary(operation.latency))
+                    .put("serviceTimeMillis", summary(operation.service)));
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(directory, entry.getKey() + ".hgrm")), false, "UTF-8")) {
+                // Values are recorded in microseconds, the distribution is written in milliseconds.
+                operation.latency.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        JSONObject summary = new JSONObject()
+                .put("timestamp", System.currentTimeMillis())
+                .put("options", options.toJson())
+                .put("elapsedSeconds", seconds)
+                .put("operations", operations);
+        File file = new File(directory, "summary.json");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(summary.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static JSONObject summary(Histogram histogram) {
+        JSONObject summary = new JSONObject().put("mean", histogram.getMean() / 1000).put("max", histogram.getMaxValue() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            summary.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)),
+                    millis(histogram, percentile));
+        }
+        return summary;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static class OperationStats {
+        // Microseconds from when the request was due, and from when it was sent.
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Histogram service = new ConcurrentHistogram(3);
+        private final ConcurrentHashMap<Integer, LongAdder> errors = new ConcurrentHashMap<Integer, LongAdder>();
+
+        void record(long latencyNanos, long serviceNanos, int status) {
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            service.recordValue(TimeUnit.NANOSECONDS.toMicros(serviceNanos));
+            if (status < 200 || status >= 300) {
+                errors.computeIfAbsent(status, code -> new LongAdder()).increment();
+            }
+        }
+
+        long errorCount() {
+            long count = 0;
+            for (LongAdder adder : errors.values()) {
+                count += adder.sum();
+            }
+            return count;
+        }
+
+        JSONObject errorsJson() {
+            JSONObject json = new JSONObject();
+            for (Map.Entry<Integer, LongAdder> entry : errors.entrySet()) {
+                json.put(entry.getKey() == 0 ? "io" : entry.getKey().toString(), entry.getValue().sum());
+            }
+            return json;
+        }
+
+        void reset() {
+            latency.reset();
+            service.reset();
+            errors.clear();
+        }
+    }
+}
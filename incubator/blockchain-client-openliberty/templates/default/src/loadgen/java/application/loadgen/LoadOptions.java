@@ -0,0 +1,114 @@
+package application.loadgen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/**
+ * Command line options of the load generator, given as --name value pairs.
+ */
+public class LoadOptions {
+
+    public static final String DISTRIBUTION_UNIFORM = "uniform";
+    public static final String DISTRIBUTION_ZIPFIAN = "zipfian";
+
+    String url = "http://localhost:9080/api/myassets";
+    long durationSeconds = 60;
+    long warmupSeconds = 10;
+    // Requests started per second, 0 for a closed loop where each worker sends as soon as its last request completes.
+    double rate = 0;
+    int concurrency = 16;
+    double readRatio = 0.9;
+    int keys = 1000;
+    String distribution = DISTRIBUTION_UNIFORM;
+    double zipfTheta = 0.99;
+    String keyPrefix = "load-";
+    boolean preload = true;
+    String output = "target/loadgen";
+    int timeoutSeconds = 30;
+
+    public static LoadOptions parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            }
+            values.put(args[i].substring(2), args[i + 1]);
+        }
+        LoadOptions options = new LoadOptions();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "url":
+                    options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "duration":
+                    options.durationSeconds = Long.parseLong(value);
+                    break;
+                case "warmup":
+                    options.warmupSeconds = Long.parseLong(value);
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "concurrency":
+                    options.concurrency = Integer.parseInt(value);
+                    break;
+                case "reads":
+                    options.readRatio = Double.parseDouble(value);
+                    break;
+                case "keys":
+                    options.keys = Integer.parseInt(value);
+                    break;
+                case "distribution":
+                    options.distribution = value.toLowerCase();
+                    break;
+                case "zipf":
+                    options.zipfTheta = Double.parseDouble(value);
+                    break;
+                case "prefix":
+                    options.keyPrefix = value;
+                    break;
+                case "preload":
+                    options.preload = Boolean.parseBoolean(value);
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                case "timeout":
+                    options.timeoutSeconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + entry.getKey());
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (durationSeconds <= 0 || warmupSeconds < 0 || rate < 0 || concurrency < 1 || keys < 1 || timeoutSeconds < 1) {
+            throw new IllegalArgumentException("duration, concurrency, keys and timeout must be positive, warmup and rate must not be negative.");
+        }
+        if (readRatio < 0 || readRatio > 1) {
+            throw new IllegalArgumentException("reads must be between 0 and 1.");
+        }
+        if (!DISTRIBUTION_UNIFORM.equals(distribution) && !DISTRIBUTION_ZIPFIAN.equals(distribution)) {
+            throw new IllegalArgumentException("distribution must be uniform or zipfian.");
+        }
+        if (DISTRIBUTION_ZIPFIAN.equals(distribution) && (zipfTheta <= 0 || zipfTheta == 1)) {
+            throw new IllegalArgumentException("zipf must be positive and not 1.");
+        }
+    }
+
+    public boolean isOpenLoop() {
+        return rate > 0;
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject().put("url", url).put("durationSeconds", durationSeconds).put("warmupSeconds", warmupSeconds)
+                .put("rate", rate).put("concurrency", concurrency).put("reads", readRatio).put("keys", keys)
+                .put("distribution", distribution).put("zipf", zipfTheta).put("preload", preload);
+    }
+}
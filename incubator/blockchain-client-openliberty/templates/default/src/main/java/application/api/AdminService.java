@@ -0,0 +1,29 @@
+package application.api;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import application.utils.PeerScores;
+
+@Path("/admin")
+public class AdminService {
+
+    @GET
+    @Path("/peers")
+    @Produces("application/json")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Scores of the peers queried so far", content = @Content(mediaType = "application/json")) })
+    @Operation(summary = "Show peer scores", description = "Returns the decayed latency and error rate averages, and the resulting cost, that latency-aware peer selection ranks each peer by.")
+    @Tag(name = "Admin")
+    public Response getPeerScores() {
+        return Response.ok(PeerScores.getDefault().getScores(System.currentTimeMillis())).build();
+    }
+}
@@ -1,6 +1,12 @@
 package application.api;
 
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.Consumes;
@@ -11,8 +17,12 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.eclipse.microprofile.openapi.annotations.ExternalDocumentation;
@@ -31,7 +41,14 @@ import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
 
 import application.api.exceptions.AssetException;
 import application.api.exceptions.AssetNotFoundException;
+import application.api.exceptions.AssetUnavailableException;
+import application.metrics.RequestLog;
+import application.metrics.RequestMetrics;
+import application.utils.Configuration;
 import application.utils.ConnectionManager;
+import application.utils.ContractPolicy;
+import application.utils.SubmitExecutor;
+import application.utils.TransactionStatus;
 
 @Path("/myassets")
 @OpenAPIDefinition(info = @Info(title = "Blockchain MyAsset Web Service", version = "0.1", description = "Restful Web Service for blockchain transactions.", contact = @Contact(url = "https://www.ibm.com/blockchain")), externalDocs = @ExternalDocumentation(description = "https://www.ibm.com/blockchain", url = "https://www.ibm.com/blockchain"))
@@ -42,6 +59,31 @@ public class AssetService {
 
     private static final Logger LOGGER = Logger.getLogger(AssetService.class.getName());
 
+    @GET
+    @Produces({"application/json", MyAssetStream.NDJSON})
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "MyAssets, streamed as JSON or as one MyAsset per line followed by the bookmark", content = {
+            @Content(mediaType = "application/json"),
+            @Content(mediaType = MyAssetStream.NDJSON) }),
+        @APIResponse(responseCode = "400", description = "Error listing MyAssets", content = @Content(mediaType = "application/json")) })
+    @Operation(summary = "List MyAssets on the blockchain", description = "Streams the MyAssets with IDs in a range, or matching a CouchDB selector, fetching pageSize of them at a time. The returned bookmark resumes the listing.")
+    @Tag(name = "MyAssets")
+    public Response listMyAssets(@QueryParam("startKey") String startKey, @QueryParam("endKey") String endKey,
+            @QueryParam("query") String query, @QueryParam("pageSize") Integer pageSize,
+            @QueryParam("bookmark") String bookmark, @QueryParam("limit") Long limit) throws AssetException, IdentityException, GatewayException {
+        // The configured page size is also the most a caller may ask for.
+        int maxPageSize = Configuration.current().getListPageSize();
+        int fetchSize = pageSize == null ? maxPageSize : Math.max(1, Math.min(pageSize, maxPageSize));
+        String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
+        Contract contract = ConnectionManager.getContract(fabricId);
+        MyAssetController controller = newController(fabricId);
+        MyAssetStream.PageSource source = query != null && !query.isEmpty()
+                ? (size, next) -> controller.queryMyAssets(contract, query, size, next)
+                : (size, next) -> controller.getMyAssetRange(contract, startKey, endKey, size, next);
+        MyAssetStream stream = new MyAssetStream(source, fetchSize, bookmark, limit == null ? 0 : Math.max(0, limit), isNdjsonAccepted());
+        return Response.ok(stream, stream.getMediaType()).build();
+    }
+
     @GET
     @Path("/{id}")
     @Produces("application/json")
@@ -52,14 +94,12 @@ public class AssetService {
     @Operation(summary = "Retrieve MyAsset from the blockchain", description = "Retrieves the MyAsset from the blockchain.")
     @Tag(name = "MyAssets")
     public Response getMyAsset(@PathParam("id") String id) throws AssetNotFoundException, AssetException, IdentityException, GatewayException{
-        LOGGER.info("AssetId : "+ id);
+        RequestLog.assetId(id);
         String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
         Contract contract = ConnectionManager.getContract(fabricId);
-        MyAssetController controller = new MyAssetController(); 
+        MyAssetController controller = newController(fabricId);
         byte[] result = controller.getMyAsset(contract, id);
-        String responseString = new String(result, StandardCharsets.UTF_8);
-        LOGGER.info("Transaction response : " + responseString);
-        return Response.ok().entity(responseString).build();
+        return Response.ok().entity(new String(result, StandardCharsets.UTF_8)).build();
     }
 
     @PUT
@@ -68,12 +108,14 @@ public class AssetService {
     @Produces("application/json")
     @APIResponses(value = {
         @APIResponse(responseCode = "204", description = "MyAsset updated"),
+        @APIResponse(responseCode = "202", description = "MyAsset update sent for ordering, see the Location for its status", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionStatus.class))),
         @APIResponse(responseCode = "400", description = "Error reading MyAsset", content = @Content(mediaType = "application/json")),    
         @APIResponse(responseCode = "404", description = "MyAsset not found", content = @Content(mediaType = "application/json")) }) 
     @Operation(summary = "Update MyAsset on the blockchain", description = "Updates an MyAsset on the blockchain.")
     @Tag(name = "MyAssets")
-    public Response updateMyAsset(@PathParam("id") String id, MyAsset asset) throws IdentityException, GatewayException, AssetException{
-        LOGGER.info("Asset : " + asset.toString());
+    public void updateMyAsset(@PathParam("id") String id, MyAsset asset, @QueryParam("wait") Boolean wait,
+            @Suspended AsyncResponse asyncResponse) throws IdentityException, GatewayException, AssetException{
+        RequestLog.assetId(id);
         // The path value is required.  
         if(asset.getMyAssetId() == null || asset.getMyAssetId().isEmpty()){
             asset.setMyAssetId(id);
@@ -85,9 +127,9 @@ public class AssetService {
         }
         String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
         Contract contract = ConnectionManager.getContract(fabricId);
-        MyAssetController controller = new MyAssetController(); 
-        controller.updateMyAsset(contract, asset);
-        return Response.noContent().build();
+        MyAssetController controller = newController(fabricId);
+        boolean waitForCommit = isWaitingForCommit(wait);
+        resumeWhenDone(asyncResponse, RequestMetrics.OPERATION_UPDATE, waitForCommit, controller.updateMyAssetAsync(contract, asset, waitForCommit));
     }
 
     @DELETE
@@ -95,17 +137,19 @@ public class AssetService {
     @Produces("application/json")
     @APIResponses(value = {
         @APIResponse(responseCode = "204", description = "MyAsset Deleted"),
+        @APIResponse(responseCode = "202", description = "MyAsset delete sent for ordering, see the Location for its status", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionStatus.class))),
         @APIResponse(responseCode = "400", description = "Error reading MyAsset", content = @Content(mediaType = "application/json")),    
         @APIResponse(responseCode = "404", description = "MyAsset not found", content = @Content(mediaType = "application/json")) }) 
     @Operation(summary = "Deletes MyAsset from the blockchain", description = "Deletes MyAsset from the blockchain.")
     @Tag(name = "MyAssets")
-    public Response deleteMyAsset(@PathParam("id") String id) throws IdentityException, GatewayException {
-        LOGGER.info("AssetId  : " + id);
+    public void deleteMyAsset(@PathParam("id") String id, @QueryParam("wait") Boolean wait,
+            @Suspended AsyncResponse asyncResponse) throws IdentityException, GatewayException {
+        RequestLog.assetId(id);
         String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
         Contract contract = ConnectionManager.getContract(fabricId);
-        MyAssetController controller = new MyAssetController(); 
-        controller.deleteMyAsset(contract, id);
-        return Response.noContent().build();
+        MyAssetController controller = newController(fabricId);
+        boolean waitForCommit = isWaitingForCommit(wait);
+        resumeWhenDone(asyncResponse, RequestMetrics.OPERATION_DELETE, waitForCommit, controller.deleteMyAssetAsync(contract, id, waitForCommit));
     }    
 
     @POST
@@ -113,16 +157,121 @@ public class AssetService {
     @Produces("application/json")
     @APIResponses(value = {
         @APIResponse(responseCode = "204", description = "MyAsset Created"),
+        @APIResponse(responseCode = "202", description = "MyAsset create sent for ordering, see the Location for its status", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionStatus.class))),
         @APIResponse(responseCode = "400", description = "Error reading MyAsset", content = @Content(mediaType = "application/json")),    
         @APIResponse(responseCode = "404", description = "MyAsset not found", content = @Content(mediaType = "application/json")) }) 
     @Operation(summary = "Create MyAsset on the blockchain", description = "Create MyAsset on the blockchain.")
     @Tag(name = "MyAssets")
-    public Response createMyAsset(MyAsset asset) throws IdentityException, GatewayException {
-        LOGGER.info("Asset : " + asset.toString());
+    public void createMyAsset(MyAsset asset, @QueryParam("wait") Boolean wait, @Suspended AsyncResponse asyncResponse) throws IdentityException, GatewayException {
+        RequestLog.assetId(asset.getMyAssetId());
         String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
         Contract contract = ConnectionManager.getContract(fabricId);
-        MyAssetController controller = new MyAssetController(); 
-        controller.createMyAsset(contract, asset);
-        return Response.noContent().build();
+        MyAssetController controller = newController(fabricId);
+        boolean waitForCommit = isWaitingForCommit(wait);
+        resumeWhenDone(asyncResponse, RequestMetrics.OPERATION_CREATE, waitForCommit, controller.createMyAssetAsync(contract, asset, waitForCommit));
+    }
+
+    @GET
+    @Path("/transactions/{txId}")
+    @Produces("application/json")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Transaction status", content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionStatus.class))),
+        @APIResponse(responseCode = "404", description = "Transaction not known to this service", content = @Content(mediaType = "application/json")) }) 
+    @Operation(summary = "Retrieve the status of a submitted transaction", description = "Reports whether a transaction sent with wait=false is pending, committed, invalid or unknown. Only recent transactions submitted through this instance are known.")
+    @Tag(name = "MyAssets")
+    public Response getTransactionStatus(@PathParam("txId") String txId) throws AssetNotFoundException {
+        TransactionStatus status = ConnectionManager.getTransactionStatusIndex().get(txId);
+        if (status == null) {
+            throw new AssetNotFoundException("Transaction " + txId + " not found.");
+        }
+        return Response.ok().entity(status).build();
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes("application/json")
+    @Produces("application/json")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Batch processed, see the per-item status", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchResponse.class))),
+        @APIResponse(responseCode = "400", description = "Error reading batch", content = @Content(mediaType = "application/json")) }) 
+    @Operation(summary = "Create, update and delete MyAssets on the blockchain in one request", description = "Submits the operations concurrently, with at most window of them in flight.")
+    @Tag(name = "MyAssets")
+    public void submitMyAssetBatch(List<MyAssetOperation> operations, @QueryParam("window") Integer window,
+            @Suspended AsyncResponse asyncResponse) throws IdentityException, GatewayException {
+        if (operations == null) {
+            throw new AssetException("Not able to process batch, no operations passed.");
+        }
+        // The configured window is also the most a caller may ask for.
+        int maxWindow = Configuration.current().getBatchWindow();
+        int inFlight = window == null ? maxWindow : Math.max(1, Math.min(window, maxWindow));
+        String fabricId = headers.getHeaderString("X-FABRIC-IDENTITY");
+        Contract contract = ConnectionManager.getContract(fabricId);
+        MyAssetBatchController controller = new MyAssetBatchController(newController(fabricId));
+        controller.submitBatch(contract, operations, inFlight).whenComplete((response, error) -> {
+            RequestMetrics.setOperation(RequestMetrics.OPERATION_BATCH);
+            if (error == null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Batch response : " + response);
+                }
+                asyncResponse.resume(Response.ok().entity(response).build());
+            } else {
+                asyncResponse.resume(error);
+            }
+        });
+    }
+
+    private MyAssetController newController(String fabricId) {
+        return new MyAssetController(ConnectionManager.getAssetCache(), ConnectionManager.getReadCoalescer(), fabricId,
+                ConnectionManager.getDefaultChannel(), ConnectionManager.getDefaultContractId());
+    }
+
+    private boolean isNdjsonAccepted() {
+        for (MediaType type : headers.getAcceptableMediaTypes()) {
+            // Accept lists the client's preferred types first.
+            if (type.toString().startsWith(MyAssetStream.NDJSON)) {
+                return true;
+            }
+            if (type.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWaitingForCommit(Boolean wait) {
+        return wait != null ? wait : Configuration.current().isCommitWait();
+    }
+
+    // Completes a suspended request once its transaction has been committed, or with the
+    // failure that AssetExceptionMapper turns into the response. The request thread is
+    // released as soon as the transaction has been handed to the SubmitExecutor.
+    // Without waiting for the commit, the response is 202 with the pending status and
+    // the Location to poll for the outcome.
+    private void resumeWhenDone(AsyncResponse asyncResponse, String operation, boolean waitForCommit, CompletableFuture<String> transaction) {
+        // Not before the write policy's own timeout, so the write is interrupted before the request is answered.
+        long timeout = Math.max(SubmitExecutor.getDefault().getTimeout(TimeUnit.MILLISECONDS), ContractPolicy.getWrite().getTimeoutMillis());
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(response -> response.resume(new AssetUnavailableException("Transaction timeout.")));
+        RequestLog.Entry log = RequestLog.current();
+        transaction.whenComplete((result, error) -> {
+            if (log != null) {
+                log.setTransactionId(result);
+            }
+            // The exception mapper runs on this thread and counts errors under its operation.
+            RequestMetrics.setOperation(operation);
+            if (error == null && waitForCommit) {
+                asyncResponse.resume(Response.noContent().build());
+            } else if (error == null && result == null) {
+                asyncResponse.resume(Response.accepted().build());
+            } else if (error == null) {
+                TransactionStatus status = ConnectionManager.getTransactionStatusIndex().get(result);
+                asyncResponse.resume(Response.accepted(status != null ? status : TransactionStatus.pending(result))
+                        .location(URI.create("myassets/transactions/" + result)).build());
+            } else if (error instanceof CompletionException && error.getCause() != null) {
+                asyncResponse.resume(error.getCause());
+            } else {
+                asyncResponse.resume(error);
+            }
+        });
     }
 }
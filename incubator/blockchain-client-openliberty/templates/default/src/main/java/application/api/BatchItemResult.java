@@ -0,0 +1,88 @@
+package application.api;
+
+public class BatchItemResult {
+    private int index;
+    private String myAssetId = null;
+    private String operation = null;
+    private int status;
+    private String transactionId = null;
+    private String message = null;
+    private long latencyMillis;
+
+    public BatchItemResult(){
+    }
+
+    public BatchItemResult(int index, String myAssetId, String operation, int status, String transactionId,
+            String message, long latencyMillis) {
+        this.index = index;
+        this.myAssetId = myAssetId;
+        this.operation = operation;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.message = message;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getMyAssetId() {
+        return myAssetId;
+    }
+
+    public void setMyAssetId(String myAssetId) {
+        this.myAssetId = myAssetId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemResult [index=" + index + ", myAssetId=" + myAssetId + ", operation=" + operation
+                + ", status=" + status + ", transactionId=" + transactionId + ", latencyMillis=" + latencyMillis + "]";
+    }
+
+}
@@ -0,0 +1,63 @@
+package application.api;
+
+import java.util.List;
+
+public class BatchResponse {
+    private int succeeded;
+    private int failed;
+    private long elapsedMillis;
+    private List<BatchItemResult> results = null;
+
+    public BatchResponse(){
+    }
+
+    public BatchResponse(List<BatchItemResult> results, long elapsedMillis) {
+        this.results = results;
+        this.elapsedMillis = elapsedMillis;
+        for (BatchItemResult result : results) {
+            if (result.getStatus() < 300) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchItemResult> results) {
+        this.results = results;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResponse [succeeded=" + succeeded + ", failed=" + failed + ", elapsedMillis=" + elapsedMillis + "]";
+    }
+
+}
@@ -1,16 +1,24 @@
 package application.api;
 
 import java.io.IOException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.Provider;
 
-import application.utils.ConnectionConfiguration;
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+
+import application.metrics.RequestLog;
+import application.metrics.RequestMetrics;
+import application.utils.Configuration;
+import application.utils.IdentityMap;
+import application.utils.TokenVerifier;
 
 @Provider
 @PreMatching
@@ -18,9 +26,26 @@ public class IdentityMapperFilter implements ContainerRequestFilter {
 
     public static final Logger LOGGER = Logger.getLogger(IdentityMapperFilter.class.getName());
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     @Override
     public void filter(ContainerRequestContext reqContext) throws IOException {
+        long start = System.nanoTime();
+        String path = reqContext.getUriInfo() != null ? reqContext.getUriInfo().getPath() : null;
+        String operation = RequestMetrics.operationOf(reqContext.getMethod(), path);
+        RequestMetrics.setOperation(operation);
+        RequestLog.Entry entry = RequestLog.getDefault().start(operation, reqContext.getMethod(), path);
+        if (entry != null) {
+            reqContext.setProperty(RequestLogFilter.ENTRY_PROPERTY, entry);
+        }
+        try {
+            mapIdentity(reqContext);
+        } finally {
+            RequestMetrics.phase(RequestMetrics.PHASE_IDENTITY, start);
+        }
+    }
 
+    private void mapIdentity(ContainerRequestContext reqContext) {
         String principal = extractPrincipal(reqContext);
         Response response = Response.status(Status.UNAUTHORIZED).build();
         
@@ -31,11 +56,11 @@ public class IdentityMapperFilter implements ContainerRequestFilter {
             reqContext.abortWith(response);
             return;
         }
-        LOGGER.info("Principal: " + principal);
-        // Logic here to map the extracted priciple to a fabric identity. 
-        // We will simply pull the default idenity from the environment variable. 
-        String identity = ConnectionConfiguration.getFabricDefaultIdentity();
-        LOGGER.info("Identity: " + identity);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Principal: " + principal);
+        }
+        String identity = lookupIdentity(principal);
+        RequestLog.identity(identity);
         if (identity == null) {
             // If the mapper cannot determine the fabric identity
             // the request is coming from an identity that cannot access the Fabric
@@ -46,15 +71,43 @@ public class IdentityMapperFilter implements ContainerRequestFilter {
         reqContext.getHeaders().add("X-FABRIC-IDENTITY", identity);
     }
 
+    private String lookupIdentity(String principal) {
+        // Principals are mapped by the FABRIC_IDENTITY_MAP file when there is one,
+        // otherwise they all use the default identity from FABRIC_DEFAULT_IDENTITY.
+        IdentityMap identities;
+        try {
+            identities = IdentityMap.getConfigured();
+        } catch (IdentityException e) {
+            LOGGER.severe("Could not load the identity map: " + e.getMessage());
+            return null;
+        }
+        return identities != null ? identities.identityOf(principal) : Configuration.current().getDefaultIdentity();
+    }
+
     private String extractPrincipal(ContainerRequestContext reqContext) {
         /***************************************************************************
          * This method is meant to contain the logic 
          * that extracts the principal (or some other claim) from the authentication
          * token provided by the caller.
-         * The default implementation returns a hardcoded string.
-         * Actual implementations would be dependent on the actual authentication 
-         * protocol used (OIDC, SAML, basic auth...)
+         * Without FABRIC_AUTH_PROFILE it returns a hardcoded string. With a JWT
+         * auth profile it returns the principal of the bearer token, or null
+         * when the request carries no valid token.
+         * Other authentication protocols (SAML, basic auth...) would be handled here.
          ***************************************************************************/
-        return "default";
+        TokenVerifier verifier;
+        try {
+            verifier = TokenVerifier.getConfigured();
+        } catch (IdentityException e) {
+            LOGGER.severe("Could not configure bearer token verification: " + e.getMessage());
+            return null;
+        }
+        if (verifier == null) {
+            return "default";
+        }
+        String authorization = reqContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        return verifier.verify(authorization.substring(BEARER_PREFIX.length()).trim());
     }
-}
\ No newline at end of file
+}
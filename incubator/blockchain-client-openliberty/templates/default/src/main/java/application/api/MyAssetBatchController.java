@@ -0,0 +1,179 @@
+package application.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.hyperledger.fabric.gateway.Contract;
+
+import application.api.exceptions.AssetBusyException;
+import application.api.exceptions.AssetException;
+import application.api.exceptions.AssetExceptionMapper;
+import application.metrics.ClientMetrics;
+import application.metrics.RequestMetrics;
+
+/**
+ * Submits a batch of asset operations with at most window of them in flight.
+ *
+ * Operations are endorsed and committed independently, so one failing does
+ * not stop the others. Each completion starts the next pending operation,
+ * and no thread is held while the batch waits on its commits. When the
+ * SubmitExecutor is full the batch stops starting operations until one of
+ * its own completes, or retries after a backoff if none is in flight.
+ */
+public class MyAssetBatchController {
+
+    private static final Logger LOGGER = Logger.getLogger(MyAssetBatchController.class.getName());
+
+    private static final long RETRY_DELAY_MILLIS = 10;
+    private static final long MAX_RETRY_DELAY_MILLIS = 1000;
+    private static final int MAX_RETRIES = 10;
+    private static final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fabric-batch-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MyAssetController controller;
+
+    public MyAssetBatchController() {
+        this(new MyAssetController());
+    }
+
+    public MyAssetBatchController(MyAssetController controller) {
+        this.controller = controller;
+    }
+
+    public CompletableFuture<BatchResponse> submitBatch(Contract contract, List<MyAssetOperation> operations, int window) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Batch of " + operations.size() + " operations, window " + window);
+        }
+        ClientMetrics.histogram("asset.batch.size", "Number of operations per batch request.", MetricUnits.NONE, operations.size());
+        Batch batch = new Batch(contract, operations, Math.max(1, window));
+        if (operations.isEmpty()) {
+            batch.done.complete(new BatchResponse(Arrays.asList(batch.results), 0));
+        }
+        batch.fill();
+        return batch.done;
+    }
+
+    private CompletableFuture<String> submit(Contract contract, MyAssetOperation operation) {
+        try {
+            MyAsset asset = operation.getAsset();
+            if (asset == null || asset.getMyAssetId() == null || asset.getMyAssetId().isEmpty()) {
+                throw new AssetException("Asset id is required.");
+            }
+            if (MyAssetOperation.CREATE.equalsIgnoreCase(operation.getOperation())) {
+                return controller.createMyAssetAsync(contract, asset);
+            }
+            if (MyAssetOperation.UPDATE.equalsIgnoreCase(operation.getOperation())) {
+                return controller.updateMyAssetAsync(contract, asset);
+            }
+            if (MyAssetOperation.DELETE.equalsIgnoreCase(operation.getOperation())) {
+                return controller.deleteMyAssetAsync(contract, asset.getMyAssetId());
+            }
+            throw new AssetException("Unknown operation : " + operation.getOperation());
+        } catch (AssetBusyException e) {
+            // The SubmitExecutor is full, the batch starts the operation again later.
+            throw e;
+        } catch (RuntimeException e) {
+            CompletableFuture<String> failed = new CompletableFuture<String>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private class Batch {
+        private final Contract contract;
+        private final List<MyAssetOperation> operations;
+        private final int window;
+        private final BatchItemResult[] results;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<BatchResponse> done = new CompletableFuture<BatchResponse>();
+        private final long start = System.nanoTime();
+        // Guarded by this.
+        private int next;
+        private int inFlight;
+        private int rejections;
+
+        Batch(Contract contract, List<MyAssetOperation> operations, int window) {
+            this.contract = contract;
+            this.operations = operations;
+            this.window = window;
+            this.results = new BatchItemResult[operations.size()];
+            this.remaining = new AtomicInteger(operations.size());
+        }
+
+        // Starts operations until window of them are in flight, the SubmitExecutor rejects one, or none are left.
+        synchronized void fill() {
+            while (inFlight < window && next < operations.size()) {
+                int current = next;
+                MyAssetOperation operation = operations.get(current);
+                long started = System.nanoTime();
+                CompletableFuture<String> transaction;
+                try {
+                    transaction = submit(contract, operation);
+                } catch (AssetBusyException e) {
+                    if (inFlight > 0) {
+                        // A completion starts the operation again.
+                        return;
+                    }
+                    if (rejections < MAX_RETRIES) {
+                        long delay = Math.min(RETRY_DELAY_MILLIS << rejections, MAX_RETRY_DELAY_MILLIS);
+                        rejections++;
+                        retries.schedule(this::fill, delay, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                    transaction = new CompletableFuture<String>();
+                    transaction.completeExceptionally(e);
+                }
+                next++;
+                rejections = 0;
+                if (transaction.isDone()) {
+                    // Operations that fail without being submitted are recorded here, so a run of them does not recurse.
+                    transaction.whenComplete((transactionId, error) -> record(current, operation, started, transactionId, error));
+                    continue;
+                }
+                inFlight++;
+                transaction.whenComplete((transactionId, error) -> {
+                    record(current, operation, started, transactionId, error);
+                    completed();
+                });
+            }
+        }
+
+        private synchronized void completed() {
+            inFlight--;
+            fill();
+        }
+
+        private void record(int index, MyAssetOperation operation, long started, String transactionId, Throwable error) {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            String assetId = operation.getAsset() != null ? operation.getAsset().getMyAssetId() : null;
+            if (error == null) {
+                results[index] = new BatchItemResult(index, assetId, operation.getOperation(),
+                        Status.OK.getStatusCode(), transactionId, null, latency);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                LOGGER.warning("Batch operation " + index + " failed : " + cause.toString());
+                RequestMetrics.error(AssetExceptionMapper.typeOf(cause), RequestMetrics.OPERATION_BATCH);
+                results[index] = new BatchItemResult(index, assetId, operation.getOperation(),
+                        AssetExceptionMapper.statusOf(cause), null, cause.getMessage(), latency);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(new BatchResponse(Arrays.asList(results),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }
+        }
+    }
+}
@@ -1,84 +1,311 @@
 package application.api;
 
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hyperledger.fabric.gateway.Contract;
 import org.hyperledger.fabric.gateway.ContractException;
+import org.json.JSONException;
 
+import application.api.exceptions.AssetBusyException;
 import application.api.exceptions.AssetException;
 import application.api.exceptions.AssetNotFoundException;
+import application.api.exceptions.AssetUnavailableException;
 import application.api.MyAsset;
+import application.metrics.RequestLog;
+import application.metrics.RequestMetrics;
+import application.utils.AssetCache;
+import application.utils.CommitTracker;
+import application.utils.ContractCalls;
+import application.utils.ContractPolicy;
+import application.utils.ReadCoalescer;
+import application.utils.SubmitExecutor;
+import application.utils.TransactionIdCapture;
 
 public class MyAssetController {
 
     private static final Logger LOGGER = Logger.getLogger(MyAssetController.class.getName());
 
+    private final AssetCache cache;
+    private final ReadCoalescer reads;
+    private final String identity;
+    private final String channel;
+    private final String contractId;
+    private final ContractPolicy readPolicy;
+    private final ContractPolicy writePolicy;
+    private final SubmitExecutor submitter;
+
+    public MyAssetController() {
+        this(null, null, null);
+    }
+
+    // Reads go through the cache and writes invalidate it, for assets of the given channel and contract.
+    public MyAssetController(AssetCache cache, String channel, String contractId) {
+        this(cache, null, null, channel, contractId);
+    }
+
+    // Reads that miss the cache also share their peer query with concurrent reads by the same identity.
+    public MyAssetController(AssetCache cache, ReadCoalescer reads, String identity, String channel, String contractId) {
+        this(cache, reads, identity, channel, contractId, ContractPolicy.getRead(), ContractPolicy.getWrite());
+    }
+
+    public MyAssetController(AssetCache cache, ReadCoalescer reads, String identity, String channel, String contractId,
+            ContractPolicy readPolicy, ContractPolicy writePolicy) {
+        this(cache, reads, identity, channel, contractId, readPolicy, writePolicy, SubmitExecutor.getDefault());
+    }
+
+    // Asynchronous writes are submitted on the given executor.
+    public MyAssetController(AssetCache cache, ReadCoalescer reads, String identity, String channel, String contractId,
+            ContractPolicy readPolicy, ContractPolicy writePolicy, SubmitExecutor submitter) {
+        this.cache = cache;
+        this.reads = reads;
+        this.identity = identity;
+        this.channel = channel;
+        this.contractId = contractId;
+        this.readPolicy = readPolicy;
+        this.writePolicy = writePolicy;
+        this.submitter = submitter;
+    }
+
     public byte[] getMyAsset(Contract contract, String assetId) throws AssetException, AssetNotFoundException {
-        LOGGER.info("AssetId = " + assetId);
         byte[] results = null;
+        long generation = 0;
+        if (cache != null) {
+            results = cache.get(channel, contractId, assetId);
+            if (results != null) {
+                RequestLog.cached(true);
+                RequestLog.payload(results);
+                return results;
+            }
+            generation = cache.generation();
+        }
+        long start = System.nanoTime();
         try {
-            results = contract.evaluateTransaction("readMyAsset", assetId);
+            if (reads != null) {
+                // Only the read that queries the peer takes a permit, the others wait for it up to their own timeout.
+                results = reads.read(identity, channel, contractId, assetId, () -> readMyAsset(contract, assetId),
+                        readPolicy.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                results = readMyAsset(contract, assetId);
+            }
         } catch (ContractException e) {
-            LOGGER.severe("Contract Exception submitting transaction." + e.toString());
-            throw new AssetNotFoundException("Asset not found on the ledger.", e);
+            // Waiting for another read's query timed out or was interrupted.
+            throw timedOut("readMyAsset", e);
+        } finally {
+            RequestMetrics.phase(RequestMetrics.PHASE_EVALUATE, RequestMetrics.OPERATION_READ, start);
+        }
+        RequestLog.payload(results);
+        if (cache != null) {
+            cache.put(channel, contractId, assetId, results, generation);
         }
-        LOGGER.info("Results = " + new String(results, StandardCharsets.UTF_8) );
         return results;
     }
 
-    public void createMyAsset(Contract contract, MyAsset asset) throws AssetException, AssetNotFoundException {
-        LOGGER.info(asset.toString());
-        // Submit transactions to add state on the ledger
+    // Queries a peer for the asset within the read policy.
+    private byte[] readMyAsset(Contract contract, String assetId) {
+        ContractPolicy.Permit permit = enter(readPolicy);
+        ContractCalls.getDefault().evaluateStarted();
         try {
-            // transaction has no return value
-            contract.submitTransaction("createMyAsset", asset.getMyAssetId(), asset.getValue());
+            return contract.evaluateTransaction("readMyAsset", assetId);
         } catch (ContractException e) {
+            if (permit.isTimedOut()) {
+                throw timedOut("readMyAsset", e);
+            }
+            if (ContractPolicy.isLedgerFailure(e)) {
+                permit.failed();
+                throw unreachable("readMyAsset", e);
+            }
             LOGGER.severe("Contract Exception submitting transaction." + e.toString());
             throw new AssetNotFoundException("Asset not found on the ledger.", e);
-        } catch (TimeoutException e) {
-            LOGGER.severe("TimeoutException submitting transaction." + e.toString());
-            throw new AssetException("Trasaction timeout.", e);
-        } catch (InterruptedException e) {
-            LOGGER.severe("Interrupted Exception submitting transaction." + e.toString());
-            throw new AssetException("Trasaction error.", e);
+        } catch (RuntimeException e) {
+            permit.failed();
+            throw e;
+        } finally {
+            permit.close();
+            ContractCalls.getDefault().evaluateFinished();
         }
     }
 
-    public void updateMyAsset(Contract contract, MyAsset asset) throws AssetException, AssetNotFoundException {
-        LOGGER.info(asset.toString());
-        // Submit transactions to modify state on the ledger
+    // Assets with keys from startKey up to, but not including, endKey. Empty keys leave the range open.
+    public MyAssetPage getMyAssetRange(Contract contract, String startKey, String endKey, int pageSize, String bookmark) throws AssetException {
+        return getMyAssetPage(contract, "listMyAssets", startKey != null ? startKey : "", endKey != null ? endKey : "",
+                Integer.toString(pageSize), bookmark != null ? bookmark : "");
+    }
+
+    // Assets matching a CouchDB selector, which needs the peers to use CouchDB as their state database.
+    public MyAssetPage queryMyAssets(Contract contract, String query, int pageSize, String bookmark) throws AssetException {
+        return getMyAssetPage(contract, "queryMyAssets", query, Integer.toString(pageSize), bookmark != null ? bookmark : "");
+    }
+
+    private MyAssetPage getMyAssetPage(Contract contract, String transaction, String... args) throws AssetException {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(transaction + " " + String.join(", ", args));
+        }
+        long start = System.nanoTime();
+        ContractPolicy.Permit permit = enter(readPolicy);
+        ContractCalls.getDefault().evaluateStarted();
         try {
-            // transaction has no return value
-            contract.submitTransaction("updateMyAsset", asset.getMyAssetId(), asset.getValue());
+            return MyAssetPage.fromJson(contract.evaluateTransaction(transaction, args));
         } catch (ContractException e) {
-            LOGGER.severe("Contract Exception submitting transaction." + e.toString());
-            throw new AssetNotFoundException("Asset not found on the ledger.", e);
-        } catch (TimeoutException e) {
-            LOGGER.severe("TimeoutException submitting transaction." + e.toString());
-            throw new AssetException("Trasaction timeout.", e);
-        } catch (InterruptedException e) {
-            LOGGER.severe("Interrupted Exception submitting transaction." + e.toString());
-            throw new AssetException("Trasaction error.", e);
+            if (permit.isTimedOut()) {
+                throw timedOut(transaction, e);
+            }
+            if (ContractPolicy.isLedgerFailure(e)) {
+                permit.failed();
+                throw unreachable(transaction, e);
+            }
+            LOGGER.severe("Contract Exception evaluating transaction." + e.toString());
+            throw new AssetException("Error listing assets on the ledger.", e);
+        } catch (JSONException e) {
+            LOGGER.severe("Could not parse the page of assets: " + e.toString());
+            throw new AssetException("Error listing assets on the ledger.", e);
+        } catch (RuntimeException e) {
+            permit.failed();
+            throw e;
+        } finally {
+            permit.close();
+            ContractCalls.getDefault().evaluateFinished();
+            RequestMetrics.phase(RequestMetrics.PHASE_EVALUATE, RequestMetrics.OPERATION_LIST, start);
         }
     }
 
-    public void deleteMyAsset(Contract contract, String assetId) throws AssetException, AssetNotFoundException {
-        LOGGER.info("AssetId = " + assetId);
+    public String createMyAsset(Contract contract, MyAsset asset) throws AssetException, AssetNotFoundException {
+        // Submit transactions to add state on the ledger
+        return submit(contract, RequestMetrics.OPERATION_CREATE, asset.getMyAssetId(), "createMyAsset", asset.getMyAssetId(), asset.getValue());
+    }
+
+    public String updateMyAsset(Contract contract, MyAsset asset) throws AssetException, AssetNotFoundException {
+        // Submit transactions to modify state on the ledger
+        return submit(contract, RequestMetrics.OPERATION_UPDATE, asset.getMyAssetId(), "updateMyAsset", asset.getMyAssetId(), asset.getValue());
+    }
+
+    public String deleteMyAsset(Contract contract, String assetId) throws AssetException, AssetNotFoundException {
         // Submit transactions to delete state on the ledger
+        return submit(contract, RequestMetrics.OPERATION_DELETE, assetId, "deleteMyAsset", assetId);
+    }
+
+    // Submits a transaction writing the asset and returns its ID once it is committed.
+    private String submit(Contract contract, String operation, String assetId, String transaction, String... args) throws AssetException, AssetNotFoundException {
+        long start = System.nanoTime();
+        ContractPolicy.Permit permit = enter(writePolicy);
+        long call = ContractCalls.getDefault().submitStarted();
         try {
             // transaction has no return value
-            contract.submitTransaction("deleteMyAsset", assetId);
+            TransactionIdCapture.reset();
+            contract.submitTransaction(transaction, args);
         } catch (ContractException e) {
+            if (permit.isTimedOut()) {
+                throw timedOut(transaction, e);
+            }
+            if (ContractPolicy.isLedgerFailure(e)) {
+                permit.failed();
+                throw unreachable(transaction, e);
+            }
             LOGGER.severe("Contract Exception submitting transaction." + e.toString());
             throw new AssetNotFoundException("Asset not found on the ledger.", e);
         } catch (TimeoutException e) {
+            permit.failed();
             LOGGER.severe("TimeoutException submitting transaction." + e.toString());
-            throw new AssetException("Trasaction timeout.", e);
+            throw new AssetUnavailableException("Trasaction timeout.", 0, e);
         } catch (InterruptedException e) {
+            if (permit.isTimedOut()) {
+                throw timedOut(transaction, e);
+            }
+            permit.failed();
             LOGGER.severe("Interrupted Exception submitting transaction." + e.toString());
             throw new AssetException("Trasaction error.", e);
+        } catch (RuntimeException e) {
+            permit.failed();
+            throw e;
+        } finally {
+            // The write may have committed even if waiting for it failed.
+            invalidateCached(assetId);
+            ContractCalls.getDefault().submitFinished(call);
+            permit.close();
+            RequestMetrics.phase(RequestMetrics.PHASE_SUBMIT, operation, start);
+        }
+        return TransactionIdCapture.take();
+    }
+
+    // Admits a contract call, answering 503 while the ledger's circuit is open and 429 when too many calls are in progress.
+    private static ContractPolicy.Permit enter(ContractPolicy policy) {
+        try {
+            return policy.enter();
+        } catch (ContractPolicy.RejectedException e) {
+            LOGGER.warning(e.getMessage());
+            if (e.isCircuitOpen()) {
+                throw new AssetUnavailableException(e.getMessage(), e.getRetryAfterSeconds(), e);
+            }
+            throw new AssetBusyException(e.getMessage(), e);
+        }
+    }
+
+    private static AssetUnavailableException unreachable(String transaction, Exception e) {
+        LOGGER.severe(transaction + " could not reach the ledger: " + e.toString());
+        return new AssetUnavailableException("The ledger could not be reached.", 0, e);
+    }
+
+    private static AssetUnavailableException timedOut(String transaction, Exception e) {
+        LOGGER.severe(transaction + " timed out: " + e.toString());
+        return new AssetUnavailableException("The ledger did not answer in time.", 0, e);
+    }
+
+    // Asynchronous variants, the transaction is submitted and waited on by the SubmitExecutor.
+    // The future completes with the transaction ID once the transaction is committed.
+    public CompletableFuture<String> createMyAssetAsync(Contract contract, MyAsset asset) throws AssetException {
+        return createMyAssetAsync(contract, asset, true);
+    }
+
+    public CompletableFuture<String> updateMyAssetAsync(Contract contract, MyAsset asset) throws AssetException {
+        return updateMyAssetAsync(contract, asset, true);
+    }
+
+    public CompletableFuture<String> deleteMyAssetAsync(Contract contract, String assetId) throws AssetException {
+        return deleteMyAssetAsync(contract, assetId, true);
+    }
+
+    // Without waiting for the commit the future completes once the transaction has been sent
+    // to the orderer, and its outcome is found in the TransactionStatusIndex.
+    public CompletableFuture<String> createMyAssetAsync(Contract contract, MyAsset asset, boolean waitForCommit) throws AssetException {
+        return submitAsync(waitForCommit, () -> createMyAsset(contract, asset));
+    }
+
+    public CompletableFuture<String> updateMyAssetAsync(Contract contract, MyAsset asset, boolean waitForCommit) throws AssetException {
+        return submitAsync(waitForCommit, () -> updateMyAsset(contract, asset));
+    }
+
+    public CompletableFuture<String> deleteMyAssetAsync(Contract contract, String assetId, boolean waitForCommit) throws AssetException {
+        return submitAsync(waitForCommit, () -> deleteMyAsset(contract, assetId));
+    }
+
+    private void invalidateCached(String assetId) {
+        if (cache != null) {
+            cache.invalidate(channel, contractId, assetId);
+        }
+    }
+
+    private CompletableFuture<String> submitAsync(boolean waitForCommit, Supplier<String> transaction) throws AssetException {
+        // The request's log entry follows the write onto the executor thread, so its submit phase is logged.
+        RequestLog.Entry entry = RequestLog.current();
+        try {
+            return submitter.submit(() -> {
+                CommitTracker.setWaitForCommit(waitForCommit);
+                RequestLog.attach(entry);
+                try {
+                    return transaction.get();
+                } finally {
+                    RequestLog.attach(null);
+                    CommitTracker.setWaitForCommit(true);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.severe("Rejected Execution Exception submitting transaction." + e.toString());
+            throw new AssetBusyException("Too many transactions in progress, try again later.", e);
         }
     }
 }
\ No newline at end of file
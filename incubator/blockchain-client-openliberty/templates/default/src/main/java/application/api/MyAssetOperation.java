@@ -0,0 +1,40 @@
+package application.api;
+
+public class MyAssetOperation {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private String operation = null;
+    private MyAsset asset = null;
+
+    public MyAssetOperation(){
+    }
+
+    public MyAssetOperation(String operation, MyAsset asset) {
+        this.operation = operation;
+        this.asset = asset;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public MyAsset getAsset() {
+        return asset;
+    }
+
+    public void setAsset(MyAsset asset) {
+        this.asset = asset;
+    }
+
+    @Override
+    public String toString() {
+        return "MyAssetOperation [operation=" + operation + ", asset=" + asset + "]";
+    }
+
+}
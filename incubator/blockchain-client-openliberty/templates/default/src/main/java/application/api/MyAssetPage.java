@@ -0,0 +1,48 @@
+package application.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * One page of assets returned by the contract's paginated queries.
+ *
+ * The contract answers with {"records":[{"key":...,"record":{"value":...}}],"bookmark":...},
+ * where the bookmark is passed back to fetch the next page.
+ */
+public class MyAssetPage {
+    private final List<MyAsset> records;
+    private final String bookmark;
+
+    public MyAssetPage(List<MyAsset> records, String bookmark) {
+        this.records = records;
+        this.bookmark = bookmark;
+    }
+
+    public static MyAssetPage fromJson(byte[] json) throws JSONException {
+        JSONObject page = new JSONObject(new String(json, StandardCharsets.UTF_8));
+        JSONArray results = page.optJSONArray("records");
+        List<MyAsset> records = new ArrayList<MyAsset>(results != null ? results.length() : 0);
+        if (results != null) {
+            for (int i = 0; i < results.length(); i++) {
+                JSONObject result = results.getJSONObject(i);
+                JSONObject record = result.optJSONObject("record");
+                records.add(new MyAsset(result.getString("key"), record != null ? record.optString("value", null) : null));
+            }
+        }
+        return new MyAssetPage(records, page.optString("bookmark", ""));
+    }
+
+    public List<MyAsset> getRecords() {
+        return records;
+    }
+
+    // Where the next page starts, empty once the query has no more results.
+    public String getBookmark() {
+        return bookmark;
+    }
+}
@@ -0,0 +1,121 @@
+package application.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.json.JSONObject;
+
+import application.api.exceptions.AssetException;
+import application.api.exceptions.AssetExceptionMapper;
+import application.metrics.RequestMetrics;
+
+/**
+ * Writes the results of a paginated asset query to the response as they are
+ * fetched, one page in memory at a time.
+ *
+ * As JSON the body is {"records":[...],"bookmark":...}. As NDJSON each asset
+ * is a line of its own, followed by a {"bookmark":...} line. The bookmark is
+ * empty once the query has no more results, otherwise it resumes the query
+ * where the stream stopped. Should a later page fail, the error is added
+ * next to the bookmark instead, as the response status has already been sent.
+ */
+public class MyAssetStream implements StreamingOutput {
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final Logger LOGGER = Logger.getLogger(MyAssetStream.class.getName());
+
+    @FunctionalInterface
+    public interface PageSource {
+        MyAssetPage fetch(int pageSize, String bookmark) throws AssetException;
+    }
+
+    private final PageSource source;
+    private final int pageSize;
+    private final long limit;
+    private final boolean ndjson;
+    private MyAssetPage firstPage;
+    private final int firstPageSize;
+
+    /**
+     * The first page is fetched here, so that a query that fails outright is
+     * answered with an error status.
+     *
+     * @param limit most assets to return, 0 for all of them
+     */
+    public MyAssetStream(PageSource source, int pageSize, String bookmark, long limit, boolean ndjson) throws AssetException {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.limit = limit;
+        this.ndjson = ndjson;
+        this.firstPageSize = nextPageSize(0);
+        this.firstPage = source.fetch(firstPageSize, bookmark);
+    }
+
+    public String getMediaType() {
+        return ndjson ? NDJSON : "application/json";
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (!ndjson) {
+            writer.write("{\"records\":[");
+        }
+        MyAssetPage page = firstPage;
+        firstPage = null;
+        int requested = firstPageSize;
+        long written = 0;
+        String bookmark;
+        String error = null;
+        while (true) {
+            for (MyAsset asset : page.getRecords()) {
+                if (!ndjson && written > 0) {
+                    writer.write(',');
+                }
+                writer.write(new JSONObject().put("myAssetId", asset.getMyAssetId())
+                        .put("value", asset.getValue() != null ? asset.getValue() : JSONObject.NULL).toString());
+                if (ndjson) {
+                    writer.write('\n');
+                }
+                written++;
+            }
+            writer.flush();
+            bookmark = page.getBookmark();
+            if (page.getRecords().size() < requested || bookmark.isEmpty()) {
+                bookmark = "";
+                break;
+            }
+            if (limit > 0 && written >= limit) {
+                break;
+            }
+            requested = nextPageSize(written);
+            try {
+                page = source.fetch(requested, bookmark);
+            } catch (AssetException e) {
+                LOGGER.warning("Stopped streaming assets after " + written + ": " + e.toString());
+                RequestMetrics.error(AssetExceptionMapper.typeOf(e), RequestMetrics.OPERATION_LIST);
+                error = e.getMessage();
+                break;
+            }
+        }
+        writer.write(ndjson ? "{" : "],");
+        writer.write("\"bookmark\":" + JSONObject.quote(bookmark));
+        if (error != null) {
+            writer.write(",\"error\":" + JSONObject.quote(error));
+        }
+        writer.write(ndjson ? "}\n" : "}");
+        writer.flush();
+    }
+
+    // Stops the last page at the limit, so its bookmark resumes right after the last asset returned.
+    private int nextPageSize(long written) {
+        return limit > 0 ? (int) Math.min(pageSize, limit - written) : pageSize;
+    }
+}
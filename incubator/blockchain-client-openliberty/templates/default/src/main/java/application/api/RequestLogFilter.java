@@ -0,0 +1,42 @@
+package application.api;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+import application.api.exceptions.ExceptionResponse;
+import application.metrics.RequestLog;
+import application.metrics.RequestMetrics;
+
+// Writes the request log entry IdentityMapperFilter started, once the response is known.
+@Provider
+public class RequestLogFilter implements ContainerResponseFilter {
+
+    public static final String ENTRY_PROPERTY = "application.requestLog";
+
+    @Override
+    public void filter(ContainerRequestContext reqContext, ContainerResponseContext resContext) throws IOException {
+        Object entry = reqContext.getProperty(ENTRY_PROPERTY);
+        int status = resContext.getStatus();
+        if (entry instanceof RequestLog.Entry) {
+            ((RequestLog.Entry) entry).finish(status, errorOf(resContext.getEntity()));
+        } else if (status >= 400) {
+            String path = reqContext.getUriInfo() != null ? reqContext.getUriInfo().getPath() : null;
+            RequestLog.getDefault().failed(RequestMetrics.operationOf(reqContext.getMethod(), path), reqContext.getMethod(),
+                    path, status, errorOf(resContext.getEntity()));
+        }
+    }
+
+    private static String errorOf(Object entity) {
+        if (entity instanceof ExceptionResponse) {
+            return ((ExceptionResponse) entity).getMessage();
+        }
+        if (entity instanceof Throwable) {
+            return entity.toString();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package application.api.exceptions;
+
+// The service has too many calls of this kind in progress, answered with 429.
+public class AssetBusyException extends AssetException {
+    private static final long serialVersionUID = 1L;
+
+    public AssetBusyException(String message) {
+        super(message);
+    }
+
+    public AssetBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,6 @@
 package application.api.exceptions;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -8,6 +9,8 @@ import javax.ws.rs.ext.Provider;
 import org.hyperledger.fabric.gateway.GatewayException;
 import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
 
+import application.metrics.RequestMetrics;
+
 @Provider
 public class AssetExceptionMapper implements ExceptionMapper<Throwable> {
    
@@ -15,11 +18,22 @@ public class AssetExceptionMapper implements ExceptionMapper<Throwable> {
   public Response toResponse(Throwable exception) {
     
       ExceptionResponse response = null;
+      RequestMetrics.error(typeOf(exception), RequestMetrics.getOperation());
 
       if (exception instanceof AssetNotFoundException){
         response = new ExceptionResponse(exception.getMessage());
         return Response.status(Status.NOT_FOUND).entity(response).build();
       }
+      if (exception instanceof AssetBusyException){
+        response = new ExceptionResponse(exception.getMessage());
+        return Response.status(Status.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, 1).entity(response).build();
+      }
+      if (exception instanceof AssetUnavailableException){
+        response = new ExceptionResponse(exception.getMessage());
+        long retryAfter = ((AssetUnavailableException) exception).getRetryAfterSeconds();
+        return Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfter > 0 ? retryAfter : null)
+                .entity(response).build();
+      }
       if (exception instanceof AssetException){
         response = new ExceptionResponse(exception.getMessage());
         return Response.status(Status.BAD_REQUEST).entity(response).build();
@@ -36,4 +50,31 @@ public class AssetExceptionMapper implements ExceptionMapper<Throwable> {
       return Response.serverError().entity(exception).build();
       
     }
+
+  // The exception type errors are counted under, one of the types handled above or Unhandled.
+  public static String typeOf(Throwable exception) {
+      if (exception instanceof AssetNotFoundException || exception instanceof AssetException
+              || exception instanceof GatewayException || exception instanceof IdentityException){
+        return exception.getClass().getSimpleName();
+      }
+      return "Unhandled";
+  }
+
+  // The HTTP status toResponse would answer with, used where failures are reported per item.
+  public static int statusOf(Throwable exception) {
+      if (exception instanceof AssetNotFoundException){
+        return Status.NOT_FOUND.getStatusCode();
+      }
+      if (exception instanceof AssetBusyException){
+        return Status.TOO_MANY_REQUESTS.getStatusCode();
+      }
+      if (exception instanceof AssetUnavailableException){
+        return Status.SERVICE_UNAVAILABLE.getStatusCode();
+      }
+      if (exception instanceof AssetException || exception instanceof GatewayException
+              || exception instanceof IdentityException){
+        return Status.BAD_REQUEST.getStatusCode();
+      }
+      return Status.INTERNAL_SERVER_ERROR.getStatusCode();
+  }
 }
\ No newline at end of file
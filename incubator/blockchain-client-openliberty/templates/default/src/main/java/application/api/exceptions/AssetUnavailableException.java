@@ -0,0 +1,22 @@
+package application.api.exceptions;
+
+// The ledger is failing or did not answer in time, answered with 503.
+public class AssetUnavailableException extends AssetException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AssetUnavailableException(String message) {
+        this(message, 0, null);
+    }
+
+    public AssetUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // Seconds after which the call may succeed, 0 if not known.
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,25 +1,100 @@
 package application.health;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
 import javax.enterprise.context.ApplicationScoped;
 
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.Liveness;
 
+import application.utils.ConnectionConfiguration;
+import application.utils.ContractCalls;
+import application.utils.SubmitExecutor;
+
 @Liveness
 @ApplicationScoped
 public class ApplicationLivenessCheck implements HealthCheck {
+    public static final Logger LOGGER = Logger.getLogger(ApplicationLivenessCheck.class.getName());
+
+    // A pod past any of these limits is wedged rather than busy, restarting it is better than serving timeouts.
+    private final long maxSubmitAgeMillis = TimeUnit.SECONDS.toMillis(ConnectionConfiguration.getLivenessSubmitAge());
+    private final int maxQueueDepth = ConnectionConfiguration.getLivenessQueueDepth();
+    private final int maxHeapPercent = ConnectionConfiguration.getLivenessHeapPercent();
 
-    private boolean isAlive() {
-        // perform health checks here
+    static List<String> problems(long oldestSubmitAgeMillis, long maxSubmitAgeMillis, int queueDepth, int maxQueueDepth,
+            int heapPercent, int maxHeapPercent) {
+        List<String> problems = new ArrayList<String>();
+        if (maxSubmitAgeMillis > 0 && oldestSubmitAgeMillis > maxSubmitAgeMillis) {
+            problems.add("A submit has been outstanding for " + oldestSubmitAgeMillis + " ms.");
+        }
+        if (maxQueueDepth > 0 && queueDepth >= maxQueueDepth) {
+            problems.add(queueDepth + " submits are waiting for a thread.");
+        }
+        if (maxHeapPercent > 0 && heapPercent >= maxHeapPercent) {
+            problems.add(heapPercent + "% of the heap is in use after garbage collection.");
+        }
+        return problems;
+    }
+
+    // The old generation as it was after its last collection, so garbage waiting to be collected does not count.
+    static int heapPercentAfterCollection() {
+        return heapPercentAfterCollection(ManagementFactory.getMemoryPoolMXBeans());
+    }
 
-        return true; 
+    // Young pools such as eden and survivor spaces fill up between collections under any steady load, so only
+    // the pools that support a usage threshold, the long-lived ones, are measured. Without any, the largest pool is.
+    static int heapPercentAfterCollection(List<MemoryPoolMXBean> pools) {
+        long used = 0;
+        long max = 0;
+        MemoryUsage largest = null;
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage == null || usage.getMax() <= 0) {
+                continue;
+            }
+            if (pool.isUsageThresholdSupported()) {
+                used += usage.getUsed();
+                max += usage.getMax();
+            } else if (largest == null || usage.getMax() > largest.getMax()) {
+                largest = usage;
+            }
+        }
+        if (max == 0 && largest != null) {
+            used = largest.getUsed();
+            max = largest.getMax();
+        }
+        return max > 0 ? (int) (100 * used / max) : 0;
     }
 	
     @Override
     public HealthCheckResponse call() {
-        boolean up = isAlive();
-        return HealthCheckResponse.named(this.getClass().getSimpleName()).state(up).build();
+        ContractCalls calls = ContractCalls.getDefault();
+        SubmitExecutor executor = SubmitExecutor.getDefault();
+        long oldestSubmitAgeMillis = TimeUnit.NANOSECONDS.toMillis(calls.getOldestSubmitAge(System.nanoTime()));
+        int queueDepth = executor.getQueueDepth();
+        int heapPercent = heapPercentAfterCollection();
+        List<String> problems = problems(oldestSubmitAgeMillis, maxSubmitAgeMillis, queueDepth, maxQueueDepth,
+                heapPercent, maxHeapPercent);
+        boolean up = problems.isEmpty();
+        if (!up) {
+            LOGGER.severe(String.join(" ", problems) + " App not alive.");
+        }
+        return HealthCheckResponse.named(this.getClass().getSimpleName()).state(up)
+                .withData("inFlightSubmits", calls.getSubmits())
+                .withData("inFlightEvaluates", calls.getEvaluates())
+                .withData("oldestSubmitAgeMs", oldestSubmitAgeMillis)
+                .withData("submitQueueDepth", queueDepth)
+                .withData("submitThreadsActive", executor.getActiveCount())
+                .withData("heapPercentAfterGc", heapPercent)
+                .build();
     }
     
 }
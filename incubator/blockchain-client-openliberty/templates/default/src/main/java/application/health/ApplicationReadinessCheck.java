@@ -1,39 +1,55 @@
 package application.health;
 
 import javax.enterprise.context.ApplicationScoped;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Readiness;
-import application.utils.ConnectionConfiguration;
+import application.utils.Configuration;
+import application.utils.ConnectivityProbe;
+import application.utils.GatewayWarmup;
 
 @Readiness
 @ApplicationScoped
 public class ApplicationReadinessCheck implements HealthCheck {
     public static final Logger LOGGER = Logger.getLogger(ApplicationReadinessCheck.class.getName());
 
-    private boolean isReady() {
-        // perform readiness checks, e.g. database connection, etc.
-        if (ConnectionConfiguration.getChannel() == null || ConnectionConfiguration.getChannel().isEmpty()) {
-            LOGGER.severe("Channel environment variable not provided... app not ready.");
+    private boolean isConfigured() {
+        List<String> problems = Configuration.current().getProblems();
+        if (!problems.isEmpty()) {
+            LOGGER.severe(String.join(" ", problems) + " App not ready.");
             return false;
         }
-        if (ConnectionConfiguration.getConnectionProfile() == null || ConnectionConfiguration.getConnectionProfile().isEmpty()) {
-            LOGGER.severe("Connection profile environment variable not provided... app not ready.");
-            return false;
-        }
-        if (ConnectionConfiguration.getContractId() == null || ConnectionConfiguration.getContractId().isEmpty()) {
-            LOGGER.severe("Contract id environment variable not provided... app not ready.");
-            return false;
-        }            
         return true;  
     }
 	
     @Override
     public HealthCheckResponse call() {
-        boolean up = isReady();
-        return HealthCheckResponse.named(this.getClass().getSimpleName()).state(up).build();
+        // Answers from the background connectivity probe's last result, the network is not called here.
+        ConnectivityProbe probe = ConnectivityProbe.getDefault();
+        ConnectivityProbe.State state = probe.getState();
+        GatewayWarmup warmup = GatewayWarmup.getDefault();
+        long now = System.currentTimeMillis();
+        boolean up = isConfigured() && warmup.isDone() && probe.isReady(now);
+        HealthCheckResponseBuilder response = HealthCheckResponse.named(this.getClass().getSimpleName()).state(up)
+                .withData("lastSuccessAgeMs", probe.getLastSuccessAgeMillis(now))
+                .withData("probeLatencyMs", state.getLatencyMillis())
+                .withData("warmupDone", warmup.isDone());
+        for (Map.Entry<String, GatewayWarmup.Result> result : warmup.getResults().entrySet()) {
+            response.withData("warmup." + result.getKey(), result.getValue().toString());
+        }
+        if (state.getReachability() != null) {
+            response.withData("peersReachable", state.getReachability().getPeersReachable() + "/" + state.getReachability().getPeers())
+                    .withData("orderersReachable", state.getReachability().getOrderersReachable() + "/" + state.getReachability().getOrderers());
+        }
+        if (state.getError() != null) {
+            response.withData("error", state.getError());
+        }
+        return response.build();
     }
     
 }
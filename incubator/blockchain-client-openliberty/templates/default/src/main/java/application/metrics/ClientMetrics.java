@@ -0,0 +1,137 @@
+package application.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Static bridge between the client's utility classes and the MicroProfile
+ * application metric registry.
+ *
+ * The utility classes are plain Java and are exercised outside of a
+ * container in unit tests, so they cannot inject a MetricRegistry. They
+ * publish their own counters here instead; gauges and counters declared
+ * before the registry is bound are registered once MetricsInitializer binds
+ * it at application start, and timing updates are dropped while unbound.
+ */
+public final class ClientMetrics {
+    public static final Logger LOGGER = Logger.getLogger(ClientMetrics.class.getName());
+
+    private static volatile MetricRegistry registry = null;
+    private static final List<Registration> registrations = new ArrayList<Registration>();
+
+    private ClientMetrics() {
+    }
+
+    public static synchronized void bind(MetricRegistry metricRegistry) {
+        registry = metricRegistry;
+        for (Registration registration : registrations) {
+            register(registration);
+        }
+    }
+
+    public static boolean isBound() {
+        return registry != null;
+    }
+
+    // Publishes a value that is read on demand, such as a pool occupancy.
+    public static <T extends Number> void gauge(String name, String description, String unit, Supplier<T> value, Tag... tags) {
+        Gauge<T> gauge = value::get;
+        declare(new Registration(metadata(name, description, MetricType.GAUGE, unit), gauge, tags));
+    }
+
+    // Publishes a monotonic count maintained by the caller, for example in a LongAdder.
+    public static void counter(String name, String description, LongSupplier count, Tag... tags) {
+        declare(new Registration(metadata(name, description, MetricType.COUNTER, MetricUnits.NONE), new CounterView(count), tags));
+    }
+
+    public static void time(String name, String description, long duration, TimeUnit unit, Tag... tags) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.timer(metadata(name, description, MetricType.TIMER, MetricUnits.NANOSECONDS), tags).update(duration, unit);
+        }
+    }
+
+    public static void histogram(String name, String description, String unit, long value, Tag... tags) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.histogram(metadata(name, description, MetricType.HISTOGRAM, unit), tags).update(value);
+        }
+    }
+
+    public static void increment(String name, String description, Tag... tags) {
+        MetricRegistry current = registry;
+        if (current != null) {
+            current.counter(metadata(name, description, MetricType.COUNTER, MetricUnits.NONE), tags).inc();
+        }
+    }
+
+    private static synchronized void declare(Registration registration) {
+        registrations.add(registration);
+        if (registry != null) {
+            register(registration);
+        }
+    }
+
+    private static void register(Registration registration) {
+        try {
+            registry.register(registration.metadata, registration.metric, registration.tags);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Metric " + registration.metadata.getName() + " is already registered: " + e.toString());
+        }
+    }
+
+    private static Metadata metadata(String name, String description, MetricType type, String unit) {
+        return Metadata.builder().withName(name).withDescription(description).withType(type).withUnit(unit).build();
+    }
+
+    private static class Registration {
+        private final Metadata metadata;
+        private final Metric metric;
+        private final Tag[] tags;
+
+        Registration(Metadata metadata, Metric metric, Tag[] tags) {
+            this.metadata = metadata;
+            this.metric = metric;
+            this.tags = tags;
+        }
+    }
+
+    // View over a count the owning class already maintains, plus any increments made through the registry.
+    static class CounterView implements Counter {
+        private final LongSupplier count;
+        private final LongAdder added = new LongAdder();
+
+        CounterView(LongSupplier count) {
+            this.count = count;
+        }
+
+        @Override
+        public void inc() {
+            added.increment();
+        }
+
+        @Override
+        public void inc(long n) {
+            added.add(n);
+        }
+
+        @Override
+        public long getCount() {
+            return count.getAsLong() + added.sum();
+        }
+    }
+}
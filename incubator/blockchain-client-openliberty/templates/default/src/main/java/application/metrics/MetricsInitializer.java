@@ -0,0 +1,19 @@
+package application.metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+@ApplicationScoped
+public class MetricsInitializer {
+
+    @Inject
+    private MetricRegistry registry;
+
+    public void init(@Observes @Initialized(ApplicationScoped.class) Object init) {
+        ClientMetrics.bind(registry);
+    }
+}
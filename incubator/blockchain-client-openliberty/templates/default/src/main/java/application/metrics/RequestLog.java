@@ -0,0 +1,259 @@
+package application.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+import application.utils.ConnectionConfiguration;
+
+/**
+ * One structured line per asset request, written to the application.requests
+ * logger as JSON.
+ *
+ * IdentityMapperFilter starts an entry and RequestLogFilter writes it once the
+ * response is known. In between, the request's code adds the asset ID,
+ * transaction ID and phase timings to the entry of its thread through the
+ * static methods, which do nothing when the request has no entry. A request
+ * only gets one when the logger is enabled for INFO and the request is
+ * sampled, so requests that are not logged build no strings at all. Failed
+ * requests are logged whether sampled or not.
+ *
+ * Payloads are reduced to their size unless a payload limit is configured.
+ * Lines are formatted and written by a background thread; when it falls
+ * behind, lines are dropped and counted rather than slowing requests down.
+ */
+public class RequestLog {
+    public static final Logger LOGGER = Logger.getLogger("application.requests");
+
+    private static final String[] PHASES = { RequestMetrics.PHASE_IDENTITY, RequestMetrics.PHASE_GATEWAY,
+            RequestMetrics.PHASE_CONTRACT, RequestMetrics.PHASE_EVALUATE, RequestMetrics.PHASE_SUBMIT };
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private static final ThreadLocal<Entry> current = new ThreadLocal<Entry>();
+    private static final RequestLog defaultLog = new RequestLog(ConnectionConfiguration.getRequestLogSample(),
+            ConnectionConfiguration.getRequestLogPayloadMax(), ConnectionConfiguration.isRequestLogAsync());
+
+    static {
+        ClientMetrics.counter("request.log.dropped", "Request log lines dropped because the writer fell behind.", defaultLog::getDropped);
+    }
+
+    private final int sample;
+    private final int payloadMax;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong requests = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param sample     log one in every sample requests, 0 to log failures only
+     * @param payloadMax characters of each payload to log, 0 to log only its size
+     * @param async      write lines from a background thread
+     */
+    public RequestLog(int sample, int payloadMax, boolean async) {
+        this.sample = sample;
+        this.payloadMax = payloadMax;
+        this.queue = async ? new ArrayBlockingQueue<Entry>(QUEUE_CAPACITY) : null;
+        if (async) {
+            Thread writer = new Thread(this::drain, "request-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    public static RequestLog getDefault() {
+        return defaultLog;
+    }
+
+    // Starts the entry for the request on this thread, or returns null if it is not to be logged.
+    public Entry start(String operation, String method, String path) {
+        Entry entry = null;
+        if (sample > 0 && LOGGER.isLoggable(Level.INFO) && requests.getAndIncrement() % sample == 0) {
+            entry = new Entry(this, operation, method, path);
+        }
+        current.set(entry);
+        return entry;
+    }
+
+    // Logs a failed request that was not sampled, from what the response filter knows of it.
+    public void failed(String operation, String method, String path, int status, String error) {
+        if (!LOGGER.isLoggable(Level.INFO)) {
+            return;
+        }
+        Entry entry = new Entry(this, operation, method, path);
+        entry.status = status;
+        entry.error = error;
+        // Its duration is not known without an entry from the start.
+        entry.durationNanos = -1;
+        write(entry);
+    }
+
+    public static Entry current() {
+        return current.get();
+    }
+
+    // Carries a request's entry to the thread doing part of its work, pass null to detach it again.
+    public static void attach(Entry entry) {
+        if (entry == null) {
+            current.remove();
+        } else {
+            current.set(entry);
+        }
+    }
+
+    public static void identity(String identity) {
+        Entry entry = current.get();
+        if (entry != null) {
+            entry.identity = identity;
+        }
+    }
+
+    public static void assetId(String assetId) {
+        Entry entry = current.get();
+        if (entry != null) {
+            entry.assetId = assetId;
+        }
+    }
+
+    public static void transactionId(String transactionId) {
+        Entry entry = current.get();
+        if (entry != null) {
+            entry.transactionId = transactionId;
+        }
+    }
+
+    public static void cached(boolean cached) {
+        Entry entry = current.get();
+        if (entry != null) {
+            entry.cached = cached;
+        }
+    }
+
+    // Keeps the payload itself only up to the configured limit.
+    public static void payload(byte[] payload) {
+        Entry entry = current.get();
+        if (entry != null && payload != null) {
+            entry.payloadBytes = payload.length;
+            if (entry.log.payloadMax > 0) {
+                entry.payload = payload;
+            }
+        }
+    }
+
+    public static void phase(String phase, long nanos) {
+        Entry entry = current.get();
+        if (entry == null) {
+            return;
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            if (PHASES[i].equals(phase)) {
+                entry.phaseNanos[i] += nanos;
+                return;
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void write(Entry entry) {
+        if (queue == null) {
+            LOGGER.info(format(entry));
+        } else if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                LOGGER.info(format(queue.take()));
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.warning("Could not write request log line: " + e.toString());
+            }
+        }
+    }
+
+    String format(Entry entry) {
+        JSONObject line = new JSONObject();
+        line.put("operation", entry.operation);
+        line.put("method", entry.method);
+        line.put("path", entry.path);
+        line.putOpt("identity", entry.identity);
+        line.putOpt("assetId", entry.assetId);
+        line.putOpt("transactionId", entry.transactionId);
+        line.put("status", entry.status);
+        line.putOpt("error", entry.error);
+        if (entry.durationNanos >= 0) {
+            line.put("durationMs", entry.durationNanos / 1e6);
+        }
+        JSONObject phases = new JSONObject();
+        for (int i = 0; i < PHASES.length; i++) {
+            if (entry.phaseNanos[i] > 0) {
+                phases.put(PHASES[i], entry.phaseNanos[i] / 1e6);
+            }
+        }
+        if (phases.length() > 0) {
+            line.put("phasesMs", phases);
+        }
+        if (entry.cached) {
+            line.put("cached", true);
+        }
+        if (entry.payloadBytes >= 0) {
+            line.put("payloadBytes", entry.payloadBytes);
+            if (entry.payload != null) {
+                String payload = new String(entry.payload, StandardCharsets.UTF_8);
+                line.put("payload", payload.length() > payloadMax ? payload.substring(0, payloadMax) + "..." : payload);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * The fields logged for one request. Filled in by the threads that work
+     * on the request, one at a time, and handed to the writer when finished.
+     */
+    public static class Entry {
+        private final RequestLog log;
+        private final String operation;
+        private final String method;
+        private final String path;
+        private final long start = System.nanoTime();
+        private final long[] phaseNanos = new long[PHASES.length];
+        private volatile String identity;
+        private volatile String assetId;
+        private volatile String transactionId;
+        private volatile boolean cached;
+        private volatile int payloadBytes = -1;
+        private volatile byte[] payload;
+        private int status;
+        private String error;
+        private long durationNanos;
+
+        Entry(RequestLog log, String operation, String method, String path) {
+            this.log = log;
+            this.operation = operation;
+            this.method = method;
+            this.path = path;
+        }
+
+        // For work that completes on another thread than the request's.
+        public void setTransactionId(String transactionId) {
+            this.transactionId = transactionId;
+        }
+
+        public void finish(int status, String error) {
+            this.durationNanos = System.nanoTime() - start;
+            this.status = status;
+            this.error = error;
+            log.write(this);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package application.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Per-phase latency and error metrics for the asset REST API.
+ *
+ * Every timing is published to the asset.phase.time timer, tagged with the
+ * phase and with the operation the request performs. IdentityMapperFilter
+ * sets the operation for the request thread, so phases measured deep in
+ * ConnectionManager are attributed without passing it down. Work handed to
+ * other threads names its operation explicitly.
+ */
+public final class RequestMetrics {
+
+    public static final String PHASE_IDENTITY = "identity";
+    public static final String PHASE_GATEWAY = "gateway";
+    public static final String PHASE_CONTRACT = "contract";
+    public static final String PHASE_EVALUATE = "evaluate";
+    public static final String PHASE_SUBMIT = "submit";
+
+    public static final String OPERATION_READ = "read";
+    public static final String OPERATION_LIST = "list";
+    public static final String OPERATION_CREATE = "create";
+    public static final String OPERATION_UPDATE = "update";
+    public static final String OPERATION_DELETE = "delete";
+    public static final String OPERATION_BATCH = "batch";
+    public static final String OPERATION_OTHER = "other";
+
+    private static final ThreadLocal<String> operation = new ThreadLocal<String>();
+
+    private RequestMetrics() {
+    }
+
+    // The operation a request performs, from its HTTP method and path.
+    public static String operationOf(String method, String path) {
+        // Leading and trailing slashes are skipped without copying the path, as this runs on every request.
+        int from = 0;
+        int to = path != null ? path.length() : 0;
+        while (from < to && path.charAt(from) == '/') {
+            from++;
+        }
+        while (to > from && path.charAt(to - 1) == '/') {
+            to--;
+        }
+        if (path != null && path.startsWith("admin", from)) {
+            return OPERATION_OTHER;
+        }
+        if ("GET".equals(method)) {
+            return endsWith(path, from, to, "myassets") ? OPERATION_LIST : OPERATION_READ;
+        }
+        if ("POST".equals(method)) {
+            return endsWith(path, from, to, "/batch") ? OPERATION_BATCH : OPERATION_CREATE;
+        }
+        if ("PUT".equals(method)) {
+            return OPERATION_UPDATE;
+        }
+        if ("DELETE".equals(method)) {
+            return OPERATION_DELETE;
+        }
+        return OPERATION_OTHER;
+    }
+
+    // True if the part of path between from and to ends with suffix.
+    private static boolean endsWith(String path, int from, int to, String suffix) {
+        return to - from >= suffix.length() && path.startsWith(suffix, to - suffix.length());
+    }
+
+    public static void setOperation(String current) {
+        operation.set(current);
+    }
+
+    public static String getOperation() {
+        String current = operation.get();
+        return current != null ? current : OPERATION_OTHER;
+    }
+
+    // Records a phase of the current thread's operation that started at the given System.nanoTime().
+    public static void phase(String phase, long start) {
+        phase(phase, getOperation(), start);
+    }
+
+    public static void phase(String phase, String operation, long start) {
+        long nanos = System.nanoTime() - start;
+        ClientMetrics.time("asset.phase.time", "Time spent in each phase of an asset request.", nanos,
+                TimeUnit.NANOSECONDS, new Tag("operation", operation), new Tag("phase", phase));
+        RequestLog.phase(phase, nanos);
+    }
+
+    public static void error(String type, String operation) {
+        ClientMetrics.increment("asset.errors", "Failed asset requests and batch items, by exception type.",
+                new Tag("operation", operation), new Tag("type", type));
+    }
+}
@@ -0,0 +1,330 @@
+package application.utils;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.TxReadWriteSetInfo;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Bounded read-through cache of asset values keyed by (channel, contract,
+ * asset ID).
+ *
+ * Entries are invalidated by one block listener per channel, which drops
+ * every key written by a valid transaction in the block. Values are only
+ * cached while that listener is registered, and the channel is cleared
+ * whenever it is lost, so a missed block cannot leave a stale entry behind.
+ * The TTL bounds how long an entry can live regardless.
+ *
+ * Asset IDs are assumed to be the ledger keys the contract writes.
+ */
+public class AssetCache {
+    public static final Logger LOGGER = Logger.getLogger(AssetCache.class.getName());
+
+    private static final int STRIPES = 1024;
+
+    private final ConcurrentHashMap<AssetKey, Entry> values = new ConcurrentHashMap<AssetKey, Entry>();
+    // Insertion order for eviction, may hold keys that have since been invalidated.
+    private final ConcurrentLinkedQueue<AssetKey> order = new ConcurrentLinkedQueue<AssetKey>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentHashMap<String, Listener> listeners = new ConcurrentHashMap<String, Listener>();
+    // Stamps invalidations, so a read that raced a write of its key does not cache its result.
+    private final AtomicLong generation = new AtomicLong();
+    // Latest invalidation of the keys hashing to each stripe, so writes of other keys do not stop caching.
+    private final AtomicLongArray keyGenerations = new AtomicLongArray(STRIPES);
+    private final ConcurrentHashMap<String, Long> channelGenerations = new ConcurrentHashMap<String, Long>();
+    private volatile long clearedGeneration = 0;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long lastInvalidationLagMillis;
+
+    /**
+     * @param maxSize maximum number of cached values, 0 disables the cache
+     * @param ttl     time a value may be served for, 0 to rely on block events only
+     */
+    public AssetCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public byte[] get(String channel, String contract, String assetId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        AssetKey key = new AssetKey(channel, contract, assetId);
+        Entry entry = values.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.loaded > ttlNanos) {
+            values.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    // Taken before reading from the ledger and passed back to put.
+    public long generation() {
+        return generation.get();
+    }
+
+    // Caches a value read from the ledger, unless the key may have been written since the read started.
+    public void put(String channel, String contract, String assetId, byte[] value, long readGeneration) {
+        if (!isEnabled() || !isListening(channel)) {
+            return;
+        }
+        AssetKey key = new AssetKey(channel, contract, assetId);
+        if (isInvalidatedSince(key, readGeneration)) {
+            return;
+        }
+        Entry entry = new Entry(value);
+        if (values.put(key, entry) == null) {
+            order.add(key);
+            queued.incrementAndGet();
+        }
+        if (isInvalidatedSince(key, readGeneration)) {
+            values.remove(key, entry);
+            return;
+        }
+        while (values.size() > maxSize || queued.get() > 2 * maxSize) {
+            AssetKey eldest = order.poll();
+            if (eldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            if (values.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isInvalidatedSince(AssetKey key, long readGeneration) {
+        Long channelGeneration = key.channel != null ? channelGenerations.get(key.channel) : null;
+        return keyGenerations.get(stripe(key)) > readGeneration || clearedGeneration > readGeneration
+                || channelGeneration != null && channelGeneration > readGeneration;
+    }
+
+    private static int stripe(AssetKey key) {
+        return (key.hash ^ (key.hash >>> 16)) & (STRIPES - 1);
+    }
+
+    public void invalidate(String channel, String contract, String assetId) {
+        AssetKey key = new AssetKey(channel, contract, assetId);
+        keyGenerations.accumulateAndGet(stripe(key), generation.incrementAndGet(), Math::max);
+        if (values.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateChannel(String channel) {
+        if (channel == null) {
+            clear();
+            return;
+        }
+        channelGenerations.merge(channel, generation.incrementAndGet(), Math::max);
+        values.keySet().removeIf(key -> Objects.equals(key.channel, channel));
+    }
+
+    private void clear() {
+        clearedGeneration = generation.incrementAndGet();
+        values.clear();
+    }
+
+    // Drops every key written by a valid transaction in the block.
+    public void invalidate(BlockEvent event) {
+        String channel = null;
+        try {
+            channel = event.getChannelId();
+            if (event.isFiltered()) {
+                // Filtered blocks carry no write sets.
+                invalidateChannel(channel);
+                return;
+            }
+            for (BlockEvent.TransactionEvent transaction : event.getTransactionEvents()) {
+                if (!transaction.isValid()) {
+                    continue;
+                }
+                for (BlockInfo.TransactionEnvelopeInfo.TransactionActionInfo action : transaction.getTransactionActionInfos()) {
+                    TxReadWriteSetInfo rwSet = action.getTxReadWriteSet();
+                    if (rwSet == null) {
+                        continue;
+                    }
+                    for (TxReadWriteSetInfo.NsRwsetInfo nsRwSet : rwSet.getNsRwsetInfos()) {
+                        for (KvRwset.KVWrite write : nsRwSet.getRwset().getWritesList()) {
+                            invalidate(channel, nsRwSet.getNamespace(), write.getKey());
+                        }
+                    }
+                }
+                recordLag(transaction.getTimestamp());
+            }
+        } catch (Exception e) {
+            LOGGER.warning("Error reading block " + event.getBlockNumber() + ", clearing channel " + channel + ": " + e.toString());
+            if (channel != null) {
+                invalidateChannel(channel);
+            } else {
+                clear();
+            }
+        }
+    }
+
+    public boolean isListening(String channel) {
+        return listeners.containsKey(channel);
+    }
+
+    // Registers the channel's block listener on the given identity's network, if there is none yet.
+    public void listen(String channel, String fabricId, Network network) {
+        if (!isEnabled() || isListening(channel)) {
+            return;
+        }
+        listeners.computeIfAbsent(channel, name -> {
+            LOGGER.info("Listening for blocks on " + name + " to invalidate cached assets.");
+            return new Listener(fabricId, network, network.addBlockListener(this::invalidate));
+        });
+    }
+
+    // Called when the identity's gateway goes away, its block listeners go with it.
+    public void release(String fabricId) {
+        for (Map.Entry<String, Listener> mapEntry : listeners.entrySet()) {
+            Listener listener = mapEntry.getValue();
+            if (listener.fabricId.equals(fabricId) && listeners.remove(mapEntry.getKey(), listener)) {
+                try {
+                    listener.network.removeBlockListener(listener.consumer);
+                } catch (RuntimeException e) {
+                    LOGGER.warning("Error removing block listener on " + mapEntry.getKey() + ": " + e.toString());
+                }
+                invalidateChannel(mapEntry.getKey());
+            }
+        }
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtl(TimeUnit unit) {
+        return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // How long the last block's writes had been committable before the cache heard of them.
+    public long getLastInvalidationLagMillis() {
+        return lastInvalidationLagMillis;
+    }
+
+    private void recordLag(Date timestamp) {
+        if (timestamp == null) {
+            return;
+        }
+        long lag = Math.max(0, System.currentTimeMillis() - timestamp.getTime());
+        lastInvalidationLagMillis = lag;
+        ClientMetrics.time("asset.cache.invalidation.lag", "Time from a transaction being proposed to its writes being invalidated in the asset cache.",
+                lag, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Entry {
+        private final byte[] value;
+        private final long loaded = System.nanoTime();
+
+        Entry(byte[] value) {
+            this.value = value;
+        }
+    }
+
+    private static class Listener {
+        private final String fabricId;
+        private final Network network;
+        private final Consumer<BlockEvent> consumer;
+
+        Listener(String fabricId, Network network, Consumer<BlockEvent> consumer) {
+            this.fabricId = fabricId;
+            this.network = network;
+            this.consumer = consumer;
+        }
+    }
+
+    private static final class AssetKey {
+        private final String channel;
+        private final String contract;
+        private final String assetId;
+        private final int hash;
+
+        AssetKey(String channel, String contract, String assetId) {
+            this.channel = channel;
+            this.contract = contract;
+            this.assetId = assetId;
+            int h = 1;
+            h = 31 * h + Objects.hashCode(channel);
+            h = 31 * h + Objects.hashCode(contract);
+            h = 31 * h + Objects.hashCode(assetId);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof AssetKey)) {
+                return false;
+            }
+            AssetKey other = (AssetKey) obj;
+            return hash == other.hash && Objects.equals(channel, other.channel)
+                    && Objects.equals(contract, other.contract) && Objects.equals(assetId, other.assetId);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package application.utils;
+
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.spi.CommitHandler;
+import org.hyperledger.fabric.gateway.spi.CommitHandlerFactory;
+import org.hyperledger.fabric.gateway.spi.CommitListener;
+import org.hyperledger.fabric.gateway.spi.PeerDisconnectEvent;
+import org.hyperledger.fabric.protos.peer.FabricTransaction.TxValidationCode;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.Peer;
+
+/**
+ * Commit handler factory that records every submitted transaction in a
+ * TransactionStatusIndex, and lets a submit return without waiting for the
+ * commit.
+ *
+ * By default the configured strategy's handler waits for the commit as
+ * before and its outcome is recorded. After setWaitForCommit(false) on the
+ * submitting thread, the handler returns as soon as the transaction has been
+ * sent to the orderer and a commit listener records the outcome instead. A
+ * transaction whose commit is not seen within the timeout is marked UNKNOWN.
+ */
+public class CommitTracker implements CommitHandlerFactory {
+    public static final Logger LOGGER = Logger.getLogger(CommitTracker.class.getName());
+
+    private static final ThreadLocal<Boolean> skipWait = new ThreadLocal<Boolean>();
+    private static final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fabric-commit-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CommitHandlerFactory delegate;
+    private final TransactionStatusIndex index;
+    private final long timeoutNanos;
+
+    public CommitTracker(CommitHandlerFactory delegate, TransactionStatusIndex index, long timeout, TimeUnit unit) {
+        this.delegate = delegate;
+        this.index = index;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    // Whether submits on this thread wait for the commit, true unless changed.
+    public static void setWaitForCommit(boolean wait) {
+        if (wait) {
+            skipWait.remove();
+        } else {
+            skipWait.set(Boolean.TRUE);
+        }
+    }
+
+    public static boolean isWaitingForCommit() {
+        return skipWait.get() == null;
+    }
+
+    @Override
+    public CommitHandler create(String transactionId, Network network) {
+        index.pending(transactionId);
+        if (isWaitingForCommit()) {
+            return new WaitingHandler(transactionId, delegate.create(transactionId, network));
+        }
+        return new ListeningHandler(transactionId, network);
+    }
+
+    static String validationCodeOf(BlockEvent.TransactionEvent event) {
+        TxValidationCode code = TxValidationCode.forNumber(event.getValidationCode());
+        return code != null ? code.name() : Byte.toString(event.getValidationCode());
+    }
+
+    private class WaitingHandler implements CommitHandler {
+        private final String transactionId;
+        private final CommitHandler handler;
+
+        WaitingHandler(String transactionId, CommitHandler handler) {
+            this.transactionId = transactionId;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startListening() {
+            handler.startListening();
+        }
+
+        @Override
+        public void waitForEvents(long timeout, TimeUnit timeUnit) throws ContractException, TimeoutException, InterruptedException {
+            try {
+                handler.waitForEvents(timeout, timeUnit);
+                index.complete(transactionId, TransactionStatusIndex.VALID);
+            } catch (ContractException e) {
+                index.invalid(transactionId, e.getMessage());
+                throw e;
+            } catch (TimeoutException | InterruptedException e) {
+                index.unknown(transactionId, e.toString());
+                throw e;
+            }
+        }
+
+        @Override
+        public void cancelListening() {
+            handler.cancelListening();
+            index.remove(transactionId);
+        }
+    }
+
+    private class ListeningHandler implements CommitHandler, CommitListener {
+        private final String transactionId;
+        private final Network network;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile ScheduledFuture<?> expiry;
+
+        ListeningHandler(String transactionId, Network network) {
+            this.transactionId = transactionId;
+            this.network = network;
+        }
+
+        @Override
+        public void startListening() {
+            try {
+                network.addCommitListener(this, network.getChannel().getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE)), transactionId);
+            } catch (GatewayRuntimeException e) {
+                // The transaction can still be submitted, its outcome will just not be known.
+                LOGGER.warning("Error listening for the commit of " + transactionId + ": " + e.toString());
+                index.unknown(transactionId, "Not listening for the commit: " + e.getMessage());
+                return;
+            }
+            expiry = timeouts.schedule(this::expire, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void waitForEvents(long timeout, TimeUnit timeUnit) {
+            // The transaction has been sent to the orderer, acceptCommit records the rest.
+        }
+
+        @Override
+        public void cancelListening() {
+            if (stop()) {
+                index.remove(transactionId);
+            }
+        }
+
+        @Override
+        public void acceptCommit(BlockEvent.TransactionEvent event) {
+            if (stop()) {
+                index.complete(transactionId, validationCodeOf(event));
+            }
+        }
+
+        @Override
+        public void acceptDisconnect(PeerDisconnectEvent event) {
+            // Other peers may still deliver the commit, the timeout covers losing them all.
+        }
+
+        private void expire() {
+            if (stop()) {
+                index.unknown(transactionId, "No commit event received within " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " seconds.");
+            }
+        }
+
+        private boolean stop() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            ScheduledFuture<?> pendingExpiry = expiry;
+            if (pendingExpiry != null) {
+                pendingExpiry.cancel(false);
+            }
+            network.removeCommitListener(this);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package application.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * An immutable, checked snapshot of the settings read while serving requests.
+ *
+ * ConnectionLifecycle publishes the first snapshot at startup. When
+ * FABRIC_CONFIG_DIR is set, the directory is then checked for changed files
+ * and a changed directory is read into a new snapshot, which replaces the
+ * current one in a single write. Listeners are told of each replacement so
+ * that they rebuild only what depends on the settings that changed, such as
+ * the gateways when the connection profile or wallet changes. A new snapshot
+ * that lacks a required setting is not published.
+ *
+ * Settings only read at startup, such as pool and cache sizes, are not part
+ * of the snapshot and still need a restart to change. Until a snapshot has
+ * been published, current() reads the settings on every call.
+ */
+public final class Configuration {
+    public static final Logger LOGGER = Logger.getLogger(Configuration.class.getName());
+
+    private static volatile Configuration current = null;
+    private static final List<BiConsumer<Configuration, Configuration>> listeners = new CopyOnWriteArrayList<BiConsumer<Configuration, Configuration>>();
+    private static final LongAdder reloads = new LongAdder();
+    private static final LongAdder reloadFailures = new LongAdder();
+    private static ScheduledExecutorService watcher;
+    private static String directoryStamp;
+
+    static {
+        ClientMetrics.counter("config.reloads", "Times a changed configuration was published.", reloads::sum);
+        ClientMetrics.counter("config.reloadFailures", "Changed configurations that were not published because they were incomplete.", reloadFailures::sum);
+    }
+
+    private final String channel;
+    private final String contractId;
+    private final String connectionProfile;
+    private final String walletProfile;
+    private final String walletCredentials;
+    private final String defaultIdentity;
+    private final int listPageSize;
+    private final int batchWindow;
+    private final boolean commitWait;
+
+    Configuration(String channel, String contractId, String connectionProfile, String walletProfile,
+            String walletCredentials, String defaultIdentity, int listPageSize, int batchWindow, boolean commitWait) {
+        this.channel = channel;
+        this.contractId = contractId;
+        this.connectionProfile = connectionProfile;
+        this.walletProfile = walletProfile;
+        this.walletCredentials = walletCredentials;
+        this.defaultIdentity = defaultIdentity;
+        this.listPageSize = listPageSize;
+        this.batchWindow = batchWindow;
+        this.commitWait = commitWait;
+    }
+
+    public static Configuration current() {
+        Configuration configuration = current;
+        return configuration != null ? configuration : read();
+    }
+
+    // Reads every setting of the snapshot from its sources.
+    public static Configuration read() {
+        return new Configuration(ConnectionConfiguration.getChannel(), ConnectionConfiguration.getContractId(),
+                ConnectionConfiguration.getConnectionProfile(), ConnectionConfiguration.getWalletProfile(),
+                ConnectionConfiguration.getWalletCredentials(), ConnectionConfiguration.getFabricDefaultIdentity(),
+                ConnectionConfiguration.getListPageSize(), ConnectionConfiguration.getBatchWindow(),
+                ConnectionConfiguration.isCommitWait());
+    }
+
+    // Publishes the first snapshot and starts watching FABRIC_CONFIG_DIR, if set.
+    public static synchronized void start() {
+        if (current != null) {
+            return;
+        }
+        String dir = ConnectionConfiguration.getConfigDir();
+        Path directory = dir != null && !dir.trim().isEmpty() ? Paths.get(dir.trim()) : null;
+        if (directory != null) {
+            directoryStamp = stamp(directory);
+        }
+        Configuration configuration = read();
+        for (String problem : configuration.getProblems()) {
+            LOGGER.severe("Configuration incomplete: " + problem);
+        }
+        current = configuration;
+        long refresh = ConnectionConfiguration.getConfigRefresh();
+        if (directory != null && refresh > 0) {
+            watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "config-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watcher.scheduleWithFixedDelay(() -> reloadIfChanged(directory), refresh, refresh, TimeUnit.SECONDS);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    // Called with the previous and the new snapshot each time a changed configuration is published.
+    public static void addListener(BiConsumer<Configuration, Configuration> listener) {
+        listeners.add(listener);
+    }
+
+    static void reloadIfChanged(Path directory) {
+        String stamp = stamp(directory);
+        if (stamp.equals(directoryStamp)) {
+            return;
+        }
+        directoryStamp = stamp;
+        publish(read());
+    }
+
+    // Replaces the current snapshot unless the new one is incomplete, returning whether it did.
+    static boolean publish(Configuration next) {
+        Configuration previous;
+        synchronized (Configuration.class) {
+            previous = current;
+            if (next.equals(previous)) {
+                return false;
+            }
+            List<String> problems = next.getProblems();
+            if (!problems.isEmpty()) {
+                reloadFailures.increment();
+                LOGGER.warning("Not applying the changed configuration, keeping the previous one: " + problems);
+                return false;
+            }
+            current = next;
+        }
+        reloads.increment();
+        LOGGER.info("Configuration changed, applying it.");
+        for (BiConsumer<Configuration, Configuration> listener : listeners) {
+            try {
+                listener.accept(previous, next);
+            } catch (RuntimeException e) {
+                LOGGER.warning("Error applying the changed configuration: " + e.toString());
+            }
+        }
+        return true;
+    }
+
+    // Names, sizes and modification times of the directory's files; ConfigMap mounts swap a hidden ..data link.
+    private static String stamp(Path directory) {
+        StringBuilder stamp = new StringBuilder();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, file -> !file.getFileName().toString().startsWith("."))) {
+            List<Path> sorted = new ArrayList<Path>();
+            files.forEach(sorted::add);
+            Collections.sort(sorted);
+            for (Path file : sorted) {
+                if (Files.isRegularFile(file)) {
+                    stamp.append(file.getFileName()).append(':').append(Files.size(file)).append(':')
+                            .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not check the configuration directory " + directory + ": " + e.toString());
+            return directoryStamp != null ? directoryStamp : "";
+        }
+        return stamp.toString();
+    }
+
+    // Required settings that are missing, empty when the configuration can serve requests.
+    public List<String> getProblems() {
+        List<String> problems = new ArrayList<String>();
+        if (channel == null || channel.isEmpty()) {
+            problems.add("Channel not provided.");
+        }
+        if (connectionProfile == null || connectionProfile.isEmpty()) {
+            problems.add("Connection profile not provided.");
+        }
+        if (contractId == null || contractId.isEmpty()) {
+            problems.add("Contract id not provided.");
+        }
+        return problems;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getContractId() {
+        return contractId;
+    }
+
+    public String getConnectionProfile() {
+        return connectionProfile;
+    }
+
+    public String getWalletProfile() {
+        return walletProfile;
+    }
+
+    public String getWalletCredentials() {
+        return walletCredentials;
+    }
+
+    public String getDefaultIdentity() {
+        return defaultIdentity;
+    }
+
+    public int getListPageSize() {
+        return listPageSize;
+    }
+
+    public int getBatchWindow() {
+        return batchWindow;
+    }
+
+    public boolean isCommitWait() {
+        return commitWait;
+    }
+
+    // True if gateways built with the other configuration connect differently.
+    public boolean isGatewayChanged(Configuration other) {
+        return !Objects.equals(connectionProfile, other.connectionProfile) || isWalletChanged(other);
+    }
+
+    public boolean isWalletChanged(Configuration other) {
+        return !Objects.equals(walletProfile, other.walletProfile) || !Objects.equals(walletCredentials, other.walletCredentials);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Configuration)) {
+            return false;
+        }
+        Configuration that = (Configuration) other;
+        return Objects.equals(channel, that.channel) && Objects.equals(contractId, that.contractId)
+                && !isGatewayChanged(that) && Objects.equals(defaultIdentity, that.defaultIdentity)
+                && listPageSize == that.listPageSize && batchWindow == that.batchWindow && commitWait == that.commitWait;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(channel, contractId, connectionProfile, walletProfile, walletCredentials, defaultIdentity,
+                listPageSize, batchWindow, commitWait);
+    }
+
+    @Override
+    public String toString() {
+        // Leaves out the profiles and credentials, which may hold secrets.
+        return "channel=" + channel + ", contractId=" + contractId + ", defaultIdentity=" + defaultIdentity
+                + ", listPageSize=" + listPageSize + ", batchWindow=" + batchWindow + ", commitWait=" + commitWait;
+    }
+}
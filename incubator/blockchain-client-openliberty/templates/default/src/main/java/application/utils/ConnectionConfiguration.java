@@ -1,6 +1,27 @@
 package application.utils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Reads and checks the service's settings.
+ *
+ * Each setting is looked up by its variable name, first as a file of that name
+ * in FABRIC_CONFIG_DIR, for example a mounted ConfigMap or secret, then in
+ * MicroProfile Config, which includes system properties and the environment,
+ * and finally in the environment itself. Code serving requests should use the
+ * Configuration snapshot rather than calling these getters.
+ */
 public class ConnectionConfiguration {
+    public static final Logger LOGGER = Logger.getLogger(ConnectionConfiguration.class.getName());
 
     private static final String FABRIC_CHANNEL_ENV_VAR = "FABRIC_CHANNEL";
     private static final String FABRIC_CONTRACT_ENV_VAR = "FABRIC_CONTRACT";
@@ -8,22 +29,99 @@ public class ConnectionConfiguration {
     private static final String FABRIC_WALLET_PROFILE_ENV_VAR = "FABRIC_WALLET_PROFILE";
     private static final String FABRIC_WALLET_CREDENTIALS_ENV_VAR = "FABRIC_WALLET_CREDENTIALS";
     private static final String FABRIC_DEFAULT_IDENTITY_ENV_VAR = "FABRIC_DEFAULT_IDENTITY";
+    private static final String FABRIC_GATEWAY_POOL_MAX_SIZE_ENV_VAR = "FABRIC_GATEWAY_POOL_MAX_SIZE";
+    private static final String FABRIC_GATEWAY_POOL_IDLE_TIMEOUT_ENV_VAR = "FABRIC_GATEWAY_POOL_IDLE_TIMEOUT";
+    private static final String FABRIC_GATEWAY_POOL_CLOSE_DELAY_ENV_VAR = "FABRIC_GATEWAY_POOL_CLOSE_DELAY";
+    private static final String FABRIC_SUBMIT_THREADS_ENV_VAR = "FABRIC_SUBMIT_THREADS";
+    private static final String FABRIC_SUBMIT_QUEUE_SIZE_ENV_VAR = "FABRIC_SUBMIT_QUEUE_SIZE";
+    private static final String FABRIC_SUBMIT_TIMEOUT_ENV_VAR = "FABRIC_SUBMIT_TIMEOUT";
+    private static final String FABRIC_BATCH_WINDOW_ENV_VAR = "FABRIC_BATCH_WINDOW";
+    private static final String FABRIC_ASSET_CACHE_MAX_SIZE_ENV_VAR = "FABRIC_ASSET_CACHE_MAX_SIZE";
+    private static final String FABRIC_ASSET_CACHE_TTL_ENV_VAR = "FABRIC_ASSET_CACHE_TTL";
+    private static final String FABRIC_LEDGER_PROFILE_ENV_VAR = "FABRIC_LEDGER_PROFILE";
+    private static final String FABRIC_COMMIT_WAIT_ENV_VAR = "FABRIC_COMMIT_WAIT";
+    private static final String FABRIC_TRANSACTION_STATUS_MAX_SIZE_ENV_VAR = "FABRIC_TRANSACTION_STATUS_MAX_SIZE";
+    private static final String FABRIC_READ_COALESCING_ENV_VAR = "FABRIC_READ_COALESCING";
+    private static final String FABRIC_LIST_PAGE_SIZE_ENV_VAR = "FABRIC_LIST_PAGE_SIZE";
+    private static final String FABRIC_REQUEST_LOG_SAMPLE_ENV_VAR = "FABRIC_REQUEST_LOG_SAMPLE";
+    private static final String FABRIC_REQUEST_LOG_PAYLOAD_MAX_ENV_VAR = "FABRIC_REQUEST_LOG_PAYLOAD_MAX";
+    private static final String FABRIC_REQUEST_LOG_ASYNC_ENV_VAR = "FABRIC_REQUEST_LOG_ASYNC";
+    private static final String FABRIC_AUTH_PROFILE_ENV_VAR = "FABRIC_AUTH_PROFILE";
+    private static final String FABRIC_IDENTITY_MAP_ENV_VAR = "FABRIC_IDENTITY_MAP";
+    private static final String FABRIC_IDENTITY_MAP_REFRESH_ENV_VAR = "FABRIC_IDENTITY_MAP_REFRESH";
+    private static final String FABRIC_CONFIG_DIR_ENV_VAR = "FABRIC_CONFIG_DIR";
+    private static final String FABRIC_CONFIG_REFRESH_ENV_VAR = "FABRIC_CONFIG_REFRESH";
+    private static final String FABRIC_READINESS_IDENTITY_ENV_VAR = "FABRIC_READINESS_IDENTITY";
+    private static final String FABRIC_READINESS_INTERVAL_ENV_VAR = "FABRIC_READINESS_INTERVAL";
+    private static final String FABRIC_READINESS_TIMEOUT_ENV_VAR = "FABRIC_READINESS_TIMEOUT";
+    private static final String FABRIC_READINESS_MAX_AGE_ENV_VAR = "FABRIC_READINESS_MAX_AGE";
+    private static final String FABRIC_LIVENESS_SUBMIT_AGE_ENV_VAR = "FABRIC_LIVENESS_SUBMIT_AGE";
+    private static final String FABRIC_LIVENESS_QUEUE_DEPTH_ENV_VAR = "FABRIC_LIVENESS_QUEUE_DEPTH";
+    private static final String FABRIC_LIVENESS_HEAP_PERCENT_ENV_VAR = "FABRIC_LIVENESS_HEAP_PERCENT";
+    private static final String FABRIC_WARMUP_IDENTITIES_ENV_VAR = "FABRIC_WARMUP_IDENTITIES";
+    private static final String FABRIC_WARMUP_THREADS_ENV_VAR = "FABRIC_WARMUP_THREADS";
+    private static final String FABRIC_WARMUP_TIMEOUT_ENV_VAR = "FABRIC_WARMUP_TIMEOUT";
+    private static final String FABRIC_READ_BULKHEAD_ENV_VAR = "FABRIC_READ_BULKHEAD";
+    private static final String FABRIC_WRITE_BULKHEAD_ENV_VAR = "FABRIC_WRITE_BULKHEAD";
+    private static final String FABRIC_READ_TIMEOUT_ENV_VAR = "FABRIC_READ_TIMEOUT";
+    private static final String FABRIC_WRITE_TIMEOUT_ENV_VAR = "FABRIC_WRITE_TIMEOUT";
+    private static final String FABRIC_CIRCUIT_VOLUME_ENV_VAR = "FABRIC_CIRCUIT_VOLUME";
+    private static final String FABRIC_CIRCUIT_FAILURE_PERCENT_ENV_VAR = "FABRIC_CIRCUIT_FAILURE_PERCENT";
+    private static final String FABRIC_CIRCUIT_DELAY_ENV_VAR = "FABRIC_CIRCUIT_DELAY";
+    private static final String FABRIC_HEDGE_PERCENTILE_ENV_VAR = "FABRIC_HEDGE_PERCENTILE";
+    private static final String FABRIC_HEDGE_MIN_DELAY_ENV_VAR = "FABRIC_HEDGE_MIN_DELAY";
+    private static final String FABRIC_HEDGE_BUDGET_PERCENT_ENV_VAR = "FABRIC_HEDGE_BUDGET_PERCENT";
+    private static final String FABRIC_PEER_SELECTION_ENV_VAR = "FABRIC_PEER_SELECTION";
+    private static final String FABRIC_PEER_SCORE_HALF_LIFE_ENV_VAR = "FABRIC_PEER_SCORE_HALF_LIFE";
     private static final String DEFAULT_WALLET_PROFILE = "{\"type\":\"IN_MEMORY\"}";
+    private static final String DEFAULT_LEDGER_PROFILE = "{\"type\":\"FABRIC\"}";
+    private static final String DEFAULT_AUTH_PROFILE = "{\"type\":\"NONE\"}";
+    private static final int DEFAULT_GATEWAY_POOL_MAX_SIZE = 100;
+    private static final long DEFAULT_GATEWAY_POOL_IDLE_TIMEOUT = 1800;
+    private static final long DEFAULT_GATEWAY_POOL_CLOSE_DELAY = 60;
+    private static final int DEFAULT_SUBMIT_THREADS = 64;
+    private static final int DEFAULT_SUBMIT_QUEUE_SIZE = 1024;
+    private static final long DEFAULT_SUBMIT_TIMEOUT = 120;
+    private static final int DEFAULT_BATCH_WINDOW = 16;
+    private static final int DEFAULT_ASSET_CACHE_MAX_SIZE = 10000;
+    private static final long DEFAULT_ASSET_CACHE_TTL = 300;
+    private static final int DEFAULT_TRANSACTION_STATUS_MAX_SIZE = 10000;
+    private static final int DEFAULT_LIST_PAGE_SIZE = 100;
+    private static final int DEFAULT_REQUEST_LOG_SAMPLE = 1;
+    private static final long DEFAULT_IDENTITY_MAP_REFRESH = 10;
+    private static final long DEFAULT_CONFIG_REFRESH = 10;
+    private static final long DEFAULT_READINESS_INTERVAL = 10;
+    private static final long DEFAULT_READINESS_TIMEOUT = 5;
+    private static final long DEFAULT_READINESS_MAX_AGE = 30;
+    private static final int DEFAULT_LIVENESS_HEAP_PERCENT = 95;
+    private static final int DEFAULT_WARMUP_THREADS = 8;
+    private static final long DEFAULT_WARMUP_TIMEOUT = 120;
+    private static final int DEFAULT_READ_BULKHEAD = 64;
+    private static final long DEFAULT_READ_TIMEOUT = 30;
+    private static final int DEFAULT_CIRCUIT_VOLUME = 20;
+    private static final int DEFAULT_CIRCUIT_FAILURE_PERCENT = 50;
+    private static final long DEFAULT_CIRCUIT_DELAY = 5;
+    private static final long DEFAULT_HEDGE_MIN_DELAY = 5;
+    private static final int DEFAULT_HEDGE_BUDGET_PERCENT = 10;
+    private static final long DEFAULT_PEER_SCORE_HALF_LIFE = 30;
+
+    private static volatile boolean microProfileConfigResolved = false;
+    private static volatile Config microProfileConfig = null;
 
     public static String getChannel() {
-        return System.getenv(FABRIC_CHANNEL_ENV_VAR);
+        return getValue(FABRIC_CHANNEL_ENV_VAR);
     } 
 
     public static String getContractId() {
-        return System.getenv(FABRIC_CONTRACT_ENV_VAR);
+        return getValue(FABRIC_CONTRACT_ENV_VAR);
     } 
 
     public static String getConnectionProfile() {
-        return System.getenv(FABRIC_CONN_PROFILE_ENV_VAR);
+        return getValue(FABRIC_CONN_PROFILE_ENV_VAR);
     }
 
     public static String getWalletProfile() {
-        String walletProfile = System.getenv(FABRIC_WALLET_PROFILE_ENV_VAR);
+        String walletProfile = getValue(FABRIC_WALLET_PROFILE_ENV_VAR);
         if (walletProfile == null || walletProfile == "") {
             walletProfile = DEFAULT_WALLET_PROFILE;
         }
@@ -31,10 +129,314 @@ public class ConnectionConfiguration {
     }
 
     public static String getWalletCredentials() {
-        return System.getenv(FABRIC_WALLET_CREDENTIALS_ENV_VAR);    
+        return getValue(FABRIC_WALLET_CREDENTIALS_ENV_VAR);    
     }
 
     public static String getFabricDefaultIdentity() {
-        return System.getenv(FABRIC_DEFAULT_IDENTITY_ENV_VAR);
+        return getValue(FABRIC_DEFAULT_IDENTITY_ENV_VAR);
     }    
+
+    // Maximum number of connected gateways kept in the pool, 0 for unbounded.
+    public static int getGatewayPoolMaxSize() {
+        return (int) getLongValue(FABRIC_GATEWAY_POOL_MAX_SIZE_ENV_VAR, DEFAULT_GATEWAY_POOL_MAX_SIZE);
+    }
+
+    // Seconds a gateway may go unused before it is closed, 0 to never expire.
+    public static long getGatewayPoolIdleTimeout() {
+        return getLongValue(FABRIC_GATEWAY_POOL_IDLE_TIMEOUT_ENV_VAR, DEFAULT_GATEWAY_POOL_IDLE_TIMEOUT);
+    }
+
+    // Seconds an evicted gateway stays open so requests already using it can finish.
+    public static long getGatewayPoolCloseDelay() {
+        return getLongValue(FABRIC_GATEWAY_POOL_CLOSE_DELAY_ENV_VAR, DEFAULT_GATEWAY_POOL_CLOSE_DELAY);
+    }
+
+    // Threads available to wait on submitted transactions, at least 1.
+    public static int getSubmitThreads() {
+        return (int) Math.max(1, getLongValue(FABRIC_SUBMIT_THREADS_ENV_VAR, DEFAULT_SUBMIT_THREADS));
+    }
+
+    // Submissions allowed to queue for a thread before new ones are rejected.
+    public static int getSubmitQueueSize() {
+        return (int) getLongValue(FABRIC_SUBMIT_QUEUE_SIZE_ENV_VAR, DEFAULT_SUBMIT_QUEUE_SIZE);
+    }
+
+    // Seconds an asynchronous submit request may take before it is answered with a timeout.
+    public static long getSubmitTimeout() {
+        return getLongValue(FABRIC_SUBMIT_TIMEOUT_ENV_VAR, DEFAULT_SUBMIT_TIMEOUT);
+    }
+
+    // Operations of one batch request that may be in flight at the same time, at least 1.
+    public static int getBatchWindow() {
+        return (int) Math.max(1, getLongValue(FABRIC_BATCH_WINDOW_ENV_VAR, DEFAULT_BATCH_WINDOW));
+    }
+
+    // Asset values kept by the read cache, 0 disables it.
+    public static int getAssetCacheMaxSize() {
+        return (int) getLongValue(FABRIC_ASSET_CACHE_MAX_SIZE_ENV_VAR, DEFAULT_ASSET_CACHE_MAX_SIZE);
+    }
+
+    // Seconds a cached asset value may be served for, 0 to rely on block events only.
+    public static long getAssetCacheTtl() {
+        return getLongValue(FABRIC_ASSET_CACHE_TTL_ENV_VAR, DEFAULT_ASSET_CACHE_TTL);
+    }
+
+    // Selects the Fabric network or the in-process LocalLedger stand-in.
+    public static String getLedgerProfile() {
+        String ledgerProfile = getValue(FABRIC_LEDGER_PROFILE_ENV_VAR);
+        if (ledgerProfile == null || ledgerProfile.trim().isEmpty()) {
+            ledgerProfile = DEFAULT_LEDGER_PROFILE;
+        }
+        return ledgerProfile;
+    }
+
+    // Whether create, update and delete wait for the commit unless a request says otherwise.
+    public static boolean isCommitWait() {
+        return getBooleanValue(FABRIC_COMMIT_WAIT_ENV_VAR, true);
+    }
+
+    // Submitted transactions whose status is kept for GET /myassets/transactions/{txId}, 0 disables it.
+    public static int getTransactionStatusMaxSize() {
+        return (int) getLongValue(FABRIC_TRANSACTION_STATUS_MAX_SIZE_ENV_VAR, DEFAULT_TRANSACTION_STATUS_MAX_SIZE);
+    }
+
+    // Whether concurrent reads of the same asset by the same identity share one peer query.
+    public static boolean isReadCoalescing() {
+        return getBooleanValue(FABRIC_READ_COALESCING_ENV_VAR, true);
+    }
+
+    // Assets fetched from the ledger per query when listing them, at least 1.
+    public static int getListPageSize() {
+        return (int) Math.max(1, getLongValue(FABRIC_LIST_PAGE_SIZE_ENV_VAR, DEFAULT_LIST_PAGE_SIZE));
+    }
+
+    // Requests logged, one in every N; 0 logs failed requests only.
+    public static int getRequestLogSample() {
+        return (int) getLongValue(FABRIC_REQUEST_LOG_SAMPLE_ENV_VAR, DEFAULT_REQUEST_LOG_SAMPLE);
+    }
+
+    // Characters of each ledger payload included in the request log, 0 to log only its size.
+    public static int getRequestLogPayloadMax() {
+        return (int) getLongValue(FABRIC_REQUEST_LOG_PAYLOAD_MAX_ENV_VAR, 0);
+    }
+
+    public static boolean isRequestLogAsync() {
+        return getBooleanValue(FABRIC_REQUEST_LOG_ASYNC_ENV_VAR, true);
+    }
+
+    // Selects how the bearer tokens of incoming requests are verified, if at all.
+    public static String getAuthProfile() {
+        String authProfile = getValue(FABRIC_AUTH_PROFILE_ENV_VAR);
+        if (authProfile == null || authProfile.trim().isEmpty()) {
+            authProfile = DEFAULT_AUTH_PROFILE;
+        }
+        return authProfile;
+    }
+
+    // Path of the file mapping principals to Fabric identities, null to map all to the default identity.
+    public static String getIdentityMap() {
+        return getValue(FABRIC_IDENTITY_MAP_ENV_VAR);
+    }
+
+    // Seconds between checks of the identity map file for changes, 0 disables reloading.
+    public static long getIdentityMapRefresh() {
+        return getLongValue(FABRIC_IDENTITY_MAP_REFRESH_ENV_VAR, DEFAULT_IDENTITY_MAP_REFRESH);
+    }
+
+    // Directory holding one file per setting, named after its variable, null when settings come from elsewhere.
+    public static String getConfigDir() {
+        return System.getenv(FABRIC_CONFIG_DIR_ENV_VAR);
+    }
+
+    // Seconds between checks of FABRIC_CONFIG_DIR for changed settings, 0 disables reloading.
+    public static long getConfigRefresh() {
+        return getLongValue(FABRIC_CONFIG_REFRESH_ENV_VAR, DEFAULT_CONFIG_REFRESH);
+    }
+
+    // Identity the readiness probe connects as, null to use the default identity.
+    public static String getReadinessIdentity() {
+        return getValue(FABRIC_READINESS_IDENTITY_ENV_VAR);
+    }
+
+    // Seconds between background checks that the Fabric network can be reached, at least 1.
+    public static long getReadinessInterval() {
+        return Math.max(1, getLongValue(FABRIC_READINESS_INTERVAL_ENV_VAR, DEFAULT_READINESS_INTERVAL));
+    }
+
+    // Seconds to wait for the peers to answer, and for an orderer connection, when checking that they can be reached.
+    public static long getReadinessTimeout() {
+        return Math.max(1, getLongValue(FABRIC_READINESS_TIMEOUT_ENV_VAR, DEFAULT_READINESS_TIMEOUT));
+    }
+
+    // Seconds the pod stays ready after the Fabric network was last reached, at least one probe interval and timeout.
+    public static long getReadinessMaxAge() {
+        long maxAge = getLongValue(FABRIC_READINESS_MAX_AGE_ENV_VAR, DEFAULT_READINESS_MAX_AGE);
+        long minAge = getReadinessInterval() + getReadinessTimeout();
+        if (maxAge < minAge) {
+            LOGGER.warning(FABRIC_READINESS_MAX_AGE_ENV_VAR + " of " + maxAge + " is less than the readiness interval plus timeout, using " + minAge);
+            return minAge;
+        }
+        return maxAge;
+    }
+
+    // Seconds a submit may be outstanding before the pod counts as wedged, by default twice the submit timeout.
+    public static long getLivenessSubmitAge() {
+        return getLongValue(FABRIC_LIVENESS_SUBMIT_AGE_ENV_VAR, 2 * getSubmitTimeout());
+    }
+
+    // Submits waiting for a thread at which the pod counts as wedged, 0 to not check the queue.
+    public static int getLivenessQueueDepth() {
+        return (int) getLongValue(FABRIC_LIVENESS_QUEUE_DEPTH_ENV_VAR, 0);
+    }
+
+    // Percentage of the heap still in use after garbage collection at which the pod counts as wedged, 0 to not check it.
+    public static int getLivenessHeapPercent() {
+        return (int) getLongValue(FABRIC_LIVENESS_HEAP_PERCENT_ENV_VAR, DEFAULT_LIVENESS_HEAP_PERCENT);
+    }
+
+    // Comma separated identities to connect at startup, * for every wallet identity, unset to not warm up.
+    public static String getWarmupIdentities() {
+        return getValue(FABRIC_WARMUP_IDENTITIES_ENV_VAR);
+    }
+
+    public static int getWarmupThreads() {
+        return (int) Math.max(1, getLongValue(FABRIC_WARMUP_THREADS_ENV_VAR, DEFAULT_WARMUP_THREADS));
+    }
+
+    // Seconds the pod waits for the warm-up before becoming ready without the identities still connecting.
+    public static long getWarmupTimeout() {
+        return getLongValue(FABRIC_WARMUP_TIMEOUT_ENV_VAR, DEFAULT_WARMUP_TIMEOUT);
+    }
+
+    // Evaluates allowed to run at once, 0 for no limit.
+    public static int getReadBulkhead() {
+        return (int) getLongValue(FABRIC_READ_BULKHEAD_ENV_VAR, DEFAULT_READ_BULKHEAD);
+    }
+
+    // Submits allowed to run at once, 0 for no limit, by default the number of submit threads.
+    public static int getWriteBulkhead() {
+        return (int) getLongValue(FABRIC_WRITE_BULKHEAD_ENV_VAR, getSubmitThreads());
+    }
+
+    // Seconds an evaluate may run before it is interrupted, 0 for no timeout.
+    public static long getReadTimeout() {
+        return getLongValue(FABRIC_READ_TIMEOUT_ENV_VAR, DEFAULT_READ_TIMEOUT);
+    }
+
+    // Seconds a submit may run before it is interrupted, 0 for no timeout, by default time to endorse plus the commit wait.
+    public static long getWriteTimeout() {
+        return getLongValue(FABRIC_WRITE_TIMEOUT_ENV_VAR, getReadTimeout() + getSubmitTimeout());
+    }
+
+    // Latest calls the circuit breaker judges the ledger's health on, 0 to not break the circuit.
+    public static int getCircuitVolume() {
+        return (int) getLongValue(FABRIC_CIRCUIT_VOLUME_ENV_VAR, DEFAULT_CIRCUIT_VOLUME);
+    }
+
+    public static int getCircuitFailurePercent() {
+        return (int) Math.max(1, Math.min(100, getLongValue(FABRIC_CIRCUIT_FAILURE_PERCENT_ENV_VAR, DEFAULT_CIRCUIT_FAILURE_PERCENT)));
+    }
+
+    // Seconds an open circuit rejects calls before letting them through again.
+    public static long getCircuitDelay() {
+        return getLongValue(FABRIC_CIRCUIT_DELAY_ENV_VAR, DEFAULT_CIRCUIT_DELAY);
+    }
+
+    // Percentile of recent evaluate latencies after which an evaluate is also sent to a second peer, 0 to not hedge.
+    public static int getHedgePercentile() {
+        return (int) Math.min(99, getLongValue(FABRIC_HEDGE_PERCENTILE_ENV_VAR, 0));
+    }
+
+    // Milliseconds an evaluate always waits for its first peer before being hedged.
+    public static long getHedgeMinDelay() {
+        return getLongValue(FABRIC_HEDGE_MIN_DELAY_ENV_VAR, DEFAULT_HEDGE_MIN_DELAY);
+    }
+
+    // Hedged evaluates allowed as a percentage of all evaluates.
+    public static int getHedgeBudgetPercent() {
+        return (int) Math.min(100, getLongValue(FABRIC_HEDGE_BUDGET_PERCENT_ENV_VAR, DEFAULT_HEDGE_BUDGET_PERCENT));
+    }
+
+    // True to send evaluates to the peers measured fastest and healthiest, rather than as the SDK chooses.
+    public static boolean isLatencyPeerSelection() {
+        String selection = getValue(FABRIC_PEER_SELECTION_ENV_VAR);
+        if (selection == null || selection.trim().isEmpty() || selection.trim().equalsIgnoreCase("DEFAULT")) {
+            return false;
+        }
+        if (!selection.trim().equalsIgnoreCase("LATENCY")) {
+            LOGGER.warning("Invalid value for " + FABRIC_PEER_SELECTION_ENV_VAR + ": " + selection + ", using DEFAULT");
+            return false;
+        }
+        return true;
+    }
+
+    // Seconds after which an unused peer's latency and error scores count half as much.
+    public static long getPeerScoreHalfLife() {
+        return getLongValue(FABRIC_PEER_SCORE_HALF_LIFE_ENV_VAR, DEFAULT_PEER_SCORE_HALF_LIFE);
+    }
+
+    private static String getValue(String name) {
+        String dir = getConfigDir();
+        if (dir != null && !dir.trim().isEmpty()) {
+            Path file = Paths.get(dir.trim(), name);
+            if (Files.isRegularFile(file)) {
+                try {
+                    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+                } catch (IOException e) {
+                    LOGGER.warning("Could not read " + file + ": " + e.toString());
+                }
+            }
+        }
+        Config config = getMicroProfileConfig();
+        if (config != null) {
+            Optional<String> value = config.getOptionalValue(name, String.class);
+            if (value.isPresent()) {
+                return value.get();
+            }
+        }
+        return System.getenv(name);
+    }
+
+    private static Config getMicroProfileConfig() {
+        if (!microProfileConfigResolved) {
+            try {
+                microProfileConfig = ConfigProvider.getConfig();
+            } catch (RuntimeException | LinkageError e) {
+                // No MicroProfile Config implementation, as in unit tests.
+                microProfileConfig = null;
+            }
+            microProfileConfigResolved = true;
+        }
+        return microProfileConfig;
+    }
+
+    private static boolean getBooleanValue(String envVar, boolean defaultValue) {
+        String value = getValue(envVar);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        if (!value.trim().equalsIgnoreCase("true") && !value.trim().equalsIgnoreCase("false")) {
+            LOGGER.warning("Invalid value for " + envVar + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private static long getLongValue(String envVar, long defaultValue) {
+        String value = getValue(envVar);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < 0) {
+                LOGGER.warning("Negative value for " + envVar + ": " + value + ", using default " + defaultValue);
+                return defaultValue;
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid value for " + envVar + ": " + value + ", using default " + defaultValue);
+            return defaultValue;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package application.utils;
+
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Destroyed;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+
+@ApplicationScoped
+public class ConnectionLifecycle {
+    public static final Logger LOGGER = Logger.getLogger(ConnectionLifecycle.class.getName());
+
+    public void init(@Observes @Initialized(ApplicationScoped.class) Object init) {
+        Configuration.start();
+        try {
+            WalletManager.getSharedWallet();
+        } catch (IdentityException e) {
+            // Not fatal, the first gateway build tries again and reports the error to its caller.
+            LOGGER.severe("Could not build the wallet at startup: " + e.toString());
+        }
+        GatewayWarmup.getDefault().start();
+        ConnectivityProbe.getDefault().start();
+    }
+
+    public void destroy(@Observes @Destroyed(ApplicationScoped.class) Object destroyed) {
+        ConnectivityProbe.getDefault().stop();
+        GatewayWarmup.getDefault().stop();
+        Configuration.stop();
+        ConnectionManager.shutdown();
+    }
+}
@@ -1,12 +1,14 @@
 package application.utils;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
 import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.DefaultCommitHandlers;
 import org.hyperledger.fabric.gateway.Gateway;
 import org.hyperledger.fabric.gateway.GatewayException;
 import org.hyperledger.fabric.gateway.GatewayRuntimeException;
@@ -15,78 +17,229 @@ import org.hyperledger.fabric.gateway.Wallet;
 import org.hyperledger.fabric.gateway.Wallet.Identity;
 import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
 
+import application.metrics.ClientMetrics;
+import application.metrics.RequestMetrics;
+
 public class ConnectionManager {
     public static final Logger LOGGER = Logger.getLogger(ConnectionManager.class.getName());
-    private static HashMap<String, Gateway> gateways = new HashMap<String, Gateway>();
+    private static final ContractCache contracts = new ContractCache();
+    private static final AssetCache assets = new AssetCache(ConnectionConfiguration.getAssetCacheMaxSize(),
+            ConnectionConfiguration.getAssetCacheTtl(), TimeUnit.SECONDS);
+    private static final ReadCoalescer reads = new ReadCoalescer(ConnectionConfiguration.isReadCoalescing());
+    private static final TransactionStatusIndex transactions = new TransactionStatusIndex(
+            ConnectionConfiguration.getTransactionStatusMaxSize());
+    private static final GatewayRegistry gateways = new GatewayRegistry(ConnectionManager::createGateway,
+            ConnectionManager::gatewayRemoved, ConnectionConfiguration.getGatewayPoolMaxSize(),
+            ConnectionConfiguration.getGatewayPoolIdleTimeout(), ConnectionConfiguration.getGatewayPoolCloseDelay(),
+            TimeUnit.SECONDS);
+
+    static {
+        ClientMetrics.gauge("gateway.pool.size", "Number of connected gateways in the pool.", MetricUnits.NONE, gateways::size);
+        ClientMetrics.gauge("gateway.pool.maxSize", "Configured gateway pool limit, 0 when unbounded.", MetricUnits.NONE, gateways::getMaxSize);
+        ClientMetrics.counter("gateway.pool.evictions", "Gateways removed from the pool, by reason.", gateways::getIdleEvictions, new Tag("reason", "idle"));
+        ClientMetrics.counter("gateway.pool.evictions", "Gateways removed from the pool, by reason.", gateways::getSizeEvictions, new Tag("reason", "size"));
+        ClientMetrics.counter("gateway.pool.evictions", "Gateways removed from the pool, by reason.", gateways::getInvalidations, new Tag("reason", "invalidated"));
+        ClientMetrics.counter("gateway.pool.closed", "Evicted gateways that have been closed.", gateways::getClosed);
+        ClientMetrics.counter("contract.cache.hits", "Contract handle lookups served from the cache.", contracts::getHits);
+        ClientMetrics.counter("contract.cache.misses", "Contract handle lookups that had to resolve the network and contract.", contracts::getMisses);
+        ClientMetrics.gauge("asset.cache.size", "Number of asset values in the read cache.", MetricUnits.NONE, assets::size);
+        ClientMetrics.gauge("asset.cache.maxSize", "Configured asset read cache limit, 0 when disabled.", MetricUnits.NONE, assets::getMaxSize);
+        ClientMetrics.gauge("asset.cache.hitRatio", "Share of asset reads served from the cache.", MetricUnits.NONE, assets::getHitRatio);
+        ClientMetrics.gauge("asset.cache.ttl", "Longest time a cached asset value is served for, 0 when only block events expire it.", MetricUnits.SECONDS, () -> assets.getTtl(TimeUnit.SECONDS));
+        ClientMetrics.gauge("asset.cache.invalidation.lastLag", "Time from the last invalidating transaction being proposed to the cache hearing of its block.", MetricUnits.MILLISECONDS, assets::getLastInvalidationLagMillis);
+        ClientMetrics.counter("asset.cache.hits", "Asset reads served from the cache.", assets::getHits);
+        ClientMetrics.counter("asset.cache.misses", "Asset reads that had to evaluate on a peer.", assets::getMisses);
+        ClientMetrics.counter("asset.cache.invalidations", "Cached asset values dropped because the asset was written.", assets::getInvalidations);
+        ClientMetrics.counter("asset.cache.evictions", "Cached asset values dropped to stay within the cache limit.", assets::getEvictions);
+        ClientMetrics.gauge("asset.read.inFlight", "Distinct asset reads waiting on a peer query.", MetricUnits.NONE, reads::getInFlight);
+        ClientMetrics.counter("asset.read.queries", "Peer queries sent for asset reads that missed the cache.", reads::getQueries);
+        ClientMetrics.counter("asset.read.coalesced", "Asset reads answered by a concurrent identical read's peer query.", reads::getCoalesced);
+        ClientMetrics.gauge("transaction.status.size", "Number of transactions in the status index.", MetricUnits.NONE, transactions::size);
+        ClientMetrics.counter("transaction.status.outcomes", "Transactions by the outcome seen for their commit.", transactions::getCommitted, new Tag("status", TransactionStatus.COMMITTED));
+        ClientMetrics.counter("transaction.status.outcomes", "Transactions by the outcome seen for their commit.", transactions::getInvalid, new Tag("status", TransactionStatus.INVALID));
+        ClientMetrics.counter("transaction.status.outcomes", "Transactions by the outcome seen for their commit.", transactions::getUnknown, new Tag("status", TransactionStatus.UNKNOWN));
+        ClientMetrics.counter("transaction.status.evictions", "Transactions dropped from the status index to stay within its limit.", transactions::getEvictions);
+        Configuration.addListener(ConnectionManager::configurationChanged);
+    }
+
+    // Reconnects every identity after the connection profile or wallet changed.
+    private static void configurationChanged(Configuration previous, Configuration next) {
+        if (previous == null || !next.isGatewayChanged(previous)) {
+            return;
+        }
+        if (next.isWalletChanged(previous)) {
+            try {
+                WalletManager.refreshSharedWallet();
+            } catch (IdentityException e) {
+                LOGGER.severe("Could not rebuild the wallet, keeping the gateways: " + e.toString());
+                return;
+            }
+        }
+        gateways.invalidateAll();
+    }
+
+    private static void gatewayRemoved(String fabricId, Gateway gateway) {
+        contracts.invalidate(fabricId);
+        assets.release(fabricId);
+    }
 
     private static Gateway getGateway(String fabricId) throws IdentityException, GatewayException {
-        Gateway gateway = null;
-
-        synchronized (gateways) {
-            gateway = gateways.get(fabricId);
-            Gateway.Builder builder = null;
-
-            if (gateway == null) {
-                LOGGER.info("Creating a new gateway...");
-
-                String connectionProfileValue = ConnectionConfiguration.getConnectionProfile();
-                boolean isJSONDocument = isJSONDocument(connectionProfileValue);
-                InputStream connProfileIS;
-
-                if (isJSONDocument){
-                    //get connection profile straight from variable
-                    connProfileIS = new ByteArrayInputStream(connectionProfileValue.getBytes());
-                } else {
-                    //get connection profile from file 
-                    connProfileIS = ConnectionManager.class.getClassLoader().getResourceAsStream(connectionProfileValue);
-                }
-
-                Wallet wallet = new WalletManager().getWallet();
-
-                //Verify identity is in wallet. 
-                try {
-                    Identity id = wallet.get(fabricId);
-                    if(id == null){
-                        throw new IdentityException("Fabric Identity : " + fabricId + " not found in wallet.");
-                    }
-                } catch (IOException e) {
-                    LOGGER.severe("Error accessing wallet: "+e.toString());
-                    throw new IdentityException("Fabric Identity : " + fabricId + " not found in wallet.", e);
-                }
-                
-                try {
-                    builder = Gateway.createBuilder().identity(wallet, fabricId).networkConfig(connProfileIS).discovery(true);
-                } catch (IOException e) {
-                    LOGGER.severe("Could not construct gateway...exception: "+e.toString());
-                    throw new GatewayException("Error constructing gateway.", e);
-                }
-            
-                gateway = builder.connect();
-                gateways.put(fabricId, gateway);
-                LOGGER.info("Gateway created and cached.");
-            } 
+        long start = System.nanoTime();
+        try {
+            return gateways.getGateway(fabricId);
+        } finally {
+            RequestMetrics.phase(RequestMetrics.PHASE_GATEWAY, start);
         }
+    }
+
+    private static Gateway createGateway(String fabricId) throws IdentityException, GatewayException {
+        long start = System.nanoTime();
+        try {
+            LocalLedger ledger = LocalLedger.getConfigured();
+            return ledger != null ? ledger.connect(fabricId, transactions, assets) : connectGateway(fabricId);
+        } finally {
+            ClientMetrics.time("gateway.build.time", "Time taken to build and connect a gateway.", System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Gateway connectGateway(String fabricId) throws IdentityException, GatewayException {
+        Gateway.Builder builder = null;
+        LOGGER.info("Creating a new gateway...");
+
+        //connection profile is parsed once and shared by every gateway
+        InputStream connProfileIS = ConnectionProfile.get().openStream();
+
+        Wallet wallet = WalletManager.getSharedWallet();
+
+        //Verify identity is in wallet. 
+        try {
+            Identity id = wallet.get(fabricId);
+            if(id == null){
+                throw new IdentityException("Fabric Identity : " + fabricId + " not found in wallet.");
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Error accessing wallet: "+e.toString());
+            throw new IdentityException("Fabric Identity : " + fabricId + " not found in wallet.", e);
+        }
+        
+        try {
+            builder = Gateway.createBuilder().identity(wallet, fabricId).networkConfig(connProfileIS).discovery(true)
+                    .commitHandler(new TransactionIdCapture(new CommitTracker(DefaultCommitHandlers.MSPID_SCOPE_ALLFORTX,
+                            transactions, ConnectionConfiguration.getSubmitTimeout(), TimeUnit.SECONDS)));
+            if (HedgedQueryHandler.Hedging.getDefault().isUsed()) {
+                builder.queryHandler(HedgedQueryHandler::forNetwork);
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Could not construct gateway...exception: "+e.toString());
+            throw new GatewayException("Error constructing gateway.", e);
+        }
+    
+        Gateway gateway = builder.connect();
+        LOGGER.info("Gateway created.");
         return gateway;
     }
 
     public static Contract getContract(String fabricId) throws IdentityException, GatewayException {
-        String channel = ConnectionConfiguration.getChannel();
-        String chaincodeId = ConnectionConfiguration.getContractId();
+        Configuration configuration = Configuration.current();
+        return getContract(fabricId, configuration.getChannel(), configuration.getContractId());
+    }
+
+    public static Contract getContract(String fabricId, String channel, String chaincodeId) throws IdentityException, GatewayException {
+        long start = System.nanoTime();
+        try {
+            return lookupContract(fabricId, channel, chaincodeId);
+        } finally {
+            // Includes the gateway phase when the handle is not cached yet.
+            RequestMetrics.phase(RequestMetrics.PHASE_CONTRACT, start);
+        }
+    }
+
+    // The default channel's network for the identity, connecting its gateway if needed.
+    public static Network getNetwork(String fabricId) throws IdentityException, GatewayException {
+        Gateway gateway = getGateway(fabricId);
+        try {
+            return gateway.getNetwork(Configuration.current().getChannel());
+        } catch (GatewayRuntimeException e) {
+            LOGGER.severe("Error retrieving network: "+e.toString());
+            gateways.invalidate(fabricId, gateway);
+            throw new GatewayException("Error retrieving network.", e);
+        }
+    }
+
+    private static Contract lookupContract(String fabricId, String channel, String chaincodeId) throws IdentityException, GatewayException {
+        ContractCache.HandleKey key = new ContractCache.HandleKey(fabricId, channel, chaincodeId);
+        Contract contract = contracts.get(key);
+        if (contract != null) {
+            // Hits never reach the gateway pool, keep the gateway from looking idle.
+            gateways.touch(fabricId);
+            // Moves the channel's block listener to this gateway if it went with an evicted one.
+            listenForBlocks(fabricId, channel, null);
+            return contract;
+        }
 
         Gateway gateway = getGateway(fabricId);
         Network network = null;
-        Contract contract = null;
         try {
             network = gateway.getNetwork(channel);
             contract = network.getContract(chaincodeId);
         } catch (GatewayRuntimeException e) {
             LOGGER.severe("Error retrieving contract: "+e.toString());
+            // The gateway may be unusable, rebuild it on the next request.
+            gateways.invalidate(fabricId, gateway);
             throw new GatewayException("Error retrieving contract.", e);
         }
+
+        contracts.put(key, contract);
+        if (!gateways.isCurrent(fabricId, gateway)) {
+            // The gateway was replaced while we were resolving the contract, don't cache a stale handle.
+            contracts.remove(key, contract);
+        }
+        listenForBlocks(fabricId, channel, network);
         return contract;
     }
 
-    private static boolean isJSONDocument(String document) {
-        return document.trim().startsWith("{") && document.trim().endsWith("}");
+    private static void listenForBlocks(String fabricId, String channel, Network network) throws IdentityException, GatewayException {
+        if (!assets.isEnabled() || assets.isListening(channel)) {
+            return;
+        }
+        try {
+            assets.listen(channel, fabricId, network != null ? network : getGateway(fabricId).getNetwork(channel));
+        } catch (GatewayRuntimeException e) {
+            // Reads are just not cached until a listener can be registered.
+            LOGGER.warning("Error listening for blocks on " + channel + ": " + e.toString());
+        }
+    }
+
+    public static String getDefaultChannel() {
+        return Configuration.current().getChannel();
+    }
+
+    public static String getDefaultContractId() {
+        return Configuration.current().getContractId();
+    }
+
+    public static AssetCache getAssetCache() {
+        return assets;
+    }
+
+    public static ReadCoalescer getReadCoalescer() {
+        return reads;
+    }
+
+    public static TransactionStatusIndex getTransactionStatusIndex() {
+        return transactions;
+    }
+
+    public static ContractCache getContractCache() {
+        return contracts;
+    }
+
+    public static GatewayRegistry getGatewayRegistry() {
+        return gateways;
+    }
+
+    // Closes all pooled gateways, called when the application stops.
+    public static void shutdown() {
+        gateways.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package application.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.hyperledger.fabric.sdk.NetworkConfig;
+
+/**
+ * Connection profile loaded once and shared by every gateway build.
+ *
+ * FABRIC_CONNECTION_PROFILE may hold the profile itself, as JSON or YAML, or
+ * name a classpath resource or file containing it. Whatever the source, the
+ * profile is parsed and checked once and kept as minified JSON, so a gateway
+ * build only wraps the bytes in a stream. It is loaded again only when the
+ * variable's value or the file's modification time changes.
+ */
+public final class ConnectionProfile {
+    public static final Logger LOGGER = Logger.getLogger(ConnectionProfile.class.getName());
+
+    // How often a file based profile is checked for changes.
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final YAMLMapper YAML = new YAMLMapper();
+
+    private static volatile ConnectionProfile current;
+
+    private final String source;
+    private final File file;
+    private final long lastModified;
+    private final byte[] json;
+    private volatile long nextCheck;
+
+    private ConnectionProfile(String source, File file, byte[] json) {
+        this.source = source;
+        this.file = file;
+        this.lastModified = file != null ? file.lastModified() : 0;
+        this.json = json;
+        this.nextCheck = System.nanoTime() + CHECK_INTERVAL_NANOS;
+    }
+
+    // The profile for the configured FABRIC_CONNECTION_PROFILE, loading it if it is new or has changed.
+    public static ConnectionProfile get() throws GatewayException {
+        String source = Configuration.current().getConnectionProfile();
+        ConnectionProfile profile = current;
+        if (profile != null && !profile.isStale(source)) {
+            return profile;
+        }
+        synchronized (ConnectionProfile.class) {
+            profile = current;
+            if (profile == null || profile.isStale(source)) {
+                profile = load(source);
+                current = profile;
+            }
+            return profile;
+        }
+    }
+
+    public static ConnectionProfile load(String source) throws GatewayException {
+        if (source == null || source.trim().isEmpty()) {
+            throw new GatewayException("No connection profile configured.");
+        }
+        long start = System.nanoTime();
+        File file = null;
+        byte[] document;
+        try {
+            String trimmed = source.trim();
+            if (trimmed.startsWith("{") || trimmed.indexOf('\n') >= 0) {
+                document = source.getBytes(StandardCharsets.UTF_8);
+            } else {
+                URL resource = ConnectionProfile.class.getClassLoader().getResource(trimmed);
+                if (resource != null && "file".equals(resource.getProtocol())) {
+                    file = new File(resource.toURI());
+                } else if (resource == null) {
+                    file = new File(trimmed);
+                    if (!file.isFile()) {
+                        throw new GatewayException("Connection profile " + trimmed + " not found.");
+                    }
+                }
+                document = file != null ? readFully(file.toURI().toURL()) : readFully(resource);
+            }
+            byte[] json = JSON.writeValueAsBytes(parse(document));
+            // Fail here rather than on every gateway build.
+            NetworkConfig.fromJsonStream(new ByteArrayInputStream(json));
+            LOGGER.info("Connection profile loaded in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+            return new ConnectionProfile(source, file, json);
+        } catch (GatewayException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.severe("Error loading connection profile: " + e.toString());
+            throw new GatewayException("Error loading connection profile.", e);
+        }
+    }
+
+    // A fresh stream over the profile for Gateway.Builder.networkConfig.
+    public InputStream openStream() {
+        return new ByteArrayInputStream(json);
+    }
+
+    public int size() {
+        return json.length;
+    }
+
+    boolean isStale(String currentSource) {
+        return isStale(currentSource, System.nanoTime());
+    }
+
+    boolean isStale(String currentSource, long now) {
+        // The environment hands back the same String, so this is usually a reference check.
+        if (!source.equals(currentSource)) {
+            return true;
+        }
+        if (file == null) {
+            return false;
+        }
+        if (now - nextCheck < 0) {
+            return false;
+        }
+        nextCheck = now + CHECK_INTERVAL_NANOS;
+        return file.lastModified() != lastModified;
+    }
+
+    private static JsonNode parse(byte[] document) throws IOException {
+        try {
+            return JSON.readTree(document);
+        } catch (IOException e) {
+            // YAML is a superset of JSON, so only try it once JSON has failed.
+            return YAML.readTree(document);
+        }
+    }
+
+    private static byte[] readFully(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
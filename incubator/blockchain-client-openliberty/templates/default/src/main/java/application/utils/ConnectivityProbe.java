@@ -0,0 +1,299 @@
+package application.utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.hyperledger.fabric.sdk.BlockchainInfo;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Orderer;
+import org.hyperledger.fabric.sdk.Peer;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Checks in the background that the Fabric network can be reached, so that
+ * readiness probes answer from the last result instead of calling the network.
+ *
+ * Each probe connects the readiness identity's gateway and contract, which
+ * also keeps that path warm, then queries the ledger height on every peer of
+ * the channel at once and opens a connection to every orderer, each within
+ * the readiness timeout. The network counts as
+ * reachable when at least one peer and one orderer answered. The pod is ready
+ * while the last reachable probe is no older than the configured maximum age,
+ * so a probe that hangs makes the pod unready rather than blocking its probes.
+ */
+public class ConnectivityProbe {
+    public static final Logger LOGGER = Logger.getLogger(ConnectivityProbe.class.getName());
+
+    private static volatile ConnectivityProbe defaultProbe = null;
+    private static final ExecutorService peerQueries = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "readiness-peer-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Probes the network, returning what could be reached.
+    @FunctionalInterface
+    public interface Target {
+        Reachability probe() throws Exception;
+    }
+
+    private final Target target;
+    private final long intervalMillis;
+    private final long maxAgeMillis;
+    private final LongAdder failures = new LongAdder();
+    private volatile State state = new State(false, 0, 0, 0, null, "Not probed yet.");
+    private ScheduledExecutorService prober;
+
+    public ConnectivityProbe(Target target, long interval, long maxAge, TimeUnit unit) {
+        this.target = target;
+        this.intervalMillis = unit.toMillis(interval);
+        this.maxAgeMillis = unit.toMillis(maxAge);
+    }
+
+    // The probe of the configured network, using FABRIC_READINESS_IDENTITY.
+    public static ConnectivityProbe getDefault() {
+        if (defaultProbe == null) {
+            synchronized (ConnectivityProbe.class) {
+                if (defaultProbe == null) {
+                    String identity = ConnectionConfiguration.getReadinessIdentity();
+                    long timeoutMillis = TimeUnit.SECONDS.toMillis(ConnectionConfiguration.getReadinessTimeout());
+                    ConnectivityProbe probe = new ConnectivityProbe(() -> probeFabric(identity != null && !identity.isEmpty()
+                            ? identity : Configuration.current().getDefaultIdentity(), (int) timeoutMillis),
+                            ConnectionConfiguration.getReadinessInterval(), ConnectionConfiguration.getReadinessMaxAge(),
+                            TimeUnit.SECONDS);
+                    ClientMetrics.gauge("readiness.probe.latency", "Time taken by the last connectivity probe.", MetricUnits.MILLISECONDS, () -> probe.getState().getLatencyMillis());
+                    ClientMetrics.gauge("readiness.lastSuccess.age", "Time since the Fabric network was last reachable, -1 if never.", MetricUnits.MILLISECONDS, () -> probe.getLastSuccessAgeMillis(System.currentTimeMillis()));
+                    ClientMetrics.counter("readiness.probe.failures", "Connectivity probes that could not reach the Fabric network.", probe.failures::sum);
+                    defaultProbe = probe;
+                }
+            }
+        }
+        return defaultProbe;
+    }
+
+    public synchronized void start() {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "readiness-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    // Runs one probe and records its outcome.
+    void probe() {
+        long start = System.nanoTime();
+        Reachability reachability = null;
+        String error = null;
+        try {
+            reachability = target.probe();
+            if (!reachability.isReachable()) {
+                error = "No peer or no orderer reachable: " + reachability;
+            }
+        } catch (Exception e) {
+            error = e.toString();
+        }
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long now = System.currentTimeMillis();
+        State previous = state;
+        if (error == null) {
+            state = new State(true, now, now, latencyMillis, reachability, null);
+            if (!previous.isReachable()) {
+                LOGGER.info("Fabric network reachable: " + reachability + ", probed in " + latencyMillis + " ms.");
+            }
+        } else {
+            failures.increment();
+            state = new State(false, previous.getLastSuccessMillis(), now, latencyMillis, reachability, error);
+            if (previous.isReachable() || previous.getLastAttemptMillis() == 0) {
+                LOGGER.warning("Fabric network not reachable: " + error);
+            } else if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Fabric network still not reachable: " + error);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady(long nowMillis) {
+        long age = getLastSuccessAgeMillis(nowMillis);
+        return age >= 0 && age <= maxAgeMillis;
+    }
+
+    public long getLastSuccessAgeMillis(long nowMillis) {
+        long lastSuccess = state.getLastSuccessMillis();
+        return lastSuccess > 0 ? nowMillis - lastSuccess : -1;
+    }
+
+    static Reachability probeFabric(String identity, int timeoutMillis) throws Exception {
+        if (identity == null || identity.isEmpty()) {
+            throw new IllegalStateException("No identity to probe the network with, set FABRIC_READINESS_IDENTITY or FABRIC_DEFAULT_IDENTITY.");
+        }
+        ConnectionManager.getContract(identity);
+        if (LocalLedger.getConfigured() != null) {
+            // The local ledger stand-in has no peers or orderers to reach.
+            return new Reachability(0, 0, 0, 0);
+        }
+        Channel channel = ConnectionManager.getNetwork(identity).getChannel();
+        Collection<Peer> peers = channel.getPeers();
+        int peersReachable = queryPeers(channel, peers, timeoutMillis);
+        Collection<Orderer> orderers = channel.getOrderers();
+        int orderersReachable = 0;
+        for (Orderer orderer : orderers) {
+            if (isListening(orderer.getUrl(), timeoutMillis)) {
+                orderersReachable++;
+            }
+        }
+        return new Reachability(peers.size(), peersReachable, orderers.size(), orderersReachable);
+    }
+
+    // Queries the ledger height on all the peers at once, returning how many answered within the timeout.
+    static int queryPeers(Channel channel, Collection<Peer> peers, long timeoutMillis) throws InterruptedException {
+        Map<Peer, Future<BlockchainInfo>> queries = new LinkedHashMap<Peer, Future<BlockchainInfo>>();
+        for (Peer peer : peers) {
+            queries.put(peer, peerQueries.submit(() -> channel.queryBlockchainInfo(peer)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int reachable = 0;
+        try {
+            for (Map.Entry<Peer, Future<BlockchainInfo>> query : queries.entrySet()) {
+                try {
+                    query.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    reachable++;
+                } catch (ExecutionException | TimeoutException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    LOGGER.fine("Peer " + query.getKey().getName() + " not reachable: " + cause.toString());
+                }
+            }
+        } finally {
+            for (Future<BlockchainInfo> query : queries.values()) {
+                query.cancel(true);
+            }
+        }
+        return reachable;
+    }
+
+    // True if a connection to the grpc(s)://host:port URL can be opened. The SDK has no cheaper orderer check.
+    static boolean isListening(String url, int timeoutMillis) {
+        try (Socket socket = new Socket()) {
+            URI uri = URI.create(url);
+            socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()), timeoutMillis);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.fine("Orderer " + url + " not reachable: " + e.toString());
+            return false;
+        }
+    }
+
+    // Numbers of peers and orderers of the channel, and how many of them answered.
+    public static final class Reachability {
+        private final int peers;
+        private final int peersReachable;
+        private final int orderers;
+        private final int orderersReachable;
+
+        public Reachability(int peers, int peersReachable, int orderers, int orderersReachable) {
+            this.peers = peers;
+            this.peersReachable = peersReachable;
+            this.orderers = orderers;
+            this.orderersReachable = orderersReachable;
+        }
+
+        public boolean isReachable() {
+            return (peers == 0 || peersReachable > 0) && (orderers == 0 || orderersReachable > 0);
+        }
+
+        public int getPeers() {
+            return peers;
+        }
+
+        public int getPeersReachable() {
+            return peersReachable;
+        }
+
+        public int getOrderers() {
+            return orderers;
+        }
+
+        public int getOrderersReachable() {
+            return orderersReachable;
+        }
+
+        @Override
+        public String toString() {
+            return peersReachable + "/" + peers + " peers, " + orderersReachable + "/" + orderers + " orderers";
+        }
+    }
+
+    // The outcome of the latest probe, with the time of the latest one that reached the network.
+    public static final class State {
+        private final boolean reachable;
+        private final long lastSuccessMillis;
+        private final long lastAttemptMillis;
+        private final long latencyMillis;
+        private final Reachability reachability;
+        private final String error;
+
+        State(boolean reachable, long lastSuccessMillis, long lastAttemptMillis, long latencyMillis,
+                Reachability reachability, String error) {
+            this.reachable = reachable;
+            this.lastSuccessMillis = lastSuccessMillis;
+            this.lastAttemptMillis = lastAttemptMillis;
+            this.latencyMillis = latencyMillis;
+            this.reachability = reachability;
+            this.error = error;
+        }
+
+        public boolean isReachable() {
+            return reachable;
+        }
+
+        public long getLastSuccessMillis() {
+            return lastSuccessMillis;
+        }
+
+        public long getLastAttemptMillis() {
+            return lastAttemptMillis;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public Reachability getReachability() {
+            return reachability;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package application.utils;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hyperledger.fabric.gateway.Contract;
+
+/**
+ * Cache of Contract handles keyed by (identity, channel, contract), so the
+ * steady-state request path is a single map lookup instead of a
+ * getNetwork/getContract walk on every call.
+ */
+public class ContractCache {
+
+    private final ConcurrentHashMap<HandleKey, Contract> contracts = new ConcurrentHashMap<HandleKey, Contract>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public Contract get(HandleKey key) {
+        Contract contract = contracts.get(key);
+        if (contract != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return contract;
+    }
+
+    public void put(HandleKey key, Contract contract) {
+        contracts.put(key, contract);
+    }
+
+    public void remove(HandleKey key, Contract contract) {
+        contracts.remove(key, contract);
+    }
+
+    // Drops every handle created from the given identity's gateway.
+    public void invalidate(String identity) {
+        contracts.keySet().removeIf(key -> Objects.equals(key.identity, identity));
+    }
+
+    public int size() {
+        return contracts.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public static final class HandleKey {
+        private final String identity;
+        private final String channel;
+        private final String contract;
+        private final int hash;
+
+        public HandleKey(String identity, String channel, String contract) {
+            this.identity = identity;
+            this.channel = channel;
+            this.contract = contract;
+            // Same value as Objects.hash, without allocating its varargs array.
+            int h = 1;
+            h = 31 * h + Objects.hashCode(identity);
+            h = 31 * h + Objects.hashCode(channel);
+            h = 31 * h + Objects.hashCode(contract);
+            this.hash = h;
+        }
+
+        public String getIdentity() {
+            return identity;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getContract() {
+            return contract;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof HandleKey)) {
+                return false;
+            }
+            HandleKey other = (HandleKey) obj;
+            return hash == other.hash && Objects.equals(identity, other.identity)
+                    && Objects.equals(channel, other.channel) && Objects.equals(contract, other.contract);
+        }
+
+        @Override
+        public String toString() {
+            return "HandleKey [identity=" + identity + ", channel=" + channel + ", contract=" + contract + "]";
+        }
+    }
+}
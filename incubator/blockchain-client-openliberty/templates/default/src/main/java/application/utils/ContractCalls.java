@@ -0,0 +1,76 @@
+package application.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Contract calls currently waiting on the Fabric network.
+ *
+ * Submits are tracked individually so that the age of the oldest one can be
+ * found: a submit that has been outstanding for much longer than the commit
+ * timeout means its thread is stuck, which the liveness check reports.
+ * Evaluates are only counted. Finding the oldest submit scans the outstanding
+ * ones, which are bounded by the submit threads.
+ */
+public class ContractCalls {
+
+    private static final ContractCalls defaultCalls = new ContractCalls();
+
+    static {
+        ClientMetrics.gauge("contract.inFlight", "Contract calls waiting on the Fabric network, by type.", MetricUnits.NONE, defaultCalls::getSubmits, new Tag("type", "submit"));
+        ClientMetrics.gauge("contract.inFlight", "Contract calls waiting on the Fabric network, by type.", MetricUnits.NONE, defaultCalls::getEvaluates, new Tag("type", "evaluate"));
+        ClientMetrics.gauge("contract.submit.oldestAge", "Time the oldest outstanding submit has been waiting.", MetricUnits.MILLISECONDS,
+                () -> TimeUnit.NANOSECONDS.toMillis(defaultCalls.getOldestSubmitAge(System.nanoTime())));
+    }
+
+    private final ConcurrentHashMap<Long, Long> submits = new ConcurrentHashMap<Long, Long>();
+    private final AtomicLong submitIds = new AtomicLong();
+    private final AtomicInteger evaluates = new AtomicInteger();
+
+    public static ContractCalls getDefault() {
+        return defaultCalls;
+    }
+
+    // Returns the ID to pass to submitFinished.
+    public long submitStarted() {
+        long id = submitIds.incrementAndGet();
+        submits.put(id, System.nanoTime());
+        return id;
+    }
+
+    public void submitFinished(long id) {
+        submits.remove(id);
+    }
+
+    public void evaluateStarted() {
+        evaluates.incrementAndGet();
+    }
+
+    public void evaluateFinished() {
+        evaluates.decrementAndGet();
+    }
+
+    public int getSubmits() {
+        return submits.size();
+    }
+
+    public int getEvaluates() {
+        return evaluates.get();
+    }
+
+    // Nanoseconds the oldest outstanding submit has been waiting at the given System.nanoTime(), 0 if there is none.
+    public long getOldestSubmitAge(long now) {
+        long oldest = 0;
+        for (Long start : submits.values()) {
+            oldest = Math.max(oldest, now - start);
+        }
+        return oldest;
+    }
+}
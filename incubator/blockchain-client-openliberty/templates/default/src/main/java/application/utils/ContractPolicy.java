@@ -0,0 +1,353 @@
+package application.utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.hyperledger.fabric.sdk.exception.ServiceDiscoveryException;
+import org.hyperledger.fabric.sdk.exception.TransactionException;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Bulkhead, circuit breaker and timeout applied to one kind of contract call.
+ *
+ * Reads and writes each have their own policy, so that writes stuck waiting
+ * on an orderer cannot use up the threads that reads need. The policies
+ * follow MicroProfile Fault Tolerance: the bulkhead rejects a call straight
+ * away when its limit of concurrent calls is reached, the circuit opens when
+ * the share of failed calls among the last ones reaches the failure ratio
+ * and rejects calls until its delay has passed. It then lets a single trial
+ * call through, rejecting the others, and closes if the trial succeeds or
+ * opens again if it fails. A call still running at its timeout is
+ * interrupted.
+ *
+ * The Fault Tolerance annotations are not used because the policies do not
+ * belong to one bean method: MyAssetController is created per request with
+ * the caller's identity, the write policy is shared by create, update,
+ * delete and batch calls that also run on SubmitExecutor threads, and the
+ * limits are FABRIC_ settings read with the rest of the configuration.
+ * Timeouts, interruptions, unchecked errors and ContractExceptions raised
+ * because no peer or orderer could be reached count as failures. An error
+ * returned by the chaincode is its answer and shows the ledger is up.
+ */
+public class ContractPolicy {
+    public static final Logger LOGGER = Logger.getLogger(ContractPolicy.class.getName());
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    // Messages of the ContractExceptions the gateway SDK throws when the ledger cannot be reached.
+    private static final String NO_QUERY_RESPONSES = "No successful responses received";
+    private static final String NO_ENDORSEMENTS = "No valid proposal responses received";
+    private static final String PEER_ERRORS = "peer error responses: ";
+    private static final String PEER_UNREACHABLE = "failed because of";
+    private static final String ORDERER_FAILED = "Failed to send transaction to the orderer";
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "contract-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ContractPolicy readPolicy = withMetrics(new ContractPolicy(READ,
+            ConnectionConfiguration.getReadBulkhead(), ConnectionConfiguration.getReadTimeout(),
+            ConnectionConfiguration.getCircuitVolume(), ConnectionConfiguration.getCircuitFailurePercent(),
+            ConnectionConfiguration.getCircuitDelay(), TimeUnit.SECONDS));
+    private static final ContractPolicy writePolicy = withMetrics(new ContractPolicy(WRITE,
+            ConnectionConfiguration.getWriteBulkhead(), ConnectionConfiguration.getWriteTimeout(),
+            ConnectionConfiguration.getCircuitVolume(), ConnectionConfiguration.getCircuitFailurePercent(),
+            ConnectionConfiguration.getCircuitDelay(), TimeUnit.SECONDS));
+
+    private final String operation;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final long timeoutMillis;
+    private final long delayMillis;
+    private final int failurePercent;
+    // Outcomes of the last calls, true for a failure, written round robin.
+    private final boolean[] window;
+    private int windowNext = 0;
+    private int windowSize = 0;
+    private int windowFailures = 0;
+    private int state = CLOSED;
+    private boolean trialInFlight = false;
+    private long openedMillis = 0;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder prevented = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    // A maxConcurrent, timeout or volume of 0 turns off the bulkhead, timeout or circuit breaker.
+    public ContractPolicy(String operation, int maxConcurrent, long timeout, int volume, int failurePercent, long delay,
+            TimeUnit unit) {
+        this.operation = operation;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.timeoutMillis = unit.toMillis(timeout);
+        this.delayMillis = unit.toMillis(delay);
+        this.failurePercent = failurePercent;
+        this.window = new boolean[volume];
+    }
+
+    private static ContractPolicy withMetrics(ContractPolicy policy) {
+        Tag tag = new Tag("operation", policy.operation);
+        ClientMetrics.gauge("contract.bulkhead.inFlight", "Contract calls running within the bulkhead.", MetricUnits.NONE, policy::getInFlight, tag);
+        ClientMetrics.gauge("contract.bulkhead.maxSize", "Contract calls allowed to run at once, 0 when unbounded.", MetricUnits.NONE, () -> policy.maxConcurrent, tag);
+        ClientMetrics.counter("contract.bulkhead.rejected", "Contract calls rejected because the bulkhead was full.", policy.rejected::sum, tag);
+        ClientMetrics.gauge("contract.circuit.state", "Circuit breaker state, 0 closed, 1 open, 2 half open.", MetricUnits.NONE, policy::getState, tag);
+        ClientMetrics.counter("contract.circuit.opened", "Times the circuit breaker opened.", policy.opened::sum, tag);
+        ClientMetrics.counter("contract.circuit.prevented", "Contract calls rejected because the circuit was open.", policy.prevented::sum, tag);
+        ClientMetrics.counter("contract.timeouts", "Contract calls interrupted at their timeout.", policy.timedOut::sum, tag);
+        return policy;
+    }
+
+    /**
+     * True if the exception means the ledger could not be reached: no peer
+     * endorsed or answered the query, the transaction could not be sent to the
+     * orderer, or the SDK failed underneath. False for an error returned by
+     * the chaincode.
+     */
+    public static boolean isLedgerFailure(ContractException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProposalException || cause instanceof ServiceDiscoveryException
+                    || cause instanceof TransactionException || cause instanceof TimeoutException
+                    || cause instanceof InterruptedException || cause instanceof GatewayRuntimeException) {
+                return true;
+            }
+        }
+        String message = e.getMessage();
+        if (message == null || message.startsWith(NO_QUERY_RESPONSES) || message.startsWith(ORDERER_FAILED)) {
+            // Query handlers throw a chaincode error on its own, before giving up on the peers.
+            return true;
+        }
+        if (message.startsWith(NO_ENDORSEMENTS)) {
+            int errors = message.indexOf(PEER_ERRORS);
+            if (errors < 0) {
+                return true;
+            }
+            // Peers that answered report the chaincode's error, the SDK's own errors say why a peer could not be reached.
+            for (String error : message.substring(errors + PEER_ERRORS.length()).split("; ")) {
+                if (!error.contains(PEER_UNREACHABLE)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public static ContractPolicy getRead() {
+        return readPolicy;
+    }
+
+    public static ContractPolicy getWrite() {
+        return writePolicy;
+    }
+
+    // Admits a call, which must close the returned permit when it ends.
+    public Permit enter() throws RejectedException {
+        int admitted = admit(System.currentTimeMillis());
+        if (admitted == OPEN) {
+            prevented.increment();
+            throw new RejectedException(operation + " circuit open, the ledger is failing.", true,
+                    Math.max(1, TimeUnit.MILLISECONDS.toSeconds(getRetryAfterMillis(System.currentTimeMillis()))));
+        }
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            if (admitted == HALF_OPEN) {
+                endTrial();
+            }
+            rejected.increment();
+            throw new RejectedException("Too many " + operation + " calls in progress, try again later.", false, 1);
+        }
+        return new Permit(admitted == HALF_OPEN);
+    }
+
+    // The state a call is admitted in, OPEN when it is rejected. Half open, one trial call is let through at a time.
+    private synchronized int admit(long now) {
+        if (state == OPEN && now - openedMillis >= delayMillis) {
+            state = HALF_OPEN;
+            LOGGER.info("Circuit for " + operation + " calls half open, trying a call again.");
+        }
+        if (state == HALF_OPEN) {
+            if (trialInFlight) {
+                return OPEN;
+            }
+            trialInFlight = true;
+        }
+        return state;
+    }
+
+    private synchronized void endTrial() {
+        trialInFlight = false;
+    }
+
+    synchronized void record(boolean failed, long now) {
+        record(failed, now, false);
+    }
+
+    private synchronized void record(boolean failed, long now, boolean trial) {
+        if (trial) {
+            trialInFlight = false;
+            if (failed) {
+                open(now);
+            } else {
+                state = CLOSED;
+                clearWindow();
+                LOGGER.info("Circuit for " + operation + " calls closed.");
+            }
+            return;
+        }
+        if (window.length == 0 || state != CLOSED) {
+            // Circuit off, or a call admitted before the circuit opened.
+            return;
+        }
+        if (windowSize == window.length) {
+            windowFailures -= window[windowNext] ? 1 : 0;
+        } else {
+            windowSize++;
+        }
+        window[windowNext] = failed;
+        windowFailures += failed ? 1 : 0;
+        windowNext = (windowNext + 1) % window.length;
+        if (windowSize == window.length && windowFailures * 100 >= failurePercent * window.length) {
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        state = OPEN;
+        openedMillis = now;
+        opened.increment();
+        clearWindow();
+        LOGGER.warning("Circuit for " + operation + " calls opened, rejecting them for " + delayMillis + " ms.");
+    }
+
+    private void clearWindow() {
+        windowNext = 0;
+        windowSize = 0;
+        windowFailures = 0;
+    }
+
+    // Time a call may run before it is interrupted, 0 for no limit.
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public synchronized int getState() {
+        return state;
+    }
+
+    synchronized long getRetryAfterMillis(long now) {
+        return state == OPEN ? Math.max(0, delayMillis - (now - openedMillis)) : 0;
+    }
+
+    public int getInFlight() {
+        return bulkhead != null ? maxConcurrent - bulkhead.availablePermits() : 0;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getPrevented() {
+        return prevented.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * A call admitted by the policy. The call is interrupted if it is still
+     * running at the timeout; closing the permit clears that interruption.
+     */
+    public final class Permit implements AutoCloseable {
+        private final Thread caller = Thread.currentThread();
+        private final ScheduledFuture<?> timeout;
+        private final boolean trial;
+        private boolean failed = false;
+        private boolean timedOut = false;
+        private boolean closed = false;
+
+        private Permit(boolean trial) {
+            this.trial = trial;
+            timeout = timeoutMillis > 0 ? timer.schedule(this::interrupt, timeoutMillis, TimeUnit.MILLISECONDS) : null;
+        }
+
+        private synchronized void interrupt() {
+            if (!closed) {
+                timedOut = true;
+                caller.interrupt();
+            }
+        }
+
+        // Marks the call as failed because the ledger could not be reached, for the circuit breaker.
+        public void failed() {
+            failed = true;
+        }
+
+        public synchronized boolean isTimedOut() {
+            return timedOut;
+        }
+
+        @Override
+        public void close() {
+            boolean wasTimedOut;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                wasTimedOut = timedOut;
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (wasTimedOut) {
+                Thread.interrupted();
+                ContractPolicy.this.timedOut.increment();
+            }
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            record(failed || wasTimedOut, System.currentTimeMillis(), trial);
+        }
+    }
+
+    // Thrown when the bulkhead is full or the circuit is open.
+    public static class RejectedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean circuitOpen;
+        private final long retryAfterSeconds;
+
+        public RejectedException(String message, boolean circuitOpen, long retryAfterSeconds) {
+            super(message);
+            this.circuitOpen = circuitOpen;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isCircuitOpen() {
+            return circuitOpen;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package application.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+
+/**
+ * Concurrent pool of connected gateways keyed by Fabric identity.
+ *
+ * Cache hits are a single lock-free map read. Gateways for different
+ * identities are built in parallel, and concurrent first requests for the
+ * same identity wait on one shared in-flight build instead of each
+ * connecting on their own.
+ *
+ * The pool is bounded: once it holds more than maxSize gateways the least
+ * recently used one is evicted, and gateways unused for longer than the idle
+ * timeout are evicted by a background sweep. Evicted gateways are closed on
+ * the pool's own thread after a delay, so requests that already hold a
+ * Contract from them can finish.
+ */
+public class GatewayRegistry {
+    public static final Logger LOGGER = Logger.getLogger(GatewayRegistry.class.getName());
+
+    // Hits only record their access time if it moved on by more than this, to keep hot entries write-free.
+    private static final long MAX_ACCESS_RESOLUTION_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @FunctionalInterface
+    public interface GatewayFactory {
+        Gateway create(String fabricId) throws IdentityException, GatewayException;
+    }
+
+    @FunctionalInterface
+    public interface RemovalListener {
+        void removed(String fabricId, Gateway gateway);
+    }
+
+    private final ConcurrentHashMap<String, Entry> gateways = new ConcurrentHashMap<String, Entry>();
+    private final GatewayFactory factory;
+    private final RemovalListener removalListener;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long closeDelayNanos;
+    private final long accessResolutionNanos;
+    private final ScheduledExecutorService closer;
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    public GatewayRegistry(GatewayFactory factory) {
+        this(factory, (fabricId, gateway) -> { });
+    }
+
+    public GatewayRegistry(GatewayFactory factory, RemovalListener removalListener) {
+        this(factory, removalListener, 0, 0, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maxSize     maximum number of gateways kept, 0 for unbounded
+     * @param idleTimeout time a gateway may go unused before eviction, 0 to never expire
+     * @param closeDelay  time an evicted gateway stays open before it is closed
+     */
+    public GatewayRegistry(GatewayFactory factory, RemovalListener removalListener, int maxSize, long idleTimeout,
+            long closeDelay, TimeUnit unit) {
+        this.factory = factory;
+        this.removalListener = removalListener;
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.closeDelayNanos = unit.toNanos(closeDelay);
+        this.accessResolutionNanos = idleTimeoutNanos > 0 ? Math.min(idleTimeoutNanos / 4, MAX_ACCESS_RESOLUTION_NANOS)
+                : MAX_ACCESS_RESOLUTION_NANOS;
+        this.closer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gateway-pool-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (idleTimeoutNanos > 0) {
+            long interval = Math.max(TimeUnit.MILLISECONDS.toNanos(10), Math.min(idleTimeoutNanos / 2, MAX_SWEEP_INTERVAL_NANOS));
+            closer.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Gateway getGateway(String fabricId) throws IdentityException, GatewayException {
+        Entry entry = gateways.get(fabricId);
+        if (entry == null) {
+            Entry pending = new Entry();
+            entry = gateways.putIfAbsent(fabricId, pending);
+            if (entry == null) {
+                // This thread won the race and builds the gateway, everyone else waits on it.
+                entry = pending;
+                build(fabricId, pending);
+                evictOverflow(fabricId);
+            }
+        }
+        entry.touch(accessResolutionNanos);
+        return await(entry.gateway);
+    }
+
+    // Records a use of the identity's gateway made through a handle cached elsewhere, such as a Contract.
+    public void touch(String fabricId) {
+        Entry entry = gateways.get(fabricId);
+        if (entry != null) {
+            entry.touch(accessResolutionNanos);
+        }
+    }
+
+    // True if the given gateway is the one currently cached for the identity.
+    public boolean isCurrent(String fabricId, Gateway gateway) {
+        Entry entry = gateways.get(fabricId);
+        return entry != null && entry.gateway.getNow(null) == gateway;
+    }
+
+    // Drops the identity's gateway so that the next request builds a new one.
+    public void invalidate(String fabricId, Gateway gateway) {
+        Entry entry = gateways.get(fabricId);
+        if (entry != null && entry.gateway.getNow(null) == gateway && evict(fabricId, entry)) {
+            invalidations.increment();
+            LOGGER.info("Gateway for " + fabricId + " invalidated.");
+        }
+    }
+
+    // Drops every gateway so that each identity's next request builds a new one, such as after a configuration change.
+    public void invalidateAll() {
+        int dropped = 0;
+        for (Map.Entry<String, Entry> mapEntry : gateways.entrySet()) {
+            if (evict(mapEntry.getKey(), mapEntry.getValue())) {
+                invalidations.increment();
+                dropped++;
+            }
+        }
+        LOGGER.info(dropped + " gateways invalidated.");
+    }
+
+    // Closes every pooled gateway immediately and stops the pool's thread.
+    public void shutdown() {
+        for (Map.Entry<String, Entry> mapEntry : gateways.entrySet()) {
+            Gateway gateway = completed(mapEntry.getValue());
+            if (gateway != null && gateways.remove(mapEntry.getKey(), mapEntry.getValue())) {
+                removalListener.removed(mapEntry.getKey(), gateway);
+                close(mapEntry.getKey(), gateway);
+            }
+        }
+        closer.shutdownNow();
+    }
+
+    public int size() {
+        return gateways.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleEvictions() {
+        return idleEvictions.sum();
+    }
+
+    public long getSizeEvictions() {
+        return sizeEvictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getClosed() {
+        return closed.sum();
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Entry> mapEntry : gateways.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (completed(entry) != null && now - entry.lastAccess > idleTimeoutNanos && evict(mapEntry.getKey(), entry)) {
+                idleEvictions.increment();
+                LOGGER.info("Gateway for " + mapEntry.getKey() + " evicted after being idle.");
+            }
+        }
+    }
+
+    private void evictOverflow(String keep) {
+        if (maxSize <= 0) {
+            return;
+        }
+        while (gateways.size() > maxSize) {
+            // Linear scan, but only on the build path and bounded by maxSize.
+            String eldestId = null;
+            Entry eldest = null;
+            for (Map.Entry<String, Entry> mapEntry : gateways.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (!mapEntry.getKey().equals(keep) && completed(entry) != null
+                        && (eldest == null || entry.lastAccess - eldest.lastAccess < 0)) {
+                    eldestId = mapEntry.getKey();
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                // Everything else is still being built.
+                return;
+            }
+            if (evict(eldestId, eldest)) {
+                sizeEvictions.increment();
+                LOGGER.info("Gateway for " + eldestId + " evicted, pool is at its limit of " + maxSize + ".");
+            }
+        }
+    }
+
+    private boolean evict(String fabricId, Entry entry) {
+        Gateway gateway = completed(entry);
+        if (gateway == null || !gateways.remove(fabricId, entry)) {
+            return false;
+        }
+        removalListener.removed(fabricId, gateway);
+        try {
+            closer.schedule(() -> close(fabricId, gateway), closeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            // The pool is shutting down, close straight away.
+            close(fabricId, gateway);
+        }
+        return true;
+    }
+
+    private void close(String fabricId, Gateway gateway) {
+        try {
+            gateway.close();
+            closed.increment();
+        } catch (RuntimeException e) {
+            LOGGER.warning("Error closing gateway for " + fabricId + ": " + e.toString());
+        }
+    }
+
+    private void build(String fabricId, Entry pending) {
+        try {
+            pending.gateway.complete(factory.create(fabricId));
+        } catch (Throwable e) {
+            // Failed builds are not cached so that the next request retries, and waiters are released even on an Error.
+            gateways.remove(fabricId, pending);
+            pending.gateway.completeExceptionally(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    // The entry's gateway if its build has finished successfully, otherwise null.
+    private static Gateway completed(Entry entry) {
+        CompletableFuture<Gateway> gateway = entry.gateway;
+        return gateway.isDone() && !gateway.isCompletedExceptionally() ? gateway.getNow(null) : null;
+    }
+
+    private Gateway await(CompletableFuture<Gateway> gateway) throws IdentityException, GatewayException {
+        try {
+            return gateway.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayException("Interrupted waiting for gateway.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IdentityException) {
+                throw (IdentityException) cause;
+            }
+            if (cause instanceof GatewayException) {
+                throw (GatewayException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GatewayException("Error constructing gateway.", cause);
+        }
+    }
+
+    private static class Entry {
+        private final CompletableFuture<Gateway> gateway = new CompletableFuture<Gateway>();
+        private volatile long lastAccess = System.nanoTime();
+
+        void touch(long resolution) {
+            long now = System.nanoTime();
+            if (now - lastAccess > resolution) {
+                lastAccess = now;
+            }
+        }
+    }
+}
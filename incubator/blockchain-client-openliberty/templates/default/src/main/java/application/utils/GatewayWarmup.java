@@ -0,0 +1,208 @@
+package application.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Connects the gateways and contract handles of a set of identities at
+ * startup, so that the first requests after a rollout do not pay for the
+ * wallet lookup, profile parsing, TLS handshakes and service discovery.
+ *
+ * The identities are warmed in parallel on a small pool of threads. The pod
+ * is not ready until every identity has been warmed, or failed to, or the
+ * timeout has passed; an identity that could not be warmed is connected by
+ * its first request as before. The time each identity took is kept for the
+ * readiness check to report.
+ */
+public class GatewayWarmup {
+    public static final Logger LOGGER = Logger.getLogger(GatewayWarmup.class.getName());
+
+    private static volatile GatewayWarmup defaultWarmup = null;
+
+    // Connects the identity's gateway and contract.
+    @FunctionalInterface
+    public interface Target {
+        void warm(String identity) throws Exception;
+    }
+
+    private final Target target;
+    private final int threads;
+    private final long timeoutMillis;
+    private final Map<String, Result> results = new ConcurrentHashMap<String, Result>();
+    private volatile boolean done = false;
+    private Thread runner;
+
+    public GatewayWarmup(Target target, int threads, long timeout, TimeUnit unit) {
+        this.target = target;
+        this.threads = threads;
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    // The warm-up of the identities in FABRIC_WARMUP_IDENTITIES.
+    public static GatewayWarmup getDefault() {
+        if (defaultWarmup == null) {
+            synchronized (GatewayWarmup.class) {
+                if (defaultWarmup == null) {
+                    defaultWarmup = new GatewayWarmup(ConnectionManager::getContract, ConnectionConfiguration.getWarmupThreads(),
+                            ConnectionConfiguration.getWarmupTimeout(), TimeUnit.SECONDS);
+                }
+            }
+        }
+        return defaultWarmup;
+    }
+
+    // Starts warming the configured identities in the background, or marks the warm-up done if there are none.
+    public synchronized void start() {
+        if (runner != null || done) {
+            return;
+        }
+        List<String> identities;
+        try {
+            identities = configuredIdentities();
+        } catch (IdentityException e) {
+            LOGGER.severe("Could not list the identities to warm up: " + e.toString());
+            identities = Collections.emptyList();
+        }
+        if (identities.isEmpty()) {
+            done = true;
+            return;
+        }
+        List<String> warmed = identities;
+        runner = new Thread(() -> run(warmed), "gateway-warmup");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    public synchronized void stop() {
+        if (runner != null) {
+            runner.interrupt();
+            runner = null;
+        }
+    }
+
+    // Warms the identities and waits for them, at most for the timeout.
+    void run(List<String> identities) {
+        long start = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, identities.size()), runnable -> {
+            Thread thread = new Thread(runnable, "gateway-warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOGGER.info("Warming up gateways for " + identities.size() + " identities.");
+        try {
+            for (String identity : identities) {
+                workers.execute(() -> warm(identity));
+            }
+            workers.shutdown();
+            // A timeout of 0 waits for every identity.
+            if (!workers.awaitTermination(timeoutMillis > 0 ? timeoutMillis : Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                LOGGER.warning("Gateway warm-up not finished after " + timeoutMillis + " ms, " + (identities.size() - results.size())
+                        + " identities will connect on their first request.");
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            // Identities still connecting after the timeout carry on, their gateways are pooled when they are done.
+            done = true;
+        }
+        long failed = results.values().stream().filter(result -> result.getError() != null).count();
+        LOGGER.info("Gateway warm-up done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, "
+                + (results.size() - failed) + " of " + identities.size() + " identities connected.");
+    }
+
+    private void warm(String identity) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            target.warm(identity);
+        } catch (Exception e) {
+            error = e.toString();
+            LOGGER.warning("Could not warm up the gateway of " + identity + ": " + error);
+        }
+        long elapsed = System.nanoTime() - start;
+        results.put(identity, new Result(TimeUnit.NANOSECONDS.toMillis(elapsed), error));
+        if (error == null) {
+            ClientMetrics.time("gateway.warmup.time", "Time taken to connect an identity's gateway and contract at startup.", elapsed, TimeUnit.NANOSECONDS);
+            LOGGER.info("Warmed up the gateway of " + identity + " in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms.");
+        }
+    }
+
+    // The identities of FABRIC_WARMUP_IDENTITIES, limited to the gateway pool size so the warm-up does not evict itself.
+    static List<String> configuredIdentities() throws IdentityException {
+        String configured = ConnectionConfiguration.getWarmupIdentities();
+        if (configured == null || configured.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> identities = new LinkedHashSet<String>();
+        for (String identity : configured.split(",")) {
+            if (identity.trim().equals("*")) {
+                try {
+                    identities.addAll(new TreeSet<String>(WalletManager.getSharedWallet().getAllLabels()));
+                } catch (IOException e) {
+                    throw new IdentityException("Error listing wallet identities.", e);
+                }
+            } else if (!identity.trim().isEmpty()) {
+                identities.add(identity.trim());
+            }
+        }
+        List<String> list = new ArrayList<String>(identities);
+        int maxSize = ConnectionConfiguration.getGatewayPoolMaxSize();
+        if (maxSize > 0 && list.size() > maxSize) {
+            LOGGER.warning("Only warming up " + maxSize + " of " + list.size() + " identities, the gateway pool size.");
+            list = list.subList(0, maxSize);
+        }
+        return list;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    // Warm-up outcome of each identity that finished, in identity order.
+    public Map<String, Result> getResults() {
+        return Collections.unmodifiableMap(new TreeMap<String, Result>(results));
+    }
+
+    // Time an identity took to warm up, and the error if it could not be.
+    public static final class Result {
+        private final long millis;
+        private final String error;
+
+        Result(long millis, String error) {
+            this.millis = millis;
+            this.error = error;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return error != null ? "failed after " + millis + " ms: " + error : millis + " ms";
+        }
+    }
+}
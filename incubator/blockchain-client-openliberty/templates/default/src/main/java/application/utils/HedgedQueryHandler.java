@@ -0,0 +1,337 @@
+package application.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.spi.Query;
+import org.hyperledger.fabric.gateway.spi.QueryHandler;
+import org.hyperledger.fabric.sdk.ChaincodeResponse;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Query handler that chooses peers by how responsive they have been and
+ * sends a slow evaluate to a second peer as well.
+ *
+ * Queries go to the organization's peers in turn, as with the SDK's round
+ * robin handler, or with latency-aware selection to the peers PeerScores
+ * ranks fastest and healthiest. When the first peer has not answered within the chosen
+ * percentile of recent query latencies, the query is also sent to the next
+ * peer and the first successful answer is used. Hedges are limited by a
+ * budget of a percentage of queries, so a slow network is not sent twice
+ * the load. A peer that fails is replaced by the next one straight away,
+ * and an error returned by the chaincode is returned as it is.
+ *
+ * The query that loses is left to finish, so that its latency still counts
+ * towards the percentile.
+ */
+public class HedgedQueryHandler implements QueryHandler {
+    public static final Logger LOGGER = Logger.getLogger(HedgedQueryHandler.class.getName());
+
+    private final List<Peer> peers;
+    private final Hedging hedging;
+    private final AtomicInteger nextPeer = new AtomicInteger();
+
+    public HedgedQueryHandler(Collection<Peer> peers, Hedging hedging) {
+        if (peers.isEmpty()) {
+            throw new IllegalArgumentException("No peers provided");
+        }
+        this.peers = new ArrayList<Peer>(peers);
+        this.hedging = hedging;
+    }
+
+    // Handler of the network's chaincode query peers in the gateway identity's organization.
+    public static HedgedQueryHandler forNetwork(Network network) {
+        return forNetwork(network, Hedging.getDefault());
+    }
+
+    // Called while the gateway builds the network, a GatewayRuntimeException gets the gateway rebuilt.
+    static HedgedQueryHandler forNetwork(Network network, Hedging hedging) {
+        // The channel hands out an unmodifiable view of its peers.
+        Collection<Peer> peers = new ArrayList<Peer>(network.getChannel().getPeers(EnumSet.of(Peer.PeerRole.CHAINCODE_QUERY)));
+        try {
+            peers.retainAll(network.getChannel().getPeersForOrganization(network.getGateway().getIdentity().getMspId()));
+        } catch (InvalidArgumentException e) {
+            throw new GatewayRuntimeException("Could not find the peers of the organization.", e);
+        }
+        if (peers.isEmpty()) {
+            throw new GatewayRuntimeException("No peers of the organization can be queried.");
+        }
+        return new HedgedQueryHandler(peers, hedging);
+    }
+
+    @Override
+    public ProposalResponse evaluate(Query query) throws ContractException {
+        List<Peer> order = order();
+        CompletionService<Attempt> attempts = new ExecutorCompletionService<Attempt>(hedging.executor);
+        List<Future<Attempt>> running = new ArrayList<Future<Attempt>>();
+        List<String> errors = new ArrayList<String>();
+        int sent = 0;
+        boolean hedged = false;
+        boolean mayHedge = hedging.isEnabled() && peers.size() > 1;
+        hedging.queries.increment();
+        hedging.budget.deposit();
+        try {
+            if (!send(attempts, running, query, order.get(0), false)) {
+                // No thread to spare, query the peers one by one on this thread.
+                return evaluateInline(query, order);
+            }
+            sent++;
+            long hedgeAt = System.nanoTime() + hedging.getDelayNanos();
+            while (!running.isEmpty()) {
+                Future<Attempt> done;
+                if (mayHedge && !hedged) {
+                    done = attempts.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        hedged = true;
+                        if (sent < order.size() && hedging.budget.withdraw()
+                                && send(attempts, running, query, order.get(sent), true)) {
+                            sent++;
+                            hedging.hedges.increment();
+                        }
+                        continue;
+                    }
+                } else {
+                    done = attempts.take();
+                }
+                running.remove(done);
+                Attempt attempt = done.get();
+                ProposalResponse response = attempt.response;
+                if (response != null && response.getStatus() == ChaincodeResponse.Status.SUCCESS) {
+                    if (attempt.hedge) {
+                        hedging.wins.increment();
+                    }
+                    return response;
+                }
+                if (response != null && response.getProposalResponse() != null) {
+                    // The chaincode answered with an error.
+                    throw new ContractException(response.getMessage());
+                }
+                errors.add(attempt.error);
+                if (sent < order.size() && send(attempts, running, query, order.get(sent), false)) {
+                    sent++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ContractException("Query interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ContractException("Query failed.", e.getCause());
+        }
+        throw new ContractException("No successful responses received. Errors: " + errors);
+    }
+
+    // The peers to query, in the order to try them.
+    private List<Peer> order() {
+        if (hedging.scores != null) {
+            return hedging.scores.order(peers, Peer::getName, System.currentTimeMillis());
+        }
+        int start = Math.floorMod(nextPeer.getAndIncrement(), peers.size());
+        List<Peer> order = new ArrayList<Peer>(peers.subList(start, peers.size()));
+        order.addAll(peers.subList(0, start));
+        return order;
+    }
+
+    private ProposalResponse evaluateInline(Query query, List<Peer> order) throws ContractException {
+        List<String> errors = new ArrayList<String>();
+        for (Peer peer : order) {
+            Attempt attempt = hedging.attempt(query, peer, false);
+            if (attempt.response != null && attempt.response.getStatus() == ChaincodeResponse.Status.SUCCESS) {
+                return attempt.response;
+            }
+            if (attempt.response != null && attempt.response.getProposalResponse() != null) {
+                throw new ContractException(attempt.response.getMessage());
+            }
+            errors.add(attempt.error);
+        }
+        throw new ContractException("No successful responses received. Errors: " + errors);
+    }
+
+    private boolean send(CompletionService<Attempt> attempts, List<Future<Attempt>> running, Query query, Peer peer, boolean hedge) {
+        try {
+            running.add(attempts.submit(() -> hedging.attempt(query, peer, hedge)));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    // One peer's answer to a query, or why it did not answer.
+    private static final class Attempt {
+        private final ProposalResponse response;
+        private final String error;
+        private final boolean hedge;
+
+        Attempt(ProposalResponse response, String error, boolean hedge) {
+            this.response = response;
+            this.error = error;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * Hedging settings, budget, latency history and peer scores shared by the
+     * handlers of every gateway, as they query the same peers.
+     */
+    public static final class Hedging {
+        private static volatile Hedging defaultHedging = null;
+
+        private final double percentile;
+        private final long minDelayNanos;
+        private final int minSamples;
+        private final LatencyTracker latencies = new LatencyTracker(1000, 100);
+        private final PeerScores scores;
+        private final Budget budget;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+
+        // A percentile of 0 turns hedging off. Until minSamples queries have been timed, queries are not hedged.
+        // Without scores the peers are queried in turn.
+        public Hedging(double percentile, long minDelay, TimeUnit unit, int minSamples, int budgetPercent, int maxThreads,
+                PeerScores scores) {
+            this.percentile = percentile;
+            this.scores = scores;
+            this.minDelayNanos = unit.toNanos(minDelay);
+            this.minSamples = minSamples;
+            this.budget = new Budget(budgetPercent / 100.0, 10);
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), runnable -> {
+                Thread thread = new Thread(runnable, "fabric-query-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        public static Hedging getDefault() {
+            if (defaultHedging == null) {
+                synchronized (Hedging.class) {
+                    if (defaultHedging == null) {
+                        int readBulkhead = ConnectionConfiguration.getReadBulkhead();
+                        Hedging hedging = new Hedging(ConnectionConfiguration.getHedgePercentile(),
+                                ConnectionConfiguration.getHedgeMinDelay(), TimeUnit.MILLISECONDS, 20,
+                                ConnectionConfiguration.getHedgeBudgetPercent(), 2 * (readBulkhead > 0 ? readBulkhead : 64),
+                                ConnectionConfiguration.isLatencyPeerSelection() ? PeerScores.getDefault() : null);
+                        ClientMetrics.counter("query.hedge.sent", "Evaluates also sent to a second peer because the first was slow.", hedging::getHedges);
+                        ClientMetrics.counter("query.hedge.wins", "Hedged evaluates answered first by the second peer.", hedging::getWins);
+                        ClientMetrics.gauge("query.hedge.rate", "Share of evaluates that were hedged.", MetricUnits.NONE, hedging::getHedgeRate);
+                        ClientMetrics.gauge("query.hedge.winRate", "Share of hedged evaluates answered first by the second peer.", MetricUnits.NONE, hedging::getWinRate);
+                        ClientMetrics.gauge("query.hedge.delay", "Time an evaluate waits for its first peer before being hedged.", MetricUnits.MILLISECONDS,
+                                () -> TimeUnit.NANOSECONDS.toMillis(hedging.getDelayNanos()));
+                        defaultHedging = hedging;
+                    }
+                }
+            }
+            return defaultHedging;
+        }
+
+        public boolean isEnabled() {
+            return percentile > 0;
+        }
+
+        // True if gateways should use this handler rather than the SDK's.
+        public boolean isUsed() {
+            return isEnabled() || scores != null;
+        }
+
+        // Time to wait for the first peer before hedging, the maximum when there are too few samples yet.
+        long getDelayNanos() {
+            if (!isEnabled() || latencies.size() < minSamples) {
+                return Long.MAX_VALUE / 2;
+            }
+            return Math.max(minDelayNanos, latencies.percentile(percentile, TimeUnit.NANOSECONDS));
+        }
+
+        Attempt attempt(Query query, Peer peer, boolean hedge) {
+            long start = System.nanoTime();
+            try {
+                ProposalResponse response = query.evaluate(peer);
+                long elapsed = System.nanoTime() - start;
+                if (response.getStatus() == ChaincodeResponse.Status.SUCCESS) {
+                    latencies.record(elapsed, TimeUnit.NANOSECONDS);
+                }
+                // A chaincode error still shows the peer answering.
+                score(peer, elapsed, response.getStatus() != ChaincodeResponse.Status.SUCCESS && response.getProposalResponse() == null);
+                return new Attempt(response, response.getMessage(), hedge);
+            } catch (RuntimeException e) {
+                LOGGER.fine("Query to " + peer.getName() + " failed: " + e.toString());
+                score(peer, System.nanoTime() - start, true);
+                return new Attempt(null, e.toString(), hedge);
+            }
+        }
+
+        private void score(Peer peer, long elapsed, boolean failed) {
+            if (scores != null) {
+                scores.record(peer.getName(), elapsed, TimeUnit.NANOSECONDS, failed, System.currentTimeMillis());
+            }
+        }
+
+        public long getQueries() {
+            return queries.sum();
+        }
+
+        public long getHedges() {
+            return hedges.sum();
+        }
+
+        public long getWins() {
+            return wins.sum();
+        }
+
+        public double getHedgeRate() {
+            long count = queries.sum();
+            return count > 0 ? (double) hedges.sum() / count : 0;
+        }
+
+        public double getWinRate() {
+            long count = hedges.sum();
+            return count > 0 ? (double) wins.sum() / count : 0;
+        }
+    }
+
+    // Each query earns a fraction of a hedge, up to a small burst, and each hedge spends one.
+    static final class Budget {
+        private final double perQuery;
+        private final double max;
+        private double tokens;
+
+        Budget(double perQuery, double max) {
+            this.perQuery = perQuery;
+            this.max = max;
+            this.tokens = 0;
+        }
+
+        synchronized void deposit() {
+            tokens = Math.min(max, tokens + perQuery);
+        }
+
+        synchronized boolean withdraw() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package application.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Maps authenticated principals to the Fabric identities they act as.
+ *
+ * Selected with FABRIC_IDENTITY_MAP, the path of a JSON file such as
+ * {"alice":"org1user","bob":"org2user","*":"guest"}. The "*" entry, if any,
+ * is used for principals that are not listed; without it they are refused.
+ *
+ * Lookups read an immutable snapshot of the file. The file is checked for
+ * changes in the background and a changed file replaces the snapshot in one
+ * write, so a reload never blocks a request. A file that cannot be read or
+ * parsed leaves the previous mapping in place.
+ */
+public class IdentityMap {
+    public static final Logger LOGGER = Logger.getLogger(IdentityMap.class.getName());
+
+    static final String ANY_PRINCIPAL = "*";
+
+    private static volatile boolean resolved = false;
+    private static volatile IdentityMap configured = null;
+
+    private final Path file;
+    private volatile Snapshot snapshot;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+    private final LongAdder unmapped = new LongAdder();
+    private ScheduledExecutorService watcher;
+
+    IdentityMap(Path file) throws IdentityException {
+        this.file = file;
+        try {
+            this.snapshot = read(file);
+        } catch (IOException | JSONException e) {
+            LOGGER.severe("Could not load the identity map " + file + ": " + e.toString());
+            throw new IdentityException("Error loading identity map.", e);
+        }
+    }
+
+    // The map named by FABRIC_IDENTITY_MAP, or null when every principal uses the default identity.
+    public static IdentityMap getConfigured() throws IdentityException {
+        if (!resolved) {
+            synchronized (IdentityMap.class) {
+                if (!resolved) {
+                    String path = ConnectionConfiguration.getIdentityMap();
+                    if (path != null && !path.trim().isEmpty()) {
+                        configured = new IdentityMap(Paths.get(path.trim()));
+                        configured.watch(ConnectionConfiguration.getIdentityMapRefresh());
+                        configured.registerMetrics();
+                    }
+                    resolved = true;
+                }
+            }
+        }
+        return configured;
+    }
+
+    // The identity of the principal, or null when the principal may not use the Fabric.
+    public String identityOf(String principal) {
+        long start = System.nanoTime();
+        Map<String, String> identities = snapshot.identities;
+        String identity = identities.get(principal);
+        if (identity == null) {
+            identity = identities.get(ANY_PRINCIPAL);
+            if (identity == null) {
+                unmapped.increment();
+            }
+        }
+        ClientMetrics.time("identity.map.time", "Time taken to map a principal to its Fabric identity.",
+                System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return identity;
+    }
+
+    // Checks the file every refreshSeconds, 0 to load it only once.
+    void watch(long refreshSeconds) {
+        if (refreshSeconds <= 0) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "identity-map-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    // Replaces the mapping when the file has changed since it was read, returning whether it did.
+    boolean reloadIfChanged() {
+        Snapshot current = snapshot;
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() == current.lastModified && Files.size(file) == current.size) {
+                return false;
+            }
+            Snapshot loaded = read(file);
+            snapshot = loaded;
+            reloads.increment();
+            LOGGER.info("Reloaded the identity map " + file + " with " + loaded.identities.size() + " principals.");
+            return true;
+        } catch (IOException | JSONException e) {
+            reloadFailures.increment();
+            LOGGER.warning("Could not reload the identity map " + file + ", keeping the previous mapping: " + e.toString());
+            return false;
+        }
+    }
+
+    private void registerMetrics() {
+        ClientMetrics.gauge("identity.map.size", "Number of principals in the identity map.", MetricUnits.NONE, this::size);
+        ClientMetrics.counter("identity.map.reloads", "Times the identity map was reloaded after its file changed.", this::getReloads);
+        ClientMetrics.counter("identity.map.reloadFailures", "Reloads of the identity map that failed and kept the previous mapping.", this::getReloadFailures);
+        ClientMetrics.counter("identity.map.unmapped", "Principals refused because the identity map has no identity for them.", unmapped::sum);
+    }
+
+    public int size() {
+        return snapshot.identities.size();
+    }
+
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    public long getReloadFailures() {
+        return reloadFailures.sum();
+    }
+
+    private static Snapshot read(Path file) throws IOException, JSONException {
+        // Read the attributes first, so a write racing with the read is seen as a change next time.
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        long size = Files.size(file);
+        JSONObject entries = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Map<String, String> identities = new HashMap<String, String>(entries.length() * 4 / 3 + 1);
+        for (String principal : entries.keySet()) {
+            identities.put(principal, entries.getString(principal));
+        }
+        return new Snapshot(Collections.unmodifiableMap(identities), lastModified, size);
+    }
+
+    private static final class Snapshot {
+        private final Map<String, String> identities;
+        private final long lastModified;
+        private final long size;
+
+        Snapshot(Map<String, String> identities, long lastModified, long size) {
+            this.identities = identities;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
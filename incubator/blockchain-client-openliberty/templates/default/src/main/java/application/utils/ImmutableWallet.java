@@ -0,0 +1,55 @@
+package application.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.hyperledger.fabric.gateway.Wallet;
+
+/**
+ * Read-only snapshot of a wallet's identities, safe to share between
+ * threads and gateways.
+ */
+final class ImmutableWallet implements Wallet {
+
+    private final Map<String, Identity> identities;
+
+    private ImmutableWallet(Map<String, Identity> identities) {
+        this.identities = Collections.unmodifiableMap(identities);
+    }
+
+    static ImmutableWallet copyOf(Wallet wallet) throws IOException {
+        Map<String, Identity> identities = new HashMap<String, Identity>();
+        for (String label : wallet.getAllLabels()) {
+            identities.put(label, wallet.get(label));
+        }
+        return new ImmutableWallet(identities);
+    }
+
+    @Override
+    public Identity get(String label) {
+        return identities.get(label);
+    }
+
+    @Override
+    public Set<String> getAllLabels() {
+        return identities.keySet();
+    }
+
+    @Override
+    public boolean exists(String label) {
+        return identities.containsKey(label);
+    }
+
+    @Override
+    public void put(String label, Identity identity) {
+        throw new UnsupportedOperationException("The shared wallet is read-only.");
+    }
+
+    @Override
+    public void remove(String label) {
+        throw new UnsupportedOperationException("The shared wallet is read-only.");
+    }
+}
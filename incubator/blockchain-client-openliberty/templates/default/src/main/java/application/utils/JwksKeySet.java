@@ -0,0 +1,210 @@
+package application.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The public keys of a JSON Web Key Set, by key ID.
+ *
+ * The set is loaded on first use and then refreshed in the background, so
+ * looking a key up never waits on the issuer. A key ID that is not in the set
+ * triggers a reload, at most once per minimum interval, to pick up keys the
+ * issuer has just rotated in. When a reload fails the previous keys are kept.
+ */
+public class JwksKeySet {
+    public static final Logger LOGGER = Logger.getLogger(JwksKeySet.class.getName());
+
+    private static final int TIMEOUT_MILLIS = 5000;
+    private static final long MIN_RELOAD_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @FunctionalInterface
+    public interface Source {
+        String fetch() throws IOException;
+    }
+
+    private final Source source;
+    private final long refreshSeconds;
+    private volatile Map<String, PublicKey> keys;
+    private volatile long loadedAt;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * @param refreshSeconds interval between background reloads, 0 to only reload for unknown key IDs
+     */
+    public JwksKeySet(Source source, long refreshSeconds) {
+        this.source = source;
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    public static JwksKeySet fromUri(String uri, long refreshSeconds) {
+        return new JwksKeySet(() -> fetch(uri), refreshSeconds);
+    }
+
+    // The key with the given ID, or the only key when the token names none.
+    public PublicKey get(String keyId) {
+        Map<String, PublicKey> current = keys;
+        if (current == null) {
+            current = reload(true);
+        }
+        PublicKey key = find(current, keyId);
+        if (key == null && System.nanoTime() - loadedAt > MIN_RELOAD_NANOS) {
+            key = find(reload(false), keyId);
+        }
+        return key;
+    }
+
+    private static PublicKey find(Map<String, PublicKey> current, String keyId) {
+        if (keyId == null) {
+            return current.size() == 1 ? current.values().iterator().next() : null;
+        }
+        return current.get(keyId);
+    }
+
+    private synchronized Map<String, PublicKey> reload(boolean initial) {
+        if (initial && keys != null) {
+            return keys;
+        }
+        if (!initial && System.nanoTime() - loadedAt <= MIN_RELOAD_NANOS) {
+            // Another thread has just reloaded.
+            return keys;
+        }
+        try {
+            keys = parse(source.fetch());
+        } catch (IOException | JSONException e) {
+            LOGGER.warning("Could not load the JSON Web Key Set: " + e.toString());
+            if (keys == null) {
+                keys = Collections.emptyMap();
+            }
+        }
+        loadedAt = System.nanoTime();
+        if (refresher == null && refreshSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jwks-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+        return keys;
+    }
+
+    private void refresh() {
+        try {
+            Map<String, PublicKey> loaded = parse(source.fetch());
+            synchronized (this) {
+                keys = loaded;
+                loadedAt = System.nanoTime();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("Could not refresh the JSON Web Key Set, keeping the previous keys: " + e.toString());
+        }
+    }
+
+    public int size() {
+        Map<String, PublicKey> current = keys;
+        return current != null ? current.size() : 0;
+    }
+
+    // Signing keys of the set, by key ID. Keys of unsupported types are skipped.
+    static Map<String, PublicKey> parse(String jwks) throws JSONException {
+        JSONArray entries = new JSONObject(jwks).getJSONArray("keys");
+        Map<String, PublicKey> parsed = new HashMap<String, PublicKey>();
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject jwk = entries.getJSONObject(i);
+            if (!"sig".equals(jwk.optString("use", "sig"))) {
+                continue;
+            }
+            try {
+                PublicKey key = toPublicKey(jwk);
+                if (key != null) {
+                    parsed.put(jwk.optString("kid", Integer.toString(i)), key);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                LOGGER.warning("Skipping invalid key " + jwk.optString("kid") + ": " + e.toString());
+            }
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+
+    private static PublicKey toPublicKey(JSONObject jwk) throws GeneralSecurityException {
+        switch (jwk.getString("kty")) {
+            case "RSA":
+                return KeyFactory.getInstance("RSA")
+                        .generatePublic(new RSAPublicKeySpec(unsigned(jwk.getString("n")), unsigned(jwk.getString("e"))));
+            case "EC":
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curveName(jwk.getString("crv"))));
+                ECPoint point = new ECPoint(unsigned(jwk.getString("x")), unsigned(jwk.getString("y")));
+                return KeyFactory.getInstance("EC")
+                        .generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+            default:
+                return null;
+        }
+    }
+
+    private static String curveName(String crv) throws GeneralSecurityException {
+        switch (crv) {
+            case "P-256":
+                return "secp256r1";
+            case "P-384":
+                return "secp384r1";
+            case "P-521":
+                return "secp521r1";
+            default:
+                throw new GeneralSecurityException("Unsupported curve " + crv);
+        }
+    }
+
+    private static BigInteger unsigned(String base64Url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+    }
+
+    private static String fetch(String uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", "application/json");
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Fetching " + uri + " returned HTTP " + connection.getResponseCode());
+            }
+            try (InputStream input = connection.getInputStream()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+                return new String(body.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package application.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Log-normal latency given by its median and 99th percentile in milliseconds,
+ * which is close to the long-tailed shape of peer and orderer response times.
+ *
+ * A profile entry is either a number of milliseconds for a fixed latency, or
+ * an object such as {"median":20,"p99":80}.
+ */
+final class LatencyDistribution {
+
+    static final LatencyDistribution NONE = new LatencyDistribution(0, 0);
+
+    // Standard normal quantile of the 99th percentile.
+    private static final double Z_99 = 2.326348;
+
+    private final double medianMillis;
+    private final double p99Millis;
+    private final double sigma;
+
+    LatencyDistribution(double medianMillis, double p99Millis) {
+        this.medianMillis = Math.max(0, medianMillis);
+        this.p99Millis = Math.max(this.medianMillis, p99Millis);
+        this.sigma = this.medianMillis > 0 ? Math.log(this.p99Millis / this.medianMillis) / Z_99 : 0;
+    }
+
+    static LatencyDistribution fromProfile(JSONObject profile, String name) throws JSONException {
+        if (!profile.has(name)) {
+            return NONE;
+        }
+        JSONObject spec = profile.optJSONObject(name);
+        if (spec == null) {
+            double fixed = profile.getDouble(name);
+            return new LatencyDistribution(fixed, fixed);
+        }
+        double median = spec.getDouble("median");
+        return new LatencyDistribution(median, spec.optDouble("p99", median));
+    }
+
+    long sampleNanos() {
+        if (medianMillis <= 0) {
+            return 0;
+        }
+        double millis = sigma > 0 ? medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()) : medianMillis;
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    void sleep() throws InterruptedException {
+        long nanos = sampleNanos();
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{median=" + medianMillis + "ms, p99=" + p99Millis + "ms}";
+    }
+}
@@ -0,0 +1,56 @@
+package application.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percentiles of the latest latency samples.
+ *
+ * Keeps the last samples in a ring and sorts a copy of them to find
+ * percentiles, at most once every refresh samples, so that recording stays
+ * cheap on the request path and the percentiles follow recent behaviour.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private final int refresh;
+    private int next = 0;
+    private int size = 0;
+    private int sinceSorted = 0;
+    private long[] sorted = new long[0];
+
+    public LatencyTracker(int capacity, int refresh) {
+        this.samples = new long[capacity];
+        this.refresh = Math.max(1, refresh);
+    }
+
+    public synchronized void record(long latency, TimeUnit unit) {
+        samples[next] = unit.toNanos(latency);
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        sinceSorted++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Latency below which the given percentage of the latest samples fall, -1 with no samples.
+    public long percentile(double percent, TimeUnit unit) {
+        long[] values = sortedSamples();
+        if (values.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(percent / 100 * values.length) - 1;
+        return unit.convert(values[Math.max(0, Math.min(values.length - 1, index))], TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized long[] sortedSamples() {
+        if (sinceSorted >= refresh || sorted.length == 0 && size > 0) {
+            sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            sinceSorted = 0;
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,299 @@
+package application.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractEvent;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Transaction;
+import org.hyperledger.fabric.gateway.spi.Checkpointer;
+import org.hyperledger.fabric.sdk.Peer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import application.utils.LocalLedger.State;
+
+/**
+ * The MyAsset contract run against a LocalLedger namespace.
+ *
+ * Transactions behave like the contract generated by the IBM Blockchain
+ * Platform extension: assets are stored as {"value":...} and each function
+ * fails when the asset does or does not exist as it expects. listMyAssets
+ * pages through a key range as the contracts behind GET /myassets do.
+ */
+class LocalContract implements Contract {
+    private static final String MVCC_READ_CONFLICT = "MVCC_READ_CONFLICT";
+
+    private final LocalLedger ledger;
+    private final String channel;
+    private final String chaincodeId;
+    private final ConcurrentSkipListMap<String, State> worldState;
+    private final TransactionStatusIndex transactions;
+    private final AssetCache assets;
+
+    LocalContract(LocalLedger ledger, String channel, String chaincodeId, TransactionStatusIndex transactions, AssetCache assets) {
+        this.ledger = ledger;
+        this.channel = channel;
+        this.chaincodeId = chaincodeId;
+        this.worldState = ledger.namespace(channel, chaincodeId);
+        this.transactions = transactions;
+        this.assets = assets;
+    }
+
+    @Override
+    public Transaction createTransaction(String name) {
+        return new LocalTransaction(name);
+    }
+
+    @Override
+    public byte[] submitTransaction(String name, String... args) throws ContractException, TimeoutException, InterruptedException {
+        return createTransaction(name).submit(args);
+    }
+
+    @Override
+    public byte[] evaluateTransaction(String name, String... args) throws ContractException {
+        return createTransaction(name).evaluate(args);
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener, String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Consumer<ContractEvent> listener, Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener,
+            String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(Checkpointer checkpointer, Consumer<ContractEvent> listener,
+            Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener,
+            String eventName) {
+        return listener;
+    }
+
+    @Override
+    public Consumer<ContractEvent> addContractListener(long startBlock, Consumer<ContractEvent> listener,
+            Pattern eventNamePattern) {
+        return listener;
+    }
+
+    @Override
+    public void removeContractListener(Consumer<ContractEvent> listener) {
+    }
+
+    // The outcome of simulating a transaction: the state it read and the state it writes, null to delete.
+    private static final class ReadWrite {
+        private final String key;
+        private final State read;
+        private final State write;
+        private final byte[] result;
+
+        ReadWrite(String key, State read, State write, byte[] result) {
+            this.key = key;
+            this.read = read;
+            this.write = write;
+            this.result = result;
+        }
+    }
+
+    private class LocalTransaction implements Transaction {
+        private final String name;
+
+        LocalTransaction(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Transaction setTransient(Map<String, byte[]> transientData) {
+            return this;
+        }
+
+        @Override
+        public Transaction setCommitTimeout(long timeout, TimeUnit timeUnit) {
+            return this;
+        }
+
+        @Override
+        public Transaction setEndorsingPeers(Collection<Peer> peers) {
+            return this;
+        }
+
+        @Override
+        public byte[] evaluate(String... args) throws ContractException {
+            try {
+                ledger.getEndorseLatency().sleep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ContractException("Interrupted evaluating transaction " + name + ".", e);
+            }
+            return simulate(args).result;
+        }
+
+        @Override
+        public byte[] submit(String... args) throws ContractException, TimeoutException, InterruptedException {
+            ledger.getEndorseLatency().sleep();
+            if (ledger.injectFailure()) {
+                throw new ContractException("No valid proposal responses received for transaction " + name + ".");
+            }
+            ReadWrite readWrite = simulate(args);
+            String transactionId = UUID.randomUUID().toString().replace("-", "");
+            TransactionIdCapture.record(transactionId);
+            transactions.pending(transactionId);
+
+            if (!CommitTracker.isWaitingForCommit()) {
+                ledger.commitLater(() -> {
+                    if (validate(transactionId, readWrite) && assets != null) {
+                        assets.invalidate(channel, chaincodeId, readWrite.key);
+                    }
+                }, ledger.getCommitLatency().sampleNanos());
+                return readWrite.result;
+            }
+            ledger.getCommitLatency().sleep();
+            if (!validate(transactionId, readWrite)) {
+                throw new ContractException("Transaction " + transactionId + " failed to commit with status code " + MVCC_READ_CONFLICT);
+            }
+            if (ledger.injectTimeout()) {
+                // The transaction is committed, only the wait for it failed.
+                throw new TimeoutException("Timeout waiting for commit of transaction " + transactionId);
+            }
+            return readWrite.result;
+        }
+
+        private ReadWrite simulate(String... args) throws ContractException {
+            if (args.length < 1) {
+                throw new ContractException("Transaction " + name + " requires an asset ID.");
+            }
+            String myAssetId = args[0];
+            State current = worldState.get(myAssetId);
+            switch (name) {
+                case "myAssetExists":
+                    return new ReadWrite(myAssetId, current, current, Boolean.toString(current != null).getBytes(StandardCharsets.UTF_8));
+                case "readMyAsset":
+                    requireExists(myAssetId, current, true);
+                    return new ReadWrite(myAssetId, current, current, current.value);
+                case "createMyAsset":
+                    requireExists(myAssetId, current, false);
+                    return new ReadWrite(myAssetId, current, asset(args), new byte[0]);
+                case "updateMyAsset":
+                    requireExists(myAssetId, current, true);
+                    return new ReadWrite(myAssetId, current, asset(args), new byte[0]);
+                case "deleteMyAsset":
+                    requireExists(myAssetId, current, true);
+                    return new ReadWrite(myAssetId, current, null, new byte[0]);
+                case "listMyAssets":
+                    return new ReadWrite(myAssetId, current, current, list(args));
+                case "queryMyAssets":
+                    throw new ContractException("ExecuteQuery not supported for leveldb");
+                default:
+                    throw new ContractException("You've asked to invoke a function that does not exist: " + name);
+            }
+        }
+
+        private void requireExists(String myAssetId, State current, boolean expected) throws ContractException {
+            if ((current != null) != expected) {
+                throw new ContractException("The my asset " + myAssetId + (expected ? " does not exist" : " already exists"));
+            }
+        }
+
+        // Answers listMyAssets(startKey, endKey, pageSize, bookmark), the bookmark being the next key to return.
+        private byte[] list(String... args) throws ContractException {
+            if (args.length < 4) {
+                throw new ContractException("Transaction " + name + " requires a start key, end key, page size and bookmark.");
+            }
+            int pageSize;
+            try {
+                pageSize = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                throw new ContractException("Invalid page size " + args[2], e);
+            }
+            String from = args[3].compareTo(args[0]) > 0 ? args[3] : args[0];
+            Map<String, State> range;
+            if (args[1].isEmpty()) {
+                range = worldState.tailMap(from);
+            } else if (from.compareTo(args[1]) < 0) {
+                range = worldState.subMap(from, args[1]);
+            } else {
+                range = Collections.emptyMap();
+            }
+            JSONArray records = new JSONArray();
+            String bookmark = "";
+            for (Map.Entry<String, State> entry : range.entrySet()) {
+                if (records.length() == pageSize) {
+                    bookmark = entry.getKey();
+                    break;
+                }
+                records.put(new JSONObject().put("key", entry.getKey())
+                        .put("record", new JSONObject(new String(entry.getValue().value, StandardCharsets.UTF_8))));
+            }
+            return new JSONObject().put("records", records).put("bookmark", bookmark).toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private State asset(String... args) throws ContractException {
+            if (args.length < 2) {
+                throw new ContractException("Transaction " + name + " requires a value.");
+            }
+            return new State(new JSONObject().put("value", args[1]).toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private boolean validate(String transactionId, ReadWrite readWrite) {
+            boolean valid = !ledger.injectConflict() && commit(readWrite);
+            transactions.complete(transactionId, valid ? TransactionStatusIndex.VALID : MVCC_READ_CONFLICT);
+            return valid;
+        }
+
+        // Applies the write only if the key still holds the state read during endorsement.
+        private boolean commit(ReadWrite readWrite) {
+            if (readWrite.write == readWrite.read) {
+                return worldState.get(readWrite.key) == readWrite.read;
+            }
+            if (readWrite.read == null) {
+                return worldState.putIfAbsent(readWrite.key, readWrite.write) == null;
+            }
+            if (readWrite.write == null) {
+                return worldState.remove(readWrite.key, readWrite.read);
+            }
+            return worldState.replace(readWrite.key, readWrite.read, readWrite.write);
+        }
+    }
+}
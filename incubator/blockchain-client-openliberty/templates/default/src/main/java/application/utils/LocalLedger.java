@@ -0,0 +1,252 @@
+package application.utils;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.Wallet.Identity;
+import org.hyperledger.fabric.gateway.spi.Checkpointer;
+import org.hyperledger.fabric.gateway.spi.CommitListener;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Peer;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * In-process stand-in for a Fabric network, used to load test the service
+ * without one.
+ *
+ * Selected with FABRIC_LEDGER_PROFILE, for example
+ * {"type":"LOCAL","endorseLatency":{"median":20,"p99":80},"commitLatency":{"median":500,"p99":2000},
+ * "conflictRate":0.01,"failureRate":0.001,"timeoutRate":0}.
+ * Gateways handed out by the ledger run the MyAsset contract against an
+ * in-memory world state shared by the whole process. Writes are validated at
+ * commit time against the versions read at endorsement, so concurrent writes
+ * to one asset fail with MVCC_READ_CONFLICT as they would on a peer.
+ * Range queries are supported, rich queries fail as they do on LevelDB.
+ * Submits that do not wait for the commit are committed in the background,
+ * which also drops the asset from the read cache in place of a block event.
+ * Identities are not checked and no block events are delivered.
+ */
+public class LocalLedger {
+    public static final Logger LOGGER = Logger.getLogger(LocalLedger.class.getName());
+
+    private static final String LEDGER_TYPE_FABRIC = "FABRIC";
+    private static final String LEDGER_TYPE_LOCAL = "LOCAL";
+
+    private static volatile boolean resolved = false;
+    private static volatile LocalLedger configured = null;
+
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<String, State>> namespaces = new ConcurrentHashMap<String, ConcurrentSkipListMap<String, State>>();
+    private final LatencyDistribution endorseLatency;
+    private final LatencyDistribution commitLatency;
+    private final double conflictRate;
+    private final double failureRate;
+    private final double timeoutRate;
+    private volatile ScheduledExecutorService committer;
+
+    LocalLedger(LatencyDistribution endorseLatency, LatencyDistribution commitLatency, double conflictRate,
+            double failureRate, double timeoutRate) {
+        this.endorseLatency = endorseLatency;
+        this.commitLatency = commitLatency;
+        this.conflictRate = conflictRate;
+        this.failureRate = failureRate;
+        this.timeoutRate = timeoutRate;
+    }
+
+    // The ledger selected by FABRIC_LEDGER_PROFILE, or null when the Fabric network is used.
+    public static LocalLedger getConfigured() throws GatewayException {
+        if (!resolved) {
+            synchronized (LocalLedger.class) {
+                if (!resolved) {
+                    configured = fromProfile(ConnectionConfiguration.getLedgerProfile());
+                    resolved = true;
+                }
+            }
+        }
+        return configured;
+    }
+
+    public static LocalLedger fromProfile(String ledgerProfileString) throws GatewayException {
+        try {
+            JSONObject ledgerProfile = new JSONObject(ledgerProfileString);
+            String ledgerType = ledgerProfile.getString("type").toUpperCase();
+            if (ledgerType.equals(LEDGER_TYPE_FABRIC)) {
+                return null;
+            }
+            if (!ledgerType.equals(LEDGER_TYPE_LOCAL)) {
+                LOGGER.severe("Invalid ledger type: " + ledgerType);
+                throw new GatewayException("Invalid ledger type.");
+            }
+            LocalLedger ledger = new LocalLedger(LatencyDistribution.fromProfile(ledgerProfile, "endorseLatency"),
+                    LatencyDistribution.fromProfile(ledgerProfile, "commitLatency"),
+                    ledgerProfile.optDouble("conflictRate", 0), ledgerProfile.optDouble("failureRate", 0),
+                    ledgerProfile.optDouble("timeoutRate", 0));
+            LOGGER.warning("Using the local ledger stand-in instead of a Fabric network: " + ledger);
+            return ledger;
+        } catch (JSONException e) {
+            LOGGER.severe("Could not parse the ledger profile: " + e.toString());
+            throw new GatewayException("Error parsing ledger profile.", e);
+        }
+    }
+
+    public Gateway connect(String fabricId, TransactionStatusIndex transactions, AssetCache assets) {
+        return new LocalGateway(transactions, assets);
+    }
+
+    // Runs a commit once its latency has passed, for submits that do not wait for it.
+    void commitLater(Runnable commit, long delayNanos) {
+        ScheduledExecutorService executor = committer;
+        if (executor == null) {
+            synchronized (this) {
+                if (committer == null) {
+                    committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "local-ledger-commit");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                executor = committer;
+            }
+        }
+        executor.schedule(commit, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Sorted by key, as range queries are.
+    ConcurrentSkipListMap<String, State> namespace(String channel, String chaincodeId) {
+        return namespaces.computeIfAbsent(channel + '\u0000' + chaincodeId, name -> new ConcurrentSkipListMap<String, State>());
+    }
+
+    LatencyDistribution getEndorseLatency() {
+        return endorseLatency;
+    }
+
+    LatencyDistribution getCommitLatency() {
+        return commitLatency;
+    }
+
+    boolean injectConflict() {
+        return happens(conflictRate);
+    }
+
+    boolean injectFailure() {
+        return happens(failureRate);
+    }
+
+    boolean injectTimeout() {
+        return happens(timeoutRate);
+    }
+
+    private static boolean happens(double rate) {
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    @Override
+    public String toString() {
+        return "endorseLatency=" + endorseLatency + ", commitLatency=" + commitLatency + ", conflictRate=" + conflictRate
+                + ", failureRate=" + failureRate + ", timeoutRate=" + timeoutRate;
+    }
+
+    // A committed value. Writes replace the instance, so its identity is its version.
+    static final class State {
+        final byte[] value;
+
+        State(byte[] value) {
+            this.value = value;
+        }
+    }
+
+    private class LocalGateway implements Gateway {
+        private final TransactionStatusIndex transactions;
+        private final AssetCache assets;
+
+        LocalGateway(TransactionStatusIndex transactions, AssetCache assets) {
+            this.transactions = transactions;
+            this.assets = assets;
+        }
+
+        @Override
+        public Network getNetwork(String channel) {
+            return new LocalNetwork(this, channel);
+        }
+
+        @Override
+        public Identity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class LocalNetwork implements Network {
+        private final LocalGateway gateway;
+        private final String channel;
+
+        LocalNetwork(LocalGateway gateway, String channel) {
+            this.gateway = gateway;
+            this.channel = channel;
+        }
+
+        @Override
+        public Contract getContract(String chaincodeId) {
+            return new LocalContract(LocalLedger.this, channel, chaincodeId, gateway.transactions, gateway.assets);
+        }
+
+        @Override
+        public Contract getContract(String chaincodeId, String name) {
+            return getContract(chaincodeId);
+        }
+
+        @Override
+        public Gateway getGateway() {
+            return gateway;
+        }
+
+        // There is no SDK channel, callers needing one check LocalLedger.getConfigured() first.
+        @Override
+        public Channel getChannel() {
+            return null;
+        }
+
+        @Override
+        public Consumer<BlockEvent> addBlockListener(Consumer<BlockEvent> listener) {
+            return listener;
+        }
+
+        @Override
+        public Consumer<BlockEvent> addBlockListener(Checkpointer checkpointer, Consumer<BlockEvent> listener) {
+            return listener;
+        }
+
+        @Override
+        public Consumer<BlockEvent> addBlockListener(long startBlock, Consumer<BlockEvent> listener) {
+            return listener;
+        }
+
+        @Override
+        public void removeBlockListener(Consumer<BlockEvent> listener) {
+        }
+
+        @Override
+        public CommitListener addCommitListener(CommitListener listener, Collection<Peer> peers, String transactionId) {
+            return listener;
+        }
+
+        @Override
+        public void removeCommitListener(CommitListener listener) {
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package application.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Responsiveness of each peer, used to send evaluates to the fastest healthy
+ * peers.
+ *
+ * Each peer keeps exponentially weighted moving averages of the latency of
+ * its answers and of its error rate. Its cost is that latency plus a penalty
+ * for the share of queries it fails, so that a peer failing fast does not
+ * look fast. Peers are chosen by the power of two choices: two peers are picked
+ * at random and the cheaper one is used, which favours fast peers without
+ * sending every query to the single fastest one. The averages decay towards
+ * zero while a peer is not used, so a peer that was slow or failing a while
+ * ago is tried again instead of being avoided for good.
+ */
+public class PeerScores {
+
+    private static volatile PeerScores defaultScores = null;
+
+    // Weight of the latest sample in the moving averages.
+    private static final double ALPHA = 0.2;
+    // Milliseconds added to the cost of a peer whose every query fails.
+    private static final double ERROR_PENALTY_MILLIS = 1000;
+
+    private final Map<String, Score> scores = new ConcurrentHashMap<String, Score>();
+    private final double decayMillis;
+
+    // Scores halve in weight for every half-life they are not updated.
+    public PeerScores(long halfLife, TimeUnit unit) {
+        this.decayMillis = unit.toMillis(halfLife) / Math.log(2);
+    }
+
+    public static PeerScores getDefault() {
+        if (defaultScores == null) {
+            synchronized (PeerScores.class) {
+                if (defaultScores == null) {
+                    defaultScores = new PeerScores(ConnectionConfiguration.getPeerScoreHalfLife(), TimeUnit.SECONDS);
+                }
+            }
+        }
+        return defaultScores;
+    }
+
+    public void record(String peer, long latency, TimeUnit unit, boolean failed, long nowMillis) {
+        scores.computeIfAbsent(peer, name -> new Score()).update(unit.toNanos(latency), failed, nowMillis, decayMillis);
+    }
+
+    // A peer not queried yet costs nothing, so that it is tried.
+    public double cost(String peer, long nowMillis) {
+        Score score = scores.get(peer);
+        return score != null ? score.snapshot(peer, nowMillis, decayMillis).getCost() : 0;
+    }
+
+    /**
+     * The order to query the peers in: the better of two random peers first,
+     * then the other of the two, which hedged and failed over queries go to
+     * next, then the rest from cheapest to dearest.
+     */
+    public <P> List<P> order(List<P> peers, Function<P, String> name, long nowMillis) {
+        List<P> ordered = new ArrayList<P>(peers);
+        if (ordered.size() < 2) {
+            return ordered;
+        }
+        Map<P, Double> costs = new HashMap<P, Double>();
+        for (P peer : ordered) {
+            costs.put(peer, cost(name.apply(peer), nowMillis));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(ordered.size());
+        int second = random.nextInt(ordered.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        P a = ordered.get(first);
+        P b = ordered.get(second);
+        if (costs.get(b) < costs.get(a)) {
+            P swap = a;
+            a = b;
+            b = swap;
+        }
+        ordered.remove(a);
+        ordered.remove(b);
+        ordered.sort(Comparator.comparing(costs::get));
+        ordered.add(0, b);
+        ordered.add(0, a);
+        return ordered;
+    }
+
+    // Current scores of every peer queried so far, by peer name.
+    public List<Snapshot> getScores(long nowMillis) {
+        List<Snapshot> snapshots = new ArrayList<Snapshot>();
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            snapshots.add(entry.getValue().snapshot(entry.getKey(), nowMillis, decayMillis));
+        }
+        Collections.sort(snapshots, Comparator.comparing(Snapshot::getPeer));
+        return snapshots;
+    }
+
+    private static final class Score {
+        private double latencyNanos;
+        private double errorRate;
+        private long updatedMillis;
+        private long queries;
+        private long errors;
+
+        synchronized void update(long sampleNanos, boolean failed, long nowMillis, double decayMillis) {
+            // The older the averages, the less they weigh against the new sample.
+            double keep = queries > 0 ? (1 - ALPHA) * decay(nowMillis, decayMillis) : 0;
+            errorRate = keep * errorRate + (1 - keep) * (failed ? 1 : 0);
+            if (!failed) {
+                // A failure's latency says nothing about how fast the peer answers.
+                latencyNanos = queries > errors ? keep * latencyNanos + (1 - keep) * sampleNanos : sampleNanos;
+            }
+            updatedMillis = nowMillis;
+            queries++;
+            errors += failed ? 1 : 0;
+        }
+
+        private double decay(long nowMillis, double decayMillis) {
+            long idle = Math.max(0, nowMillis - updatedMillis);
+            return decayMillis > 0 ? Math.exp(-idle / decayMillis) : 1;
+        }
+
+        synchronized Snapshot snapshot(String peer, long nowMillis, double decayMillis) {
+            double weight = decay(nowMillis, decayMillis);
+            return new Snapshot(peer, latencyNanos * weight / TimeUnit.MILLISECONDS.toNanos(1), errorRate * weight,
+                    queries, errors, nowMillis - updatedMillis);
+        }
+    }
+
+    // A peer's decayed averages, as reported by GET /admin/peers.
+    public static final class Snapshot {
+        private final String peer;
+        private final double latencyMillis;
+        private final double errorRate;
+        private final long queries;
+        private final long errors;
+        private final long idleMillis;
+
+        Snapshot(String peer, double latencyMillis, double errorRate, long queries, long errors, long idleMillis) {
+            this.peer = peer;
+            this.latencyMillis = latencyMillis;
+            this.errorRate = errorRate;
+            this.queries = queries;
+            this.errors = errors;
+            this.idleMillis = idleMillis;
+        }
+
+        public String getPeer() {
+            return peer;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public double getCost() {
+            return latencyMillis + ERROR_PENALTY_MILLIS * errorRate;
+        }
+
+        public long getQueries() {
+            return queries;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getIdleMillis() {
+            return idleMillis;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package application.utils;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hyperledger.fabric.gateway.ContractException;
+
+/**
+ * Shares one peer query between concurrent reads of the same asset, keyed by
+ * (identity, channel, contract, asset ID).
+ *
+ * The first read of a key queries the peer and every read of the key that
+ * arrives while it is in flight waits for its result, or its failure,
+ * instead of sending a query of its own, for at most its own timeout.
+ * Nothing is kept once the query completes, so a read never returns a
+ * result older than one that was already in flight when it arrived.
+ */
+public class ReadCoalescer {
+
+    private final ConcurrentHashMap<ReadKey, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<ReadKey, CompletableFuture<byte[]>>();
+    private final boolean enabled;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public ReadCoalescer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @FunctionalInterface
+    public interface Read {
+        byte[] evaluate() throws ContractException;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public byte[] read(String identity, String channel, String contract, String assetId, Read read) throws ContractException {
+        return read(identity, channel, contract, assetId, read, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // A read that finds a query in flight waits for it at most the timeout, 0 waits for as long as the query takes.
+    public byte[] read(String identity, String channel, String contract, String assetId, Read read, long timeout,
+            TimeUnit unit) throws ContractException {
+        if (!enabled) {
+            queries.increment();
+            return read.evaluate();
+        }
+        ReadKey key = new ReadKey(identity, channel, contract, assetId);
+        CompletableFuture<byte[]> query = new CompletableFuture<byte[]>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, query);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing, unit.toNanos(timeout));
+        }
+        queries.increment();
+        try {
+            byte[] result = read.evaluate();
+            inFlight.remove(key, query);
+            query.complete(result);
+            return result;
+        } catch (Throwable e) {
+            inFlight.remove(key, query);
+            query.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> query, long timeoutNanos) throws ContractException {
+        try {
+            return timeoutNanos > 0 ? query.get(timeoutNanos, TimeUnit.NANOSECONDS) : query.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ContractException("Interrupted waiting for a read in flight.", e);
+        } catch (TimeoutException e) {
+            throw new ContractException("Timed out waiting for a read in flight.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ContractException) {
+                throw (ContractException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    // Peer queries sent on behalf of reads.
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    // Reads answered by a query another read had in flight.
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static final class ReadKey {
+        private final String identity;
+        private final String channel;
+        private final String contract;
+        private final String assetId;
+        private final int hash;
+
+        ReadKey(String identity, String channel, String contract, String assetId) {
+            this.identity = identity;
+            this.channel = channel;
+            this.contract = contract;
+            this.assetId = assetId;
+            int h = 1;
+            h = 31 * h + Objects.hashCode(identity);
+            h = 31 * h + Objects.hashCode(channel);
+            h = 31 * h + Objects.hashCode(contract);
+            h = 31 * h + Objects.hashCode(assetId);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ReadKey)) {
+                return false;
+            }
+            ReadKey other = (ReadKey) obj;
+            return hash == other.hash && Objects.equals(identity, other.identity) && Objects.equals(channel, other.channel)
+                    && Objects.equals(contract, other.contract) && Objects.equals(assetId, other.assetId);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package application.utils;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Bounded executor for transactions that wait on a commit.
+ *
+ * Submitting a transaction blocks until the commit event arrives, so the
+ * REST layer hands submits to this executor instead of holding a servlet
+ * thread. Both the number of threads and the queue in front of them are
+ * bounded; work that does not fit is rejected straight away rather than
+ * piling up.
+ */
+public class SubmitExecutor {
+    public static final Logger LOGGER = Logger.getLogger(SubmitExecutor.class.getName());
+
+    private static final SubmitExecutor defaultExecutor = new SubmitExecutor(ConnectionConfiguration.getSubmitThreads(),
+            ConnectionConfiguration.getSubmitQueueSize(), ConnectionConfiguration.getSubmitTimeout(), TimeUnit.SECONDS);
+
+    static {
+        ClientMetrics.gauge("submit.queue.depth", "Submitted transactions waiting for a thread.", MetricUnits.NONE, defaultExecutor::getQueueDepth);
+        ClientMetrics.gauge("submit.queue.capacity", "Submitted transactions allowed to wait for a thread.", MetricUnits.NONE, defaultExecutor::getQueueCapacity);
+        ClientMetrics.gauge("submit.active", "Threads currently submitting a transaction.", MetricUnits.NONE, defaultExecutor::getActiveCount);
+        ClientMetrics.counter("submit.rejections", "Submitted transactions rejected because the executor was full.", defaultExecutor::getRejections);
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final LongAdder rejections = new LongAdder();
+
+    public SubmitExecutor(int threads, int queueCapacity, long timeout, TimeUnit unit) {
+        AtomicInteger threadCount = new AtomicInteger();
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new LinkedBlockingQueue<Runnable>(queueCapacity)
+                : new SynchronousQueue<Runnable>();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "fabric-submit-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    public static SubmitExecutor getDefault() {
+        return defaultExecutor;
+    }
+
+    // Throws RejectedExecutionException straight away if both the threads and the queue are full.
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            LOGGER.warning("Submit executor is full, rejecting transaction.");
+            throw e;
+        }
+    }
+
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
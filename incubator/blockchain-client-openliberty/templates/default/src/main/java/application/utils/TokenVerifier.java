@@ -0,0 +1,312 @@
+package application.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import application.metrics.ClientMetrics;
+
+/**
+ * Verifies signed JWT bearer tokens, such as OIDC access tokens, and returns
+ * the principal they were issued to.
+ *
+ * Selected with FABRIC_AUTH_PROFILE, for example
+ * {"type":"JWT","jwksUri":"https://issuer/jwks","issuer":"https://issuer","audience":"myassets"}.
+ * Tokens must be signed with RS256/384/512 or ES256/384/512 by a key of the
+ * issuer's key set, carry an expiry, and match the issuer and audience when
+ * those are configured. The principal is the sub claim unless principalClaim
+ * names another.
+ *
+ * Verified tokens are cached by digest until they expire, so a token is only
+ * verified the first time it is presented. A key the issuer withdraws is
+ * therefore only noticed for new tokens.
+ */
+public class TokenVerifier {
+    public static final Logger LOGGER = Logger.getLogger(TokenVerifier.class.getName());
+
+    private static final String AUTH_TYPE_NONE = "NONE";
+    private static final String AUTH_TYPE_JWT = "JWT";
+    private static final long DEFAULT_JWKS_REFRESH = 300;
+    private static final long DEFAULT_CLOCK_SKEW = 60;
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static volatile boolean resolved = false;
+    private static volatile TokenVerifier configured = null;
+
+    private final JwksKeySet keys;
+    private final String issuer;
+    private final String audience;
+    private final String principalClaim;
+    private final long clockSkewMillis;
+    private final VerifiedTokenCache cache;
+
+    public TokenVerifier(JwksKeySet keys, String issuer, String audience, String principalClaim, long clockSkew,
+            TimeUnit unit, int cacheSize) {
+        this.keys = keys;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.principalClaim = principalClaim;
+        this.clockSkewMillis = unit.toMillis(clockSkew);
+        this.cache = new VerifiedTokenCache(cacheSize);
+    }
+
+    // The verifier selected by FABRIC_AUTH_PROFILE, or null when requests are not authenticated here.
+    public static TokenVerifier getConfigured() throws IdentityException {
+        if (!resolved) {
+            synchronized (TokenVerifier.class) {
+                if (!resolved) {
+                    configured = fromProfile(ConnectionConfiguration.getAuthProfile());
+                    if (configured != null) {
+                        configured.registerMetrics();
+                    }
+                    resolved = true;
+                }
+            }
+        }
+        return configured;
+    }
+
+    public static TokenVerifier fromProfile(String authProfileString) throws IdentityException {
+        if (authProfileString == null || authProfileString.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            JSONObject authProfile = new JSONObject(authProfileString);
+            String authType = authProfile.getString("type").toUpperCase();
+            if (authType.equals(AUTH_TYPE_NONE)) {
+                return null;
+            }
+            if (!authType.equals(AUTH_TYPE_JWT)) {
+                LOGGER.severe("Invalid auth type: " + authType);
+                throw new IdentityException("Invalid auth type.");
+            }
+            JwksKeySet keys = JwksKeySet.fromUri(authProfile.getString("jwksUri"),
+                    authProfile.optLong("jwksRefresh", DEFAULT_JWKS_REFRESH));
+            return new TokenVerifier(keys, authProfile.optString("issuer", null), authProfile.optString("audience", null),
+                    authProfile.optString("principalClaim", "sub"), authProfile.optLong("clockSkew", DEFAULT_CLOCK_SKEW),
+                    TimeUnit.SECONDS, authProfile.optInt("cacheSize", DEFAULT_CACHE_SIZE));
+        } catch (JSONException e) {
+            LOGGER.severe("Could not parse the auth profile: " + e.toString());
+            throw new IdentityException("Error parsing auth profile.", e);
+        }
+    }
+
+    private void registerMetrics() {
+        ClientMetrics.gauge("auth.token.cache.size", "Number of verified tokens in the cache.", MetricUnits.NONE, cache::size);
+        ClientMetrics.gauge("auth.token.cache.hitRatio", "Share of bearer tokens served from the verified token cache.", MetricUnits.NONE, cache::getHitRatio);
+        ClientMetrics.counter("auth.token.cache.hits", "Bearer tokens served from the verified token cache.", cache::getHits);
+        ClientMetrics.counter("auth.token.cache.misses", "Bearer tokens that had to be verified.", cache::getMisses);
+        ClientMetrics.counter("auth.token.cache.evictions", "Verified tokens dropped to stay within the cache limit.", cache::getEvictions);
+        ClientMetrics.gauge("auth.jwks.size", "Number of signing keys in the issuer's key set.", MetricUnits.NONE, keys::size);
+    }
+
+    // The principal of a valid token, or null when the token is not valid.
+    public String verify(String token) {
+        long now = System.currentTimeMillis();
+        byte[] digest = sha256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        String principal = cache.get(digest, now);
+        if (principal != null) {
+            return principal;
+        }
+        long start = System.nanoTime();
+        try {
+            JSONObject claims = verifySignature(token);
+            long expiresAt = validateClaims(claims, now);
+            principal = claims.optString(principalClaim, null);
+            if (principal == null || principal.isEmpty()) {
+                throw new InvalidTokenException("claim", "Token has no " + principalClaim + " claim.");
+            }
+            cache.put(digest, principal, expiresAt);
+            return principal;
+        } catch (InvalidTokenException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Rejected bearer token: " + e.getMessage());
+            }
+            ClientMetrics.increment("auth.token.rejected", "Bearer tokens that failed verification, by reason.", new Tag("reason", e.reason));
+            return null;
+        } finally {
+            ClientMetrics.time("auth.token.verify.time", "Time taken to verify a bearer token that was not cached.",
+                    System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private JSONObject verifySignature(String token) throws InvalidTokenException {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new InvalidTokenException("format", "Token is not a signed JWT.");
+        }
+        try {
+            JSONObject header = new JSONObject(decode(token.substring(0, headerEnd)));
+            String algorithm = header.optString("alg");
+            PublicKey key = keys.get(header.optString("kid", null));
+            if (key == null) {
+                throw new InvalidTokenException("key", "No key " + header.optString("kid") + " in the key set.");
+            }
+            Signature signature = signatureFor(algorithm, key);
+            signature.update(token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII));
+            byte[] signatureBytes = Base64.getUrlDecoder().decode(token.substring(payloadEnd + 1));
+            if (key instanceof ECPublicKey) {
+                signatureBytes = toDer(signatureBytes);
+            }
+            if (!signature.verify(signatureBytes)) {
+                throw new InvalidTokenException("signature", "Token signature does not match.");
+            }
+            return new JSONObject(decode(token.substring(headerEnd + 1, payloadEnd)));
+        } catch (JSONException | IllegalArgumentException | GeneralSecurityException e) {
+            throw new InvalidTokenException("format", "Token could not be parsed: " + e.toString());
+        }
+    }
+
+    private static Signature signatureFor(String algorithm, PublicKey key) throws InvalidTokenException, GeneralSecurityException {
+        String name;
+        switch (algorithm) {
+            case "RS256":
+            case "RS384":
+            case "RS512":
+                name = "SHA" + algorithm.substring(2) + "withRSA";
+                if (!(key instanceof RSAPublicKey)) {
+                    throw new InvalidTokenException("algorithm", "Algorithm " + algorithm + " does not match the key.");
+                }
+                break;
+            case "ES256":
+            case "ES384":
+            case "ES512":
+                name = "SHA" + algorithm.substring(2) + "withECDSA";
+                if (!(key instanceof ECPublicKey)) {
+                    throw new InvalidTokenException("algorithm", "Algorithm " + algorithm + " does not match the key.");
+                }
+                break;
+            default:
+                // Includes none and the HMAC algorithms, which a public key set cannot verify.
+                throw new InvalidTokenException("algorithm", "Unsupported algorithm " + algorithm + ".");
+        }
+        Signature signature = Signature.getInstance(name);
+        signature.initVerify(key);
+        return signature;
+    }
+
+    // Returns when the token stops being valid, in milliseconds.
+    private long validateClaims(JSONObject claims, long now) throws InvalidTokenException {
+        if (!claims.has("exp")) {
+            throw new InvalidTokenException("expiry", "Token has no expiry.");
+        }
+        long expiresAt;
+        long notBefore;
+        try {
+            expiresAt = TimeUnit.SECONDS.toMillis(claims.getLong("exp"));
+            notBefore = claims.has("nbf") ? TimeUnit.SECONDS.toMillis(claims.getLong("nbf")) : 0;
+        } catch (JSONException e) {
+            throw new InvalidTokenException("expiry", "Token expiry is not a number: " + e.getMessage());
+        }
+        if (now >= expiresAt + clockSkewMillis) {
+            throw new InvalidTokenException("expiry", "Token has expired.");
+        }
+        if (now + clockSkewMillis < notBefore) {
+            throw new InvalidTokenException("expiry", "Token is not valid yet.");
+        }
+        if (issuer != null && !issuer.equals(claims.optString("iss", null))) {
+            throw new InvalidTokenException("issuer", "Token was issued by " + claims.optString("iss") + ".");
+        }
+        if (audience != null && !hasAudience(claims.opt("aud"))) {
+            throw new InvalidTokenException("audience", "Token is not intended for " + audience + ".");
+        }
+        return expiresAt + clockSkewMillis;
+    }
+
+    private boolean hasAudience(Object aud) {
+        if (aud instanceof JSONArray) {
+            JSONArray audiences = (JSONArray) aud;
+            for (int i = 0; i < audiences.length(); i++) {
+                if (audience.equals(audiences.optString(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return audience.equals(aud);
+    }
+
+    private static String decode(String base64Url) {
+        return new String(Base64.getUrlDecoder().decode(base64Url), StandardCharsets.UTF_8);
+    }
+
+    // JWS carries ECDSA signatures as R and S concatenated, Java expects them DER encoded.
+    private static byte[] toDer(byte[] raw) throws InvalidTokenException {
+        if (raw.length == 0 || raw.length % 2 != 0) {
+            throw new InvalidTokenException("signature", "Invalid ECDSA signature length.");
+        }
+        byte[] r = derInteger(raw, 0, raw.length / 2);
+        byte[] s = derInteger(raw, raw.length / 2, raw.length / 2);
+        int length = r.length + s.length;
+        byte[] der;
+        int offset;
+        if (length < 128) {
+            der = new byte[2 + length];
+            der[1] = (byte) length;
+            offset = 2;
+        } else {
+            der = new byte[3 + length];
+            der[1] = (byte) 0x81;
+            der[2] = (byte) length;
+            offset = 3;
+        }
+        der[0] = 0x30;
+        System.arraycopy(r, 0, der, offset, r.length);
+        System.arraycopy(s, 0, der, offset + r.length, s.length);
+        return der;
+    }
+
+    private static byte[] derInteger(byte[] raw, int from, int length) {
+        int start = from;
+        int end = from + length;
+        while (start < end - 1 && raw[start] == 0) {
+            start++;
+        }
+        boolean pad = (raw[start] & 0x80) != 0;
+        int size = end - start + (pad ? 1 : 0);
+        byte[] integer = new byte[2 + size];
+        integer[0] = 0x02;
+        integer[1] = (byte) size;
+        System.arraycopy(raw, start, integer, 2 + (pad ? 1 : 0), end - start);
+        return integer;
+    }
+
+    public VerifiedTokenCache getCache() {
+        return cache;
+    }
+
+    private static class InvalidTokenException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final String reason;
+
+        InvalidTokenException(String reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package application.utils;
+
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.spi.CommitHandler;
+import org.hyperledger.fabric.gateway.spi.CommitHandlerFactory;
+
+/**
+ * Commit handler factory that records the ID of the transaction being
+ * submitted on the submitting thread.
+ *
+ * Contract.submitTransaction does not return the transaction ID, but the
+ * gateway asks its commit handler factory for a handler on the submitting
+ * thread once endorsement has succeeded. Wrapping the configured factory lets
+ * callers read the ID back with take() after the submit returns.
+ */
+public class TransactionIdCapture implements CommitHandlerFactory {
+
+    private static final ThreadLocal<String> transactionId = new ThreadLocal<String>();
+
+    private final CommitHandlerFactory delegate;
+
+    public TransactionIdCapture(CommitHandlerFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CommitHandler create(String id, Network network) {
+        record(id);
+        return delegate.create(id, network);
+    }
+
+    // For gateways that do not go through a commit handler factory.
+    static void record(String id) {
+        transactionId.set(id);
+    }
+
+    // Clears any ID left over from an earlier submit on this thread.
+    public static void reset() {
+        transactionId.remove();
+    }
+
+    // The ID of the last transaction submitted on this thread, or null if none was recorded.
+    public static String take() {
+        String id = transactionId.get();
+        transactionId.remove();
+        return id;
+    }
+}
@@ -0,0 +1,74 @@
+package application.utils;
+
+/**
+ * Where a submitted transaction stands, as reported by GET /myassets/transactions/{txId}.
+ */
+public class TransactionStatus {
+    public static final String PENDING = "PENDING";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String INVALID = "INVALID";
+    // No commit event arrived in time, the transaction may or may not have been committed.
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final String transactionId;
+    private final String status;
+    private final String validationCode;
+    private final String message;
+    private final long submittedAt;
+    private final long completedAt;
+
+    TransactionStatus(String transactionId, String status, String validationCode, String message, long submittedAt,
+            long completedAt) {
+        this.transactionId = transactionId;
+        this.status = status;
+        this.validationCode = validationCode;
+        this.message = message;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+    }
+
+    public static TransactionStatus pending(String transactionId) {
+        return new TransactionStatus(transactionId, PENDING, null, null, System.currentTimeMillis(), 0);
+    }
+
+    TransactionStatus complete(String newStatus, String newValidationCode, String newMessage) {
+        return new TransactionStatus(transactionId, newStatus, newValidationCode, newMessage, submittedAt,
+                System.currentTimeMillis());
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    // The peer's validation code, e.g. VALID or MVCC_READ_CONFLICT, once the transaction is in a block.
+    public String getValidationCode() {
+        return validationCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    // When the status stopped being pending, 0 while it is.
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    public boolean isPending() {
+        return PENDING.equals(status);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionStatus [transactionId=" + transactionId + ", status=" + status + ", validationCode="
+                + validationCode + "]";
+    }
+}
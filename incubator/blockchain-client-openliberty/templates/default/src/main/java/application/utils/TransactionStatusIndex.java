@@ -0,0 +1,134 @@
+package application.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory index of the status of recently submitted transactions.
+ *
+ * Entries are added when a transaction is sent to the orderer and completed
+ * by commit listeners. Once full, the oldest entries are dropped, pending or
+ * not, so a transaction that has been dropped reads as not found.
+ */
+public class TransactionStatusIndex {
+    public static final String VALID = "VALID";
+
+    private final ConcurrentHashMap<String, TransactionStatus> statuses = new ConcurrentHashMap<String, TransactionStatus>();
+    // Insertion order for eviction, may hold IDs that have since been removed.
+    private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<String>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxSize;
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of transactions tracked, 0 disables the index
+     */
+    public TransactionStatusIndex(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public void pending(String transactionId) {
+        if (!isEnabled() || transactionId == null) {
+            return;
+        }
+        if (statuses.putIfAbsent(transactionId, TransactionStatus.pending(transactionId)) == null) {
+            order.add(transactionId);
+            queued.incrementAndGet();
+        }
+        while (statuses.size() > maxSize || queued.get() > 2 * maxSize) {
+            String eldest = order.poll();
+            if (eldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            if (statuses.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    // Records the validation code a peer gave the transaction in its block.
+    public void complete(String transactionId, String validationCode) {
+        boolean valid = VALID.equals(validationCode);
+        if (transition(transactionId, valid ? TransactionStatus.COMMITTED : TransactionStatus.INVALID, validationCode, null)) {
+            (valid ? committed : invalid).increment();
+        }
+    }
+
+    // A commit the gateway reported as failed without the peer's validation code.
+    public void invalid(String transactionId, String message) {
+        if (transition(transactionId, TransactionStatus.INVALID, null, message)) {
+            invalid.increment();
+        }
+    }
+
+    public void unknown(String transactionId, String message) {
+        if (transition(transactionId, TransactionStatus.UNKNOWN, null, message)) {
+            unknown.increment();
+        }
+    }
+
+    // Forgets a transaction that was never sent to the orderer.
+    public void remove(String transactionId) {
+        if (transactionId != null) {
+            statuses.remove(transactionId);
+        }
+    }
+
+    public TransactionStatus get(String transactionId) {
+        return transactionId == null ? null : statuses.get(transactionId);
+    }
+
+    public boolean isPending(String transactionId) {
+        TransactionStatus status = get(transactionId);
+        return status != null && status.isPending();
+    }
+
+    private boolean transition(String transactionId, String status, String validationCode, String message) {
+        if (transactionId == null) {
+            return false;
+        }
+        boolean[] changed = new boolean[1];
+        statuses.computeIfPresent(transactionId, (id, current) -> {
+            if (!current.isPending()) {
+                return current;
+            }
+            changed[0] = true;
+            return current.complete(status, validationCode, message);
+        });
+        return changed[0];
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getCommitted() {
+        return committed.sum();
+    }
+
+    public long getInvalid() {
+        return invalid.sum();
+    }
+
+    public long getUnknown() {
+        return unknown.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,112 @@
+package application.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the principals of verified bearer tokens, keyed by the
+ * token's digest so tokens themselves are not kept in memory.
+ *
+ * An entry is served until the token expires and never after. Once full, the
+ * oldest entries are dropped first.
+ */
+public class VerifiedTokenCache {
+
+    private final ConcurrentHashMap<ByteBuffer, Entry> principals = new ConcurrentHashMap<ByteBuffer, Entry>();
+    // Insertion order for eviction, may hold digests that have since expired.
+    private final ConcurrentLinkedQueue<ByteBuffer> order = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of cached tokens, 0 disables the cache
+     */
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public String get(byte[] digest, long nowMillis) {
+        if (!isEnabled()) {
+            return null;
+        }
+        ByteBuffer key = ByteBuffer.wrap(digest);
+        Entry entry = principals.get(key);
+        if (entry != null && nowMillis >= entry.expiresAt) {
+            principals.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.principal;
+    }
+
+    public void put(byte[] digest, String principal, long expiresAtMillis) {
+        if (!isEnabled()) {
+            return;
+        }
+        ByteBuffer key = ByteBuffer.wrap(digest);
+        if (principals.put(key, new Entry(principal, expiresAtMillis)) == null) {
+            order.add(key);
+            queued.incrementAndGet();
+        }
+        while (principals.size() > maxSize || queued.get() > 2 * maxSize) {
+            ByteBuffer eldest = order.poll();
+            if (eldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            if (principals.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public int size() {
+        return principals.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static class Entry {
+        private final String principal;
+        private final long expiresAt;
+
+        Entry(String principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
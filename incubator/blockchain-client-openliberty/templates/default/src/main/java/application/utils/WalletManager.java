@@ -1,12 +1,16 @@
 package application.utils;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.eclipse.microprofile.metrics.MetricUnits;
 import org.hyperledger.fabric.gateway.Wallet;
 import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import application.metrics.ClientMetrics;
 import application.utils.ConnectionConfiguration;
 
 public class WalletManager {
@@ -15,7 +19,52 @@ public class WalletManager {
     private static final String WALLET_TYPE_IN_MEMORY="IN_MEMORY";
     public static final Logger LOGGER = Logger.getLogger(WalletManager.class.getName());
 
-    public Wallet getWallet() throws IdentityException {
+    private static volatile Wallet sharedWallet = null;
+    private static volatile long sharedWalletBuildMillis = 0;
+    private static volatile int sharedWalletIdentities = 0;
+
+    static {
+        ClientMetrics.gauge("wallet.build.duration", "Time taken to build the shared wallet at startup.", MetricUnits.MILLISECONDS, () -> sharedWalletBuildMillis);
+        ClientMetrics.gauge("wallet.identities", "Number of identities in the shared wallet.", MetricUnits.NONE, () -> sharedWalletIdentities);
+    }
+
+    // The process-wide wallet shared by every gateway, built once and read-only afterwards.
+    public static Wallet getSharedWallet() throws IdentityException {
+        Wallet wallet = sharedWallet;
+        if (wallet != null) {
+            return wallet;
+        }
+        synchronized (WalletManager.class) {
+            if (sharedWallet == null) {
+                sharedWallet = buildSharedWallet();
+            }
+            return sharedWallet;
+        }
+    }
+
+    // Replaces the shared wallet after the wallet settings changed, keeping the old one if the new one cannot be built.
+    public static void refreshSharedWallet() throws IdentityException {
+        synchronized (WalletManager.class) {
+            sharedWallet = buildSharedWallet();
+        }
+    }
+
+    private static Wallet buildSharedWallet() throws IdentityException {
+        long start = System.nanoTime();
+        ImmutableWallet snapshot = null;
+        try {
+            snapshot = ImmutableWallet.copyOf(new WalletManager().getWallet());
+        } catch (IOException e) {
+            LOGGER.severe("Error reading wallet identities: "+e.toString());
+            throw new IdentityException("Error reading wallet identities.", e);
+        }
+        sharedWalletBuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sharedWalletIdentities = snapshot.getAllLabels().size();
+        LOGGER.info("Shared wallet built with " + sharedWalletIdentities + " identities in " + sharedWalletBuildMillis + " ms.");
+        return snapshot;
+    }
+
+    public synchronized Wallet getWallet() throws IdentityException {
         if (theWallet != null) {
             return theWallet; 
         }
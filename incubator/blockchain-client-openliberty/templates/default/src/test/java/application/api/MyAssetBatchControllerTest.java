@@ -0,0 +1,155 @@
+package application.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.junit.Test;
+
+import application.utils.ContractPolicy;
+import application.utils.SubmitExecutor;
+
+/**
+ * MyAssetBatchControllerTest
+ */
+public class MyAssetBatchControllerTest {
+
+    @Test
+    public void testSubmitBatch() throws Exception {
+        Contract mock = mock(Contract.class);
+        List<MyAssetOperation> operations = Arrays.asList(
+                new MyAssetOperation("create", new MyAsset("asset1", "value1")),
+                new MyAssetOperation("update", new MyAsset("asset2", "value2")),
+                new MyAssetOperation("delete", new MyAsset("asset3", null)));
+
+        MyAssetBatchController controller = new MyAssetBatchController();
+        BatchResponse response = controller.submitBatch(mock, operations, 2).get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, response.getSucceeded());
+        assertEquals(0, response.getFailed());
+        for (int i = 0; i < operations.size(); i++) {
+            BatchItemResult result = response.getResults().get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(200, result.getStatus());
+        }
+        verify(mock).submitTransaction("createMyAsset", "asset1", "value1");
+        verify(mock).submitTransaction("updateMyAsset", "asset2", "value2");
+        verify(mock).submitTransaction("deleteMyAsset", "asset3");
+    }
+
+    @Test
+    public void testSubmitBatchReportsFailuresPerItem() throws Exception {
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("updateMyAsset", "missing", "value")).thenThrow(new ContractException("Test Contract Exception"));
+        List<MyAssetOperation> operations = Arrays.asList(
+                new MyAssetOperation("create", new MyAsset("asset1", "value1")),
+                new MyAssetOperation("update", new MyAsset("missing", "value")),
+                new MyAssetOperation("rename", new MyAsset("asset2", "value2")),
+                new MyAssetOperation("create", new MyAsset()));
+
+        MyAssetBatchController controller = new MyAssetBatchController();
+        BatchResponse response = controller.submitBatch(mock, operations, 4).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(3, response.getFailed());
+        assertEquals(200, response.getResults().get(0).getStatus());
+        assertEquals(404, response.getResults().get(1).getStatus());
+        assertNull(response.getResults().get(1).getTransactionId());
+        assertEquals(400, response.getResults().get(2).getStatus());
+        assertEquals(400, response.getResults().get(3).getStatus());
+    }
+
+    @Test
+    public void testSubmitBatchRespectsWindow() throws Exception {
+        int window = 3;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Contract mock = mock(Contract.class);
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return new byte[0];
+        }).when(mock).submitTransaction(any(String.class), any(String.class), any(String.class));
+
+        List<MyAssetOperation> operations = new ArrayList<MyAssetOperation>();
+        for (int i = 0; i < 20; i++) {
+            operations.add(new MyAssetOperation("create", new MyAsset("asset" + i, "value" + i)));
+        }
+
+        MyAssetBatchController controller = new MyAssetBatchController();
+        BatchResponse response = controller.submitBatch(mock, operations, window).get(30, TimeUnit.SECONDS);
+
+        assertEquals(20, response.getSucceeded());
+        assertTrue(maxInFlight.get() <= window);
+        assertTrue(maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void testSubmitEmptyBatch() throws Exception {
+        Contract mock = mock(Contract.class);
+
+        MyAssetBatchController controller = new MyAssetBatchController();
+        BatchResponse response = controller.submitBatch(mock, Collections.emptyList(), 4).get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, response.getSucceeded());
+        assertTrue(response.getResults().isEmpty());
+    }
+
+    @Test
+    public void testSubmitBatchWaitsForFullExecutor() throws Exception {
+        // One thread and no queue, so every operation after the first is rejected until it completes.
+        SubmitExecutor submitter = new SubmitExecutor(1, 0, 60, TimeUnit.SECONDS);
+        Contract mock = mock(Contract.class);
+        doAnswer(invocation -> {
+            Thread.sleep(20);
+            return new byte[0];
+        }).when(mock).submitTransaction(any(String.class), any(String.class), any(String.class));
+
+        List<MyAssetOperation> operations = new ArrayList<MyAssetOperation>();
+        for (int i = 0; i < 5; i++) {
+            operations.add(new MyAssetOperation("create", new MyAsset("asset" + i, "value" + i)));
+        }
+
+        MyAssetBatchController controller = new MyAssetBatchController(new MyAssetController(null, null, null, null, null,
+                ContractPolicy.getRead(), ContractPolicy.getWrite(), submitter));
+        try {
+            // Taking the only thread first leaves the batch nothing in flight to wait for, so it backs off.
+            CountDownLatch release = new CountDownLatch(1);
+            submitter.submit(() -> {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            });
+            CompletableFuture<BatchResponse> batch = controller.submitBatch(mock, operations, 4);
+            Thread.sleep(50);
+            release.countDown();
+            BatchResponse response = batch.get(30, TimeUnit.SECONDS);
+
+            assertEquals(5, response.getSucceeded());
+            assertEquals(0, response.getFailed());
+            assertTrue(submitter.getRejections() > 0);
+        } finally {
+            submitter.shutdown();
+        }
+    }
+}
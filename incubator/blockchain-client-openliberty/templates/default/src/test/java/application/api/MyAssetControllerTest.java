@@ -1,19 +1,45 @@
 package application.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 import org.hyperledger.fabric.gateway.Contract;
 import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Network;
+import org.json.JSONObject;
 import org.junit.Test;
 
+import application.api.exceptions.AssetBusyException;
 import application.api.exceptions.AssetException;
+import application.api.exceptions.AssetExceptionMapper;
 import application.api.exceptions.AssetNotFoundException;
+import application.api.exceptions.AssetUnavailableException;
 import application.api.MyAsset;
+import application.metrics.RequestLog;
+import application.metrics.RequestMetrics;
+import application.utils.AssetCache;
+import application.utils.CommitTracker;
+import application.utils.ContractPolicy;
+import application.utils.ReadCoalescer;
 
 /**
  * MyAssetControllerTest
@@ -246,4 +272,269 @@ public class MyAssetControllerTest {
  
          fail("Expected Asset Exception");
      }   
-}
\ No newline at end of file
+
+    // Test Async Submits
+    @Test
+    public void testCreateMyAssetAsync() throws Exception {
+        // Value Setup
+        MyAsset asset = new MyAsset("testId", "testValue");
+
+        // Mock the fabric call
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("createMyAsset", asset.getMyAssetId(), asset.getValue())).thenReturn(new byte[0]);
+
+        MyAssetController controller = new MyAssetController();
+        controller.createMyAssetAsync(mock, asset).get(10, TimeUnit.SECONDS);
+
+        verify(mock).submitTransaction("createMyAsset", asset.getMyAssetId(), asset.getValue());
+    }
+
+    @Test
+    public void testAsyncSubmitPhaseIsLogged() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                lines.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Level level = RequestLog.LOGGER.getLevel();
+        RequestLog.LOGGER.addHandler(handler);
+        RequestLog.LOGGER.setLevel(Level.INFO);
+        try {
+            MyAsset asset = new MyAsset("testId", "testValue");
+            Contract mock = mock(Contract.class);
+            when(mock.submitTransaction("createMyAsset", asset.getMyAssetId(), asset.getValue())).thenReturn(new byte[0]);
+            RequestLog.Entry entry = new RequestLog(1, 0, false).start(RequestMetrics.OPERATION_CREATE, "POST", "myassets");
+
+            new MyAssetController().createMyAssetAsync(mock, asset).get(10, TimeUnit.SECONDS);
+            entry.finish(200, null);
+
+            assertEquals(1, lines.size());
+            assertTrue(new JSONObject(lines.get(0)).getJSONObject("phasesMs").has(RequestMetrics.PHASE_SUBMIT));
+        } finally {
+            RequestLog.LOGGER.removeHandler(handler);
+            RequestLog.LOGGER.setLevel(level);
+            RequestLog.attach(null);
+        }
+    }
+
+    @Test
+    public void testUpdateMyAssetAsyncTimeoutException() throws Exception {
+        // Value Setup
+        MyAsset asset = new MyAsset("testId", "testValue");
+
+        // Mock the fabric call
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("updateMyAsset", asset.getMyAssetId(), asset.getValue())).thenThrow(new TimeoutException());
+
+        MyAssetController controller = new MyAssetController();
+        try {
+            controller.updateMyAssetAsync(mock, asset).get(10, TimeUnit.SECONDS);
+            fail("Expected Asset Exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssetException);
+        }
+    }
+
+    @Test
+    public void testDeleteMyAssetAsyncContactException() throws Exception {
+        // Value Setup
+        String assetId = "fakeAsset";
+
+        // Mock the fabric call
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("deleteMyAsset", assetId)).thenThrow(new ContractException("Test Contract Exception"));
+
+        MyAssetController controller = new MyAssetController();
+        try {
+            controller.deleteMyAssetAsync(mock, assetId).get(10, TimeUnit.SECONDS);
+            fail("Expected Asset Exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssetNotFoundException);
+        }
+    }
+
+    @Test
+    public void testCreateMyAssetAsyncWithoutWaiting() throws Exception {
+        // Value Setup
+        MyAsset asset = new MyAsset("testId", "testValue");
+        boolean[] waiting = new boolean[1];
+
+        // Mock the fabric call
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("createMyAsset", asset.getMyAssetId(), asset.getValue())).thenAnswer(invocation -> {
+            waiting[0] = CommitTracker.isWaitingForCommit();
+            return new byte[0];
+        });
+
+        MyAssetController controller = new MyAssetController();
+        controller.createMyAssetAsync(mock, asset, false).get(10, TimeUnit.SECONDS);
+        assertFalse(waiting[0]);
+
+        // The submitting thread goes back to waiting for the next transaction.
+        controller.createMyAssetAsync(mock, asset).get(10, TimeUnit.SECONDS);
+        assertTrue(waiting[0]);
+    }
+
+    // Test Cached Reads
+    @Test
+    public void testGetMyAssetCached() throws Exception {
+        // Value Setup
+        String assetId = "fakeAsset";
+        byte[] expectedValue = "testValue".getBytes();
+        AssetCache cache = new AssetCache(10, 0, TimeUnit.SECONDS);
+        Network network = mock(Network.class);
+        cache.listen("mychannel", "admin", network);
+
+        // Mock the fabric call
+        Contract mock = mock(Contract.class);
+        when(mock.evaluateTransaction("readMyAsset", assetId)).thenReturn(expectedValue);
+
+        MyAssetController controller = new MyAssetController(cache, "mychannel", "myasset");
+        controller.getMyAsset(mock, assetId);
+        byte[] results = controller.getMyAsset(mock, assetId);
+
+        assertEquals(expectedValue, results);
+        verify(mock, times(1)).evaluateTransaction("readMyAsset", assetId);
+
+        // A write through the controller drops the cached value.
+        controller.updateMyAsset(mock, new MyAsset(assetId, "newValue"));
+        controller.getMyAsset(mock, assetId);
+        verify(mock, times(2)).evaluateTransaction("readMyAsset", assetId);
+    }
+
+    @Test
+    public void testContractPolicies() throws Exception {
+        ContractPolicy readPolicy = new ContractPolicy(ContractPolicy.READ, 1, 0, 0, 50, 5, TimeUnit.SECONDS);
+        ContractPolicy writePolicy = new ContractPolicy(ContractPolicy.WRITE, 0, 0, 1, 100, 60, TimeUnit.SECONDS);
+        MyAssetController controller = new MyAssetController(null, null, null, null, null, readPolicy, writePolicy);
+        Contract mock = mock(Contract.class);
+        when(mock.submitTransaction("deleteMyAsset", "asset1")).thenThrow(new TimeoutException("commit timeout"));
+
+        ContractPolicy.Permit busy = readPolicy.enter();
+        try {
+            controller.getMyAsset(mock, "asset1");
+            fail("Expected AssetBusyException");
+        } catch (AssetBusyException e) {
+            assertEquals(429, AssetExceptionMapper.statusOf(e));
+        } finally {
+            busy.close();
+        }
+
+        try {
+            controller.deleteMyAsset(mock, "asset1");
+            fail("Expected AssetUnavailableException");
+        } catch (AssetUnavailableException e) {
+            assertEquals(503, AssetExceptionMapper.statusOf(e));
+        }
+        try {
+            controller.deleteMyAsset(mock, "asset1");
+            fail("Expected AssetUnavailableException");
+        } catch (AssetUnavailableException e) {
+            assertTrue(e.getRetryAfterSeconds() > 0);
+        }
+        verify(mock, times(1)).submitTransaction("deleteMyAsset", "asset1");
+    }
+
+    @Test
+    public void testUnreachableLedgerIsUnavailable() throws Exception {
+        ContractPolicy readPolicy = new ContractPolicy(ContractPolicy.READ, 0, 0, 2, 50, 60, TimeUnit.SECONDS);
+        MyAssetController controller = new MyAssetController(null, null, null, null, null, readPolicy, readPolicy);
+        Contract mock = mock(Contract.class);
+        when(mock.evaluateTransaction("readMyAsset", "asset1"))
+                .thenThrow(new ContractException("No successful responses received. Errors: [peer0 UNAVAILABLE]"));
+        when(mock.evaluateTransaction("readMyAsset", "asset2")).thenThrow(new ContractException("The my asset asset2 does not exist"));
+
+        try {
+            controller.getMyAsset(mock, "asset2");
+            fail("Expected AssetNotFoundException");
+        } catch (AssetNotFoundException e) {
+            assertEquals(404, AssetExceptionMapper.statusOf(e));
+        }
+        try {
+            controller.getMyAsset(mock, "asset1");
+            fail("Expected AssetUnavailableException");
+        } catch (AssetUnavailableException e) {
+            assertEquals(503, AssetExceptionMapper.statusOf(e));
+        }
+        // The unreachable ledger counts as a failure, the chaincode error does not, which opens the circuit at 50%.
+        assertEquals(ContractPolicy.OPEN, readPolicy.getState());
+    }
+
+    @Test
+    public void testCoalescedReadsShareOnePermit() throws Exception {
+        ContractPolicy readPolicy = new ContractPolicy(ContractPolicy.READ, 1, 0, 0, 50, 5, TimeUnit.SECONDS);
+        ReadCoalescer reads = new ReadCoalescer(true);
+        MyAssetController controller = new MyAssetController(null, reads, "admin", "mychannel", "myasset", readPolicy, readPolicy);
+        byte[] expectedValue = "testValue".getBytes();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Contract mock = mock(Contract.class);
+        when(mock.evaluateTransaction("readMyAsset", "asset1")).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return expectedValue;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> leader = pool.submit(() -> controller.getMyAsset(mock, "asset1"));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            // The waiting read does not take the only read permit, so it is not turned away as busy.
+            Future<byte[]> follower = pool.submit(() -> controller.getMyAsset(mock, "asset1"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (reads.getCoalesced() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            assertEquals(expectedValue, leader.get(10, TimeUnit.SECONDS));
+            assertEquals(expectedValue, follower.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        verify(mock, times(1)).evaluateTransaction("readMyAsset", "asset1");
+    }
+
+    @Test
+    public void testCoalescedReadTimeoutIsUnavailable() throws Exception {
+        ContractPolicy readPolicy = new ContractPolicy(ContractPolicy.READ, 0, 50, 0, 50, 60000, TimeUnit.MILLISECONDS);
+        ReadCoalescer reads = new ReadCoalescer(true);
+        MyAssetController controller = new MyAssetController(null, reads, "admin", "mychannel", "myasset", readPolicy, readPolicy);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // A query of the same asset held open outside the controller's policy.
+            pool.submit(() -> reads.read("admin", "mychannel", "myasset", "asset1", () -> {
+                queryStarted.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new byte[0];
+            }));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            try {
+                controller.getMyAsset(mock(Contract.class), "asset1");
+                fail("Expected AssetUnavailableException");
+            } catch (AssetUnavailableException e) {
+                assertEquals(503, AssetExceptionMapper.statusOf(e));
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package application.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import application.api.exceptions.AssetException;
+
+/**
+ * MyAssetStreamTest
+ */
+public class MyAssetStreamTest {
+
+    // Serves assets asset0 to asset<count - 1>, with the index of the next asset as the bookmark.
+    private static class Pages implements MyAssetStream.PageSource {
+        private final int count;
+        private final int failAt;
+        private final List<Integer> sizes = new ArrayList<Integer>();
+
+        Pages(int count, int failAt) {
+            this.count = count;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public MyAssetPage fetch(int pageSize, String bookmark) {
+            sizes.add(pageSize);
+            int from = bookmark == null || bookmark.isEmpty() ? 0 : Integer.parseInt(bookmark);
+            if (from == failAt) {
+                throw new AssetException("Error listing assets on the ledger.");
+            }
+            List<MyAsset> records = new ArrayList<MyAsset>();
+            int next = from;
+            while (next < count && records.size() < pageSize) {
+                records.add(new MyAsset("asset" + next, "value" + next));
+                next++;
+            }
+            return new MyAssetPage(records, next < count ? Integer.toString(next) : "");
+        }
+    }
+
+    private static String write(MyAssetStream stream) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        stream.write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testJsonStreamsAllPages() throws Exception {
+        Pages pages = new Pages(25, -1);
+        JSONObject body = new JSONObject(write(new MyAssetStream(pages, 10, null, 0, false)));
+        JSONArray records = body.getJSONArray("records");
+        assertEquals(25, records.length());
+        assertEquals("asset24", records.getJSONObject(24).getString("myAssetId"));
+        assertEquals("value24", records.getJSONObject(24).getString("value"));
+        assertEquals("", body.getString("bookmark"));
+        assertFalse(body.has("error"));
+        assertEquals(3, pages.sizes.size());
+    }
+
+    @Test
+    public void testNdjsonStopsAtLimit() throws Exception {
+        Pages pages = new Pages(25, -1);
+        MyAssetStream stream = new MyAssetStream(pages, 10, "3", 15, true);
+        assertEquals(MyAssetStream.NDJSON, stream.getMediaType());
+        String[] lines = write(stream).split("\n");
+        assertEquals(16, lines.length);
+        assertEquals("asset3", new JSONObject(lines[0]).getString("myAssetId"));
+        assertEquals("asset17", new JSONObject(lines[14]).getString("myAssetId"));
+        // The last page is cut short so the bookmark resumes after the last asset returned.
+        assertEquals("18", new JSONObject(lines[15]).getString("bookmark"));
+        assertEquals("[10, 5]", pages.sizes.toString());
+    }
+
+    @Test
+    public void testLaterPageFailureReportedWithBookmark() throws Exception {
+        JSONObject body = new JSONObject(write(new MyAssetStream(new Pages(25, 10), 10, null, 0, false)));
+        assertEquals(10, body.getJSONArray("records").length());
+        assertEquals("10", body.getString("bookmark"));
+        assertEquals("Error listing assets on the ledger.", body.getString("error"));
+    }
+
+    @Test(expected = AssetException.class)
+    public void testFirstPageFailureThrown() throws Exception {
+        new MyAssetStream(new Pages(25, 0), 10, null, 0, false);
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception {
+        JSONObject body = new JSONObject(write(new MyAssetStream(new Pages(0, -1), 10, null, 0, false)));
+        assertEquals(0, body.getJSONArray("records").length());
+        assertEquals("", body.getString("bookmark"));
+    }
+}
@@ -0,0 +1,64 @@
+package application.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * ApplicationLivenessCheckTest
+ */
+public class ApplicationLivenessCheckTest {
+
+    @Test
+    public void testAliveWithinLimits() {
+        assertTrue(ApplicationLivenessCheck.problems(1000, 240000, 10, 100, 50, 95).isEmpty());
+        // A limit of 0 turns its check off.
+        assertTrue(ApplicationLivenessCheck.problems(1000000, 0, 1000, 0, 99, 0).isEmpty());
+    }
+
+    @Test
+    public void testWedged() {
+        List<String> problems = ApplicationLivenessCheck.problems(240001, 240000, 100, 100, 96, 95);
+
+        assertEquals(3, problems.size());
+        assertTrue(problems.get(0).contains("240001 ms"));
+    }
+
+    @Test
+    public void testHeapPercentAfterCollection() {
+        int percent = ApplicationLivenessCheck.heapPercentAfterCollection();
+
+        assertTrue(percent >= 0 && percent <= 100);
+    }
+
+    @Test
+    public void testFullYoungPoolIsAlive() {
+        MemoryPoolMXBean eden = pool(0, 100, false);
+        MemoryPoolMXBean survivor = pool(86, 100, false);
+        MemoryPoolMXBean tenured = pool(100, 1000, true);
+
+        int percent = ApplicationLivenessCheck.heapPercentAfterCollection(Arrays.asList(eden, survivor, tenured));
+
+        assertEquals(10, percent);
+        assertTrue(ApplicationLivenessCheck.problems(0, 0, 0, 0, percent, 95).isEmpty());
+        // Without a long-lived pool the largest one is measured.
+        assertEquals(50, ApplicationLivenessCheck.heapPercentAfterCollection(Arrays.asList(survivor, pool(500, 1000, false))));
+    }
+
+    private static MemoryPoolMXBean pool(long used, long max, boolean longLived) {
+        MemoryPoolMXBean pool = mock(MemoryPoolMXBean.class);
+        when(pool.getType()).thenReturn(MemoryType.HEAP);
+        when(pool.getCollectionUsage()).thenReturn(new MemoryUsage(0, used, max, max));
+        when(pool.isUsageThresholdSupported()).thenReturn(longLived);
+        return pool;
+    }
+}
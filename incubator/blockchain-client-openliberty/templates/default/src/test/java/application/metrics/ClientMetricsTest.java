@@ -0,0 +1,25 @@
+package application.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * ClientMetricsTest
+ */
+public class ClientMetricsTest {
+
+    @Test
+    public void testCounterView() {
+        AtomicLong count = new AtomicLong(5);
+        ClientMetrics.CounterView counter = new ClientMetrics.CounterView(count::get);
+        assertEquals(5, counter.getCount());
+
+        count.incrementAndGet();
+        counter.inc();
+        counter.inc(2);
+        assertEquals(9, counter.getCount());
+    }
+}
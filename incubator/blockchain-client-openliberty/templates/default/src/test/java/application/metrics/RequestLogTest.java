@@ -0,0 +1,142 @@
+package application.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RequestLogTest
+ */
+public class RequestLogTest {
+    private final List<String> lines = new ArrayList<String>();
+    private final Handler handler = new Handler() {
+        @Override
+        public synchronized void publish(LogRecord record) {
+            lines.add(record.getMessage());
+            notifyAll();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private Level level;
+
+    @Before
+    public void captureLog() {
+        level = RequestLog.LOGGER.getLevel();
+        RequestLog.LOGGER.addHandler(handler);
+        RequestLog.LOGGER.setLevel(Level.INFO);
+    }
+
+    @After
+    public void releaseLog() {
+        RequestLog.LOGGER.removeHandler(handler);
+        RequestLog.LOGGER.setLevel(level);
+        RequestLog.attach(null);
+    }
+
+    @Test
+    public void testEntryCarriesRequestFields() {
+        RequestLog log = new RequestLog(1, 0, false);
+        RequestLog.Entry entry = log.start(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1");
+        assertSame(entry, RequestLog.current());
+        RequestLog.identity("admin");
+        RequestLog.assetId("asset1");
+        RequestLog.payload("{\"value\":\"secret\"}".getBytes(StandardCharsets.UTF_8));
+        RequestLog.phase(RequestMetrics.PHASE_EVALUATE, TimeUnit.MILLISECONDS.toNanos(3));
+        entry.finish(200, null);
+
+        assertEquals(1, lines.size());
+        JSONObject line = new JSONObject(lines.get(0));
+        assertEquals("read", line.getString("operation"));
+        assertEquals("admin", line.getString("identity"));
+        assertEquals("asset1", line.getString("assetId"));
+        assertEquals(200, line.getInt("status"));
+        assertEquals(3, line.getJSONObject("phasesMs").getDouble("evaluate"), 0.001);
+        assertTrue(line.has("durationMs"));
+        assertEquals(18, line.getInt("payloadBytes"));
+        // Payloads are only logged when a limit is configured.
+        assertFalse(line.has("payload"));
+    }
+
+    @Test
+    public void testPayloadTruncated() {
+        RequestLog log = new RequestLog(1, 4, false);
+        RequestLog.Entry entry = log.start(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1");
+        RequestLog.payload("{\"value\":\"one\"}".getBytes(StandardCharsets.UTF_8));
+        entry.finish(200, null);
+        assertEquals("{\"va...", new JSONObject(lines.get(0)).getString("payload"));
+    }
+
+    @Test
+    public void testSampling() {
+        RequestLog log = new RequestLog(3, 0, false);
+        int started = 0;
+        for (int i = 0; i < 9; i++) {
+            if (log.start(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1") != null) {
+                started++;
+            }
+        }
+        assertEquals(3, started);
+    }
+
+    @Test
+    public void testNoEntryWhenDisabled() {
+        RequestLog.LOGGER.setLevel(Level.WARNING);
+        RequestLog log = new RequestLog(1, 0, false);
+        assertNull(log.start(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1"));
+        // Fields of requests without an entry are ignored.
+        RequestLog.assetId("asset1");
+        log.failed(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1", 404, "Asset not found on the ledger.");
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    public void testUnsampledFailureLogged() {
+        RequestLog log = new RequestLog(0, 0, false);
+        assertNull(log.start(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1"));
+        log.failed(RequestMetrics.OPERATION_READ, "GET", "myassets/asset1", 404, "Asset not found on the ledger.");
+        JSONObject line = new JSONObject(lines.get(0));
+        assertEquals(404, line.getInt("status"));
+        assertEquals("Asset not found on the ledger.", line.getString("error"));
+        assertFalse(line.has("durationMs"));
+    }
+
+    @Test
+    public void testAsyncWrite() throws Exception {
+        RequestLog log = new RequestLog(1, 0, true);
+        RequestLog.Entry entry = log.start(RequestMetrics.OPERATION_CREATE, "POST", "myassets");
+        assertNotNull(entry);
+        entry.setTransactionId("tx1");
+        entry.finish(204, null);
+        synchronized (handler) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (lines.isEmpty() && System.currentTimeMillis() < deadline) {
+                handler.wait(100);
+            }
+        }
+        assertEquals("tx1", new JSONObject(lines.get(0)).getString("transactionId"));
+        assertEquals(0, log.getDropped());
+    }
+}
@@ -0,0 +1,59 @@
+package application.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.junit.Test;
+
+import application.api.exceptions.AssetExceptionMapper;
+import application.api.exceptions.AssetNotFoundException;
+
+/**
+ * RequestMetricsTest
+ */
+public class RequestMetricsTest {
+
+    @Test
+    public void testOperationOf() {
+        assertEquals(RequestMetrics.OPERATION_READ, RequestMetrics.operationOf("GET", "myassets/asset1"));
+        assertEquals(RequestMetrics.OPERATION_LIST, RequestMetrics.operationOf("GET", "myassets"));
+        assertEquals(RequestMetrics.OPERATION_LIST, RequestMetrics.operationOf("GET", "/myassets/"));
+        assertEquals(RequestMetrics.OPERATION_CREATE, RequestMetrics.operationOf("POST", "myassets"));
+        assertEquals(RequestMetrics.OPERATION_BATCH, RequestMetrics.operationOf("POST", "myassets/batch"));
+        assertEquals(RequestMetrics.OPERATION_UPDATE, RequestMetrics.operationOf("PUT", "myassets/asset1"));
+        assertEquals(RequestMetrics.OPERATION_DELETE, RequestMetrics.operationOf("DELETE", "myassets/asset1"));
+        assertEquals(RequestMetrics.OPERATION_OTHER, RequestMetrics.operationOf("OPTIONS", "myassets"));
+        assertEquals(RequestMetrics.OPERATION_OTHER, RequestMetrics.operationOf("GET", "/admin/peers"));
+        assertEquals(RequestMetrics.OPERATION_OTHER, RequestMetrics.operationOf("GET", "//admin/peers/"));
+        assertEquals(RequestMetrics.OPERATION_LIST, RequestMetrics.operationOf("GET", "//myassets//"));
+        assertEquals(RequestMetrics.OPERATION_BATCH, RequestMetrics.operationOf("POST", "/myassets/batch/"));
+        assertEquals(RequestMetrics.OPERATION_CREATE, RequestMetrics.operationOf("POST", "/batch"));
+        assertEquals(RequestMetrics.OPERATION_READ, RequestMetrics.operationOf("GET", "/"));
+        assertEquals(RequestMetrics.OPERATION_READ, RequestMetrics.operationOf("GET", null));
+    }
+
+    @Test
+    public void testOperationIsPerThread() throws Exception {
+        RequestMetrics.setOperation(RequestMetrics.OPERATION_UPDATE);
+        String[] other = new String[1];
+        Thread thread = new Thread(() -> other[0] = RequestMetrics.getOperation());
+        thread.start();
+        thread.join();
+
+        assertEquals(RequestMetrics.OPERATION_UPDATE, RequestMetrics.getOperation());
+        assertEquals(RequestMetrics.OPERATION_OTHER, other[0]);
+    }
+
+    @Test
+    public void testErrorTypes() {
+        assertEquals("AssetNotFoundException", AssetExceptionMapper.typeOf(new AssetNotFoundException("missing")));
+        assertEquals("GatewayException", AssetExceptionMapper.typeOf(new GatewayException("failed")));
+        assertEquals("Unhandled", AssetExceptionMapper.typeOf(new IllegalStateException()));
+    }
+
+    @Test
+    public void testRecordingWhileUnboundIsDropped() {
+        RequestMetrics.phase(RequestMetrics.PHASE_GATEWAY, System.nanoTime());
+        RequestMetrics.error("AssetException", RequestMetrics.OPERATION_READ);
+    }
+}
@@ -0,0 +1,204 @@
+package application.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.TxReadWriteSetInfo;
+import org.junit.Test;
+
+/**
+ * AssetCacheTest
+ */
+public class AssetCacheTest {
+
+    private static final byte[] VALUE = "{\"value\":\"1\"}".getBytes();
+
+    @Test
+    public void testReadThrough() {
+        AssetCache cache = listeningCache(10, 0);
+
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+
+        assertArrayEquals(VALUE, cache.get("mychannel", "myasset", "asset1"));
+        assertNull(cache.get("mychannel", "othercontract", "asset1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 0.001);
+    }
+
+    @Test
+    public void testNotCachedWithoutListener() {
+        AssetCache cache = new AssetCache(10, 0, TimeUnit.SECONDS);
+
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+    }
+
+    @Test
+    public void testReadRacingWriteIsNotCached() {
+        AssetCache cache = listeningCache(10, 0);
+
+        long generation = cache.generation();
+        // A write lands while the read is evaluating.
+        cache.invalidate("mychannel", "myasset", "asset1");
+        cache.put("mychannel", "myasset", "asset1", VALUE, generation);
+
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+    }
+
+    @Test
+    public void testReadRacingOtherWriteIsCached() {
+        AssetCache cache = listeningCache(10, 0);
+
+        long generation = cache.generation();
+        // Writes of other assets do not stop the read from caching.
+        cache.invalidate("mychannel", "myasset", "asset2");
+        cache.put("mychannel", "myasset", "asset1", VALUE, generation);
+        assertArrayEquals(VALUE, cache.get("mychannel", "myasset", "asset1"));
+
+        generation = cache.generation();
+        cache.invalidateChannel("mychannel");
+        cache.put("mychannel", "myasset", "asset3", VALUE, generation);
+        assertNull(cache.get("mychannel", "myasset", "asset3"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        AssetCache cache = listeningCache(3, 0);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("mychannel", "myasset", "asset" + i, VALUE, cache.generation());
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(7, cache.getEvictions());
+        assertArrayEquals(VALUE, cache.get("mychannel", "myasset", "asset9"));
+        assertNull(cache.get("mychannel", "myasset", "asset0"));
+    }
+
+    @Test
+    public void testEntriesExpire() throws Exception {
+        AssetCache cache = listeningCache(10, 100);
+
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+        Thread.sleep(200);
+
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBlockInvalidatesWrittenKeys() throws Exception {
+        AssetCache cache = listeningCache(10, 0);
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+        cache.put("mychannel", "myasset", "asset2", VALUE, cache.generation());
+
+        cache.invalidate(block("mychannel", "myasset", "asset1", true));
+
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+        assertArrayEquals(VALUE, cache.get("mychannel", "myasset", "asset2"));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void testInvalidTransactionIsIgnored() throws Exception {
+        AssetCache cache = listeningCache(10, 0);
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+
+        cache.invalidate(block("mychannel", "myasset", "asset1", false));
+
+        assertArrayEquals(VALUE, cache.get("mychannel", "myasset", "asset1"));
+    }
+
+    @Test
+    public void testFilteredBlockClearsChannel() throws Exception {
+        AssetCache cache = listeningCache(10, 0);
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+        BlockEvent event = mock(BlockEvent.class);
+        when(event.getChannelId()).thenReturn("mychannel");
+        when(event.isFiltered()).thenReturn(true);
+
+        cache.invalidate(event);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReleaseDropsListenerAndChannel() {
+        Network network = mock(Network.class);
+        Consumer<BlockEvent> consumer = mock(Consumer.class);
+        when(network.addBlockListener(any(Consumer.class))).thenReturn(consumer);
+        AssetCache cache = new AssetCache(10, 0, TimeUnit.SECONDS);
+        cache.listen("mychannel", "admin", network);
+        cache.listen("mychannel", "user1", network);
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+
+        cache.release("user1");
+        assertTrue(cache.isListening("mychannel"));
+        cache.release("admin");
+
+        verify(network, times(1)).addBlockListener(any(Consumer.class));
+        verify(network).removeBlockListener(consumer);
+        assertFalse(cache.isListening("mychannel"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        AssetCache cache = new AssetCache(0, 0, TimeUnit.SECONDS);
+        cache.listen("mychannel", "admin", mock(Network.class));
+
+        cache.put("mychannel", "myasset", "asset1", VALUE, cache.generation());
+
+        assertFalse(cache.isListening("mychannel"));
+        assertNull(cache.get("mychannel", "myasset", "asset1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AssetCache listeningCache(int maxSize, long ttlMillis) {
+        Network network = mock(Network.class);
+        when(network.addBlockListener(any(Consumer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        AssetCache cache = new AssetCache(maxSize, ttlMillis, TimeUnit.MILLISECONDS);
+        cache.listen("mychannel", "admin", network);
+        return cache;
+    }
+
+    private static BlockEvent block(String channel, String namespace, String key, boolean valid) throws Exception {
+        TxReadWriteSetInfo.NsRwsetInfo nsRwSet = mock(TxReadWriteSetInfo.NsRwsetInfo.class);
+        when(nsRwSet.getNamespace()).thenReturn(namespace);
+        when(nsRwSet.getRwset()).thenReturn(KvRwset.KVRWSet.newBuilder()
+                .addWrites(KvRwset.KVWrite.newBuilder().setKey(key)).build());
+        TxReadWriteSetInfo rwSet = mock(TxReadWriteSetInfo.class);
+        when(rwSet.getNsRwsetInfos()).thenReturn(Collections.singletonList(nsRwSet));
+        BlockInfo.TransactionEnvelopeInfo.TransactionActionInfo action = mock(BlockInfo.TransactionEnvelopeInfo.TransactionActionInfo.class);
+        when(action.getTxReadWriteSet()).thenReturn(rwSet);
+        BlockEvent.TransactionEvent transaction = mock(BlockEvent.TransactionEvent.class);
+        when(transaction.isValid()).thenReturn(valid);
+        when(transaction.getTimestamp()).thenReturn(new Date());
+        when(transaction.getTransactionActionInfos()).thenReturn(Collections.singletonList(action));
+        BlockEvent event = mock(BlockEvent.class);
+        when(event.getChannelId()).thenReturn(channel);
+        when(event.getTransactionEvents()).thenReturn(Collections.singletonList(transaction));
+        return event;
+    }
+}
@@ -0,0 +1,136 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.spi.CommitHandler;
+import org.hyperledger.fabric.gateway.spi.CommitHandlerFactory;
+import org.hyperledger.fabric.gateway.spi.CommitListener;
+import org.hyperledger.fabric.protos.peer.FabricTransaction.TxValidationCode;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.Channel;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * CommitTrackerTest
+ */
+public class CommitTrackerTest {
+
+    @After
+    public void resetWait() {
+        CommitTracker.setWaitForCommit(true);
+    }
+
+    private static Network network() {
+        Network network = mock(Network.class);
+        when(network.getChannel()).thenReturn(mock(Channel.class));
+        return network;
+    }
+
+    private static BlockEvent.TransactionEvent event(TxValidationCode code) {
+        BlockEvent.TransactionEvent event = mock(BlockEvent.TransactionEvent.class);
+        when(event.getValidationCode()).thenReturn((byte) code.getNumber());
+        return event;
+    }
+
+    @Test
+    public void testWaitingHandlerRecordsCommit() throws Exception {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        CommitHandler delegateHandler = mock(CommitHandler.class);
+        CommitHandlerFactory delegate = mock(CommitHandlerFactory.class);
+        when(delegate.create(eq("tx1"), any())).thenReturn(delegateHandler);
+
+        CommitHandler handler = new CommitTracker(delegate, index, 30, TimeUnit.SECONDS).create("tx1", network());
+        assertTrue(index.isPending("tx1"));
+        handler.startListening();
+        handler.waitForEvents(30, TimeUnit.SECONDS);
+
+        verify(delegateHandler).waitForEvents(30, TimeUnit.SECONDS);
+        assertEquals(TransactionStatus.COMMITTED, index.get("tx1").getStatus());
+    }
+
+    @Test
+    public void testWaitingHandlerRecordsFailure() throws Exception {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        CommitHandler delegateHandler = mock(CommitHandler.class);
+        CommitHandlerFactory delegate = mock(CommitHandlerFactory.class);
+        when(delegate.create(eq("tx1"), any())).thenReturn(delegateHandler);
+        doThrow(new ContractException("Commit failed")).when(delegateHandler).waitForEvents(30, TimeUnit.SECONDS);
+
+        CommitHandler handler = new CommitTracker(delegate, index, 30, TimeUnit.SECONDS).create("tx1", network());
+        try {
+            handler.waitForEvents(30, TimeUnit.SECONDS);
+            fail("Expected ContractException");
+        } catch (ContractException e) {
+            // expected
+        }
+        assertEquals(TransactionStatus.INVALID, index.get("tx1").getStatus());
+        assertEquals("Commit failed", index.get("tx1").getMessage());
+    }
+
+    @Test
+    public void testListeningHandlerRecordsValidationCode() throws Exception {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        CommitHandlerFactory delegate = mock(CommitHandlerFactory.class);
+        Network network = network();
+
+        CommitTracker.setWaitForCommit(false);
+        CommitHandler handler = new CommitTracker(delegate, index, 30, TimeUnit.SECONDS).create("tx1", network);
+        verify(delegate, never()).create(any(), any());
+        handler.startListening();
+        handler.waitForEvents(30, TimeUnit.SECONDS);
+        assertTrue(index.isPending("tx1"));
+
+        ArgumentCaptor<CommitListener> listener = ArgumentCaptor.forClass(CommitListener.class);
+        verify(network).addCommitListener(listener.capture(), anyCollection(), eq("tx1"));
+        listener.getValue().acceptCommit(event(TxValidationCode.MVCC_READ_CONFLICT));
+
+        assertEquals(TransactionStatus.INVALID, index.get("tx1").getStatus());
+        assertEquals("MVCC_READ_CONFLICT", index.get("tx1").getValidationCode());
+        verify(network).removeCommitListener(listener.getValue());
+    }
+
+    @Test
+    public void testListeningHandlerExpires() throws Exception {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        Network network = network();
+
+        CommitTracker.setWaitForCommit(false);
+        CommitHandler handler = new CommitTracker(mock(CommitHandlerFactory.class), index, 50, TimeUnit.MILLISECONDS).create("tx1", network);
+        handler.startListening();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (index.isPending("tx1") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(TransactionStatus.UNKNOWN, index.get("tx1").getStatus());
+        verify(network).removeCommitListener(any());
+    }
+
+    @Test
+    public void testCancelledTransactionForgotten() throws Exception {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+
+        CommitTracker.setWaitForCommit(false);
+        CommitHandler handler = new CommitTracker(mock(CommitHandlerFactory.class), index, 30, TimeUnit.SECONDS).create("tx1", network());
+        handler.startListening();
+        handler.cancelListening();
+        assertNull(index.get("tx1"));
+    }
+}
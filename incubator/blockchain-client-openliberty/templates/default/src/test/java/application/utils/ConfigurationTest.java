@@ -0,0 +1,119 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * ConfigurationTest
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({System.class, ConnectionConfiguration.class})
+public class ConfigurationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadFromConfigDir() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        write(dir, "FABRIC_CHANNEL", "filechannel\n", 1000);
+        write(dir, "FABRIC_LIST_PAGE_SIZE", "25", 1000);
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_CONFIG_DIR")).thenReturn(dir.toString());
+        PowerMockito.when(System.getenv("FABRIC_CHANNEL")).thenReturn("envchannel");
+        PowerMockito.when(System.getenv("FABRIC_CONTRACT")).thenReturn("envcontract");
+
+        Configuration configuration = Configuration.read();
+
+        assertEquals("filechannel", configuration.getChannel());
+        assertEquals("envcontract", configuration.getContractId());
+        assertEquals(25, configuration.getListPageSize());
+        assertNull(configuration.getDefaultIdentity());
+    }
+
+    @Test
+    public void testPublishNotifiesListeners() {
+        List<Configuration[]> changes = new ArrayList<Configuration[]>();
+        Configuration.addListener((previous, next) -> changes.add(new Configuration[] { previous, next }));
+        Configuration first = configuration("mychannel", "profile1", "admin");
+        Configuration.publish(first);
+        changes.clear();
+
+        assertFalse(Configuration.publish(configuration("mychannel", "profile1", "admin")));
+        assertSame(first, Configuration.current());
+
+        Configuration second = configuration("mychannel", "profile2", "admin");
+        assertTrue(Configuration.publish(second));
+        assertSame(second, Configuration.current());
+        assertEquals(1, changes.size());
+        assertSame(first, changes.get(0)[0]);
+        assertTrue(changes.get(0)[1].isGatewayChanged(first));
+        assertFalse(changes.get(0)[1].isWalletChanged(first));
+    }
+
+    @Test
+    public void testIncompleteConfigurationIsNotPublished() {
+        Configuration complete = configuration("mychannel", "profile1", "user1");
+        Configuration.publish(complete);
+
+        Configuration incomplete = configuration("", "profile1", "user1");
+        assertEquals(1, incomplete.getProblems().size());
+        assertFalse(Configuration.publish(incomplete));
+        assertSame(complete, Configuration.current());
+    }
+
+    @Test
+    public void testReloadIfChanged() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        write(dir, "FABRIC_CHANNEL", "mychannel", 1000);
+        write(dir, "FABRIC_CONTRACT", "mycontract", 1000);
+        write(dir, "FABRIC_CONNECTION_PROFILE", "{}", 1000);
+        write(dir, "FABRIC_DEFAULT_IDENTITY", "user1", 1000);
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_CONFIG_DIR")).thenReturn(dir.toString());
+        List<Configuration> published = new ArrayList<Configuration>();
+        Configuration.addListener((previous, next) -> published.add(next));
+
+        Configuration.reloadIfChanged(dir);
+        assertEquals("user1", Configuration.current().getDefaultIdentity());
+        published.clear();
+        Configuration.reloadIfChanged(dir);
+        assertTrue(published.isEmpty());
+
+        write(dir, "FABRIC_DEFAULT_IDENTITY", "user2", 2000);
+        Configuration.reloadIfChanged(dir);
+        assertEquals(1, published.size());
+        assertEquals("user2", Configuration.current().getDefaultIdentity());
+        assertFalse(published.get(0).isGatewayChanged(Configuration.current()));
+    }
+
+    private static Configuration configuration(String channel, String connectionProfile, String defaultIdentity) {
+        return new Configuration(channel, "mycontract", connectionProfile, "{\"type\":\"IN_MEMORY\"}", null,
+                defaultIdentity, 100, 16, true);
+    }
+
+    private static void write(Path dir, String name, String value, long lastModified) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, value.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+}
@@ -1,7 +1,9 @@
 package application.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -135,4 +137,140 @@ public class ConnectionConfigurationTest {
         String wallet = ConnectionConfiguration.getWalletProfile();
         assertEquals(DEFAULT_WALLET_PROFILE, wallet);  
     }
-}
\ No newline at end of file
+
+    // gateway pool tests
+    @Test
+    public void testGetGatewayPoolMaxSize() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_MAX_SIZE")).thenReturn("25");
+        assertEquals(25, ConnectionConfiguration.getGatewayPoolMaxSize());
+    }
+
+    @Test
+    public void testGetGatewayPoolMaxSizeNULL() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_MAX_SIZE")).thenReturn(null);
+        assertEquals(100, ConnectionConfiguration.getGatewayPoolMaxSize());
+    }
+
+    @Test
+    public void testGetGatewayPoolMaxSizeBP() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_MAX_SIZE")).thenReturn("lots");
+        assertEquals(100, ConnectionConfiguration.getGatewayPoolMaxSize());
+    }
+
+    @Test
+    public void testGetGatewayPoolIdleTimeout() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_IDLE_TIMEOUT")).thenReturn("0");
+        assertEquals(0, ConnectionConfiguration.getGatewayPoolIdleTimeout());
+    }
+
+    @Test
+    public void testGetGatewayPoolIdleTimeoutNegative() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_IDLE_TIMEOUT")).thenReturn("-5");
+        assertEquals(1800, ConnectionConfiguration.getGatewayPoolIdleTimeout());
+    }
+
+    @Test
+    public void testGetGatewayPoolCloseDelayNULL() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_CLOSE_DELAY")).thenReturn(null);
+        assertEquals(60, ConnectionConfiguration.getGatewayPoolCloseDelay());
+    }
+
+    // submit executor tests
+    @Test
+    public void testGetSubmitThreads() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_SUBMIT_THREADS")).thenReturn("8");
+        assertEquals(8, ConnectionConfiguration.getSubmitThreads());
+    }
+
+    @Test
+    public void testGetSubmitThreadsZero() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_SUBMIT_THREADS")).thenReturn("0");
+        assertEquals(1, ConnectionConfiguration.getSubmitThreads());
+    }
+
+    @Test
+    public void testGetSubmitQueueSizeNULL() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_SUBMIT_QUEUE_SIZE")).thenReturn(null);
+        assertEquals(1024, ConnectionConfiguration.getSubmitQueueSize());
+    }
+
+    @Test
+    public void testGetSubmitTimeout() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_SUBMIT_TIMEOUT")).thenReturn("30");
+        assertEquals(30, ConnectionConfiguration.getSubmitTimeout());
+    }
+
+    // batch tests
+    @Test
+    public void testGetBatchWindow() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_BATCH_WINDOW")).thenReturn("4");
+        assertEquals(4, ConnectionConfiguration.getBatchWindow());
+    }
+
+    @Test
+    public void testGetBatchWindowInvalid() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_BATCH_WINDOW")).thenReturn("many");
+        assertEquals(16, ConnectionConfiguration.getBatchWindow());
+    }
+
+    // asset cache tests
+    @Test
+    public void testGetAssetCacheMaxSizeNULL() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_ASSET_CACHE_MAX_SIZE")).thenReturn(null);
+        assertEquals(10000, ConnectionConfiguration.getAssetCacheMaxSize());
+    }
+
+    @Test
+    public void testGetAssetCacheTtl() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_ASSET_CACHE_TTL")).thenReturn("0");
+        assertEquals(0, ConnectionConfiguration.getAssetCacheTtl());
+    }
+
+    @Test
+    public void testGetLedgerProfileNULL() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_LEDGER_PROFILE")).thenReturn(null);
+        assertEquals("{\"type\":\"FABRIC\"}", ConnectionConfiguration.getLedgerProfile());
+    }
+
+    // read coalescing tests
+    @Test
+    public void testIsReadCoalescing() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_READ_COALESCING")).thenReturn("FALSE");
+        assertFalse(ConnectionConfiguration.isReadCoalescing());
+    }
+
+    @Test
+    public void testIsReadCoalescingInvalid() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_READ_COALESCING")).thenReturn("no");
+        assertTrue(ConnectionConfiguration.isReadCoalescing());
+    }
+
+    // readiness tests
+    @Test
+    public void testGetReadinessMaxAgeAtLeastIntervalPlusTimeout() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_READINESS_INTERVAL")).thenReturn("10");
+        PowerMockito.when(System.getenv("FABRIC_READINESS_TIMEOUT")).thenReturn("5");
+        PowerMockito.when(System.getenv("FABRIC_READINESS_MAX_AGE")).thenReturn("0");
+        assertEquals(15, ConnectionConfiguration.getReadinessMaxAge());
+        PowerMockito.when(System.getenv("FABRIC_READINESS_MAX_AGE")).thenReturn("60");
+        assertEquals(60, ConnectionConfiguration.getReadinessMaxAge());
+    }
+}
@@ -0,0 +1,91 @@
+package application.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.junit.Test;
+
+/**
+ * ConnectionProfileTest
+ */
+public class ConnectionProfileTest {
+
+    private static final String JSON_PROFILE = "{\"client\":{\"organization\":\"Org1MSP\"},\"name\":\"Org1\","
+            + "\"organizations\":{\"Org1MSP\":{\"mspid\":\"Org1MSP\",\"peers\":[\"Org1Peer1\"]}},"
+            + "\"peers\":{\"Org1Peer1\":{\"url\":\"grpc://localhost:17051\"}},\"version\":\"1.0.0\"}";
+
+    private static final String YAML_PROFILE = "client:\n  organization: Org1MSP\nname: Org1\n"
+            + "organizations:\n  Org1MSP:\n    mspid: Org1MSP\n    peers:\n    - Org1Peer1\n"
+            + "peers:\n  Org1Peer1:\n    url: grpc://localhost:17051\nversion: 1.0.0\n";
+
+    @Test
+    public void testLoadInlineJSON() throws Exception {
+        ConnectionProfile profile = ConnectionProfile.load(JSON_PROFILE);
+
+        assertArrayEquals(JSON_PROFILE.getBytes(StandardCharsets.UTF_8), read(profile.openStream()));
+        // Every build gets its own stream over the same bytes.
+        assertArrayEquals(read(profile.openStream()), read(profile.openStream()));
+    }
+
+    @Test
+    public void testLoadInlineYAML() throws Exception {
+        ConnectionProfile json = ConnectionProfile.load(JSON_PROFILE);
+        ConnectionProfile yaml = ConnectionProfile.load(YAML_PROFILE);
+
+        assertArrayEquals(read(json.openStream()), read(yaml.openStream()));
+    }
+
+    @Test
+    public void testLoadClasspathResource() throws Exception {
+        ConnectionProfile profile = ConnectionProfile.load("connection.json");
+
+        assertTrue(profile.size() > 0);
+        assertFalse(profile.isStale("connection.json"));
+    }
+
+    @Test
+    public void testLoadYAMLFileAndReloadOnChange() throws Exception {
+        File file = File.createTempFile("connection", ".yaml");
+        file.deleteOnExit();
+        Files.write(file.toPath(), YAML_PROFILE.getBytes(StandardCharsets.UTF_8));
+        ConnectionProfile profile = ConnectionProfile.load(file.getAbsolutePath());
+        long later = System.nanoTime() + TimeUnit.SECONDS.toNanos(11);
+
+        assertFalse(profile.isStale(file.getAbsolutePath(), later));
+        assertTrue(file.setLastModified(file.lastModified() + 5000));
+        // Checked again once the next interval has passed.
+        assertFalse(profile.isStale(file.getAbsolutePath(), later + 1));
+        assertTrue(profile.isStale(file.getAbsolutePath(), later + TimeUnit.SECONDS.toNanos(11)));
+        assertTrue(profile.isStale("other.json"));
+    }
+
+    @Test(expected = GatewayException.class)
+    public void testMissingProfile() throws Exception {
+        ConnectionProfile.load("does-not-exist.json");
+    }
+
+    @Test(expected = GatewayException.class)
+    public void testInvalidProfile() throws Exception {
+        ConnectionProfile.load("{\"name\": ");
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,103 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hyperledger.fabric.sdk.BlockchainInfo;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.junit.Test;
+
+/**
+ * ConnectivityProbeTest
+ */
+public class ConnectivityProbeTest {
+
+    @Test
+    public void testNotReadyUntilProbed() {
+        ConnectivityProbe probe = new ConnectivityProbe(() -> new ConnectivityProbe.Reachability(1, 1, 1, 1), 10, 30, TimeUnit.SECONDS);
+
+        assertFalse(probe.isReady(System.currentTimeMillis()));
+        assertEquals(-1, probe.getLastSuccessAgeMillis(System.currentTimeMillis()));
+
+        probe.probe();
+        assertTrue(probe.isReady(System.currentTimeMillis()));
+        assertTrue(probe.getState().isReachable());
+        assertNull(probe.getState().getError());
+    }
+
+    @Test
+    public void testReadyUntilLastSuccessTooOld() {
+        AtomicReference<ConnectivityProbe.Reachability> reachability = new AtomicReference<ConnectivityProbe.Reachability>(
+                new ConnectivityProbe.Reachability(2, 1, 1, 1));
+        ConnectivityProbe probe = new ConnectivityProbe(reachability::get, 10, 30, TimeUnit.SECONDS);
+        probe.probe();
+        long lastSuccess = probe.getState().getLastSuccessMillis();
+
+        reachability.set(new ConnectivityProbe.Reachability(2, 0, 1, 1));
+        probe.probe();
+
+        assertFalse(probe.getState().isReachable());
+        assertEquals(lastSuccess, probe.getState().getLastSuccessMillis());
+        assertTrue(probe.isReady(lastSuccess + TimeUnit.SECONDS.toMillis(30)));
+        assertFalse(probe.isReady(lastSuccess + TimeUnit.SECONDS.toMillis(31)));
+    }
+
+    @Test
+    public void testFailedProbeRecordsError() {
+        ConnectivityProbe probe = new ConnectivityProbe(() -> {
+            throw new IllegalStateException("gateway down");
+        }, 10, 30, TimeUnit.SECONDS);
+
+        probe.probe();
+
+        assertFalse(probe.isReady(System.currentTimeMillis()));
+        assertTrue(probe.getState().getError().contains("gateway down"));
+        assertTrue(probe.getState().getLastAttemptMillis() > 0);
+    }
+
+    @Test
+    public void testReachability() {
+        assertTrue(new ConnectivityProbe.Reachability(0, 0, 0, 0).isReachable());
+        assertTrue(new ConnectivityProbe.Reachability(3, 1, 2, 1).isReachable());
+        assertFalse(new ConnectivityProbe.Reachability(3, 0, 2, 2).isReachable());
+        assertFalse(new ConnectivityProbe.Reachability(3, 3, 2, 0).isReachable());
+    }
+
+    @Test
+    public void testIsListening() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            assertTrue(ConnectivityProbe.isListening("grpcs://localhost:" + server.getLocalPort(), 1000));
+        }
+        assertFalse(ConnectivityProbe.isListening("grpcs://no port", 1000));
+    }
+
+    @Test
+    public void testQueryPeersWithinTimeout() throws Exception {
+        Peer answers = mock(Peer.class);
+        Peer fails = mock(Peer.class);
+        Peer hangs = mock(Peer.class);
+        Channel channel = mock(Channel.class);
+        when(channel.queryBlockchainInfo(answers)).thenReturn(mock(BlockchainInfo.class));
+        when(channel.queryBlockchainInfo(fails)).thenThrow(new ProposalException("UNAVAILABLE"));
+        when(channel.queryBlockchainInfo(hangs)).thenAnswer(invocation -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(20));
+            return mock(BlockchainInfo.class);
+        });
+
+        long start = System.nanoTime();
+        assertEquals(1, ConnectivityProbe.queryPeers(channel, Arrays.asList(hangs, fails, answers), 200));
+        // A peer that does not answer holds the probe up for the timeout, not the SDK's own one.
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+    }
+}
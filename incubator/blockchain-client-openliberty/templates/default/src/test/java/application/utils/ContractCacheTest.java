@@ -0,0 +1,61 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.Objects;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.junit.Test;
+
+/**
+ * ContractCacheTest
+ */
+public class ContractCacheTest {
+
+    @Test
+    public void testHitAndMissCounters() {
+        ContractCache cache = new ContractCache();
+        Contract contract = mock(Contract.class);
+
+        assertNull(cache.get(new ContractCache.HandleKey("admin", "mychannel", "MyAsset")));
+        cache.put(new ContractCache.HandleKey("admin", "mychannel", "MyAsset"), contract);
+        assertSame(contract, cache.get(new ContractCache.HandleKey("admin", "mychannel", "MyAsset")));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testKeysAreDistinctPerChannelAndContract() {
+        ContractCache cache = new ContractCache();
+        Contract contract = mock(Contract.class);
+        cache.put(new ContractCache.HandleKey("admin", "mychannel", "MyAsset"), contract);
+
+        assertNull(cache.get(new ContractCache.HandleKey("admin", "otherchannel", "MyAsset")));
+        assertNull(cache.get(new ContractCache.HandleKey("admin", "mychannel", "OtherAsset")));
+        assertNull(cache.get(new ContractCache.HandleKey("user1", "mychannel", "MyAsset")));
+    }
+
+    @Test
+    public void testKeyHash() {
+        assertEquals(Objects.hash("admin", "mychannel", "MyAsset"), new ContractCache.HandleKey("admin", "mychannel", "MyAsset").hashCode());
+        assertEquals(Objects.hash("admin", null, "MyAsset"), new ContractCache.HandleKey("admin", null, "MyAsset").hashCode());
+        assertEquals(new ContractCache.HandleKey("admin", null, "MyAsset"), new ContractCache.HandleKey("admin", null, "MyAsset"));
+    }
+
+    @Test
+    public void testInvalidateIdentity() {
+        ContractCache cache = new ContractCache();
+        cache.put(new ContractCache.HandleKey("admin", "mychannel", "MyAsset"), mock(Contract.class));
+        cache.put(new ContractCache.HandleKey("admin", "otherchannel", "MyAsset"), mock(Contract.class));
+        cache.put(new ContractCache.HandleKey("user1", "mychannel", "MyAsset"), mock(Contract.class));
+
+        cache.invalidate("admin");
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(new ContractCache.HandleKey("admin", "mychannel", "MyAsset")));
+    }
+}
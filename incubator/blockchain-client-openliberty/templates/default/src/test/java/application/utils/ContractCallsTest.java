@@ -0,0 +1,43 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * ContractCallsTest
+ */
+public class ContractCallsTest {
+
+    @Test
+    public void testOldestSubmitAge() throws Exception {
+        ContractCalls calls = new ContractCalls();
+        assertEquals(0, calls.getOldestSubmitAge(System.nanoTime()));
+
+        long first = calls.submitStarted();
+        Thread.sleep(5);
+        long second = calls.submitStarted();
+        long now = System.nanoTime();
+        long oldest = calls.getOldestSubmitAge(now);
+
+        assertEquals(2, calls.getSubmits());
+        calls.submitFinished(second);
+        assertEquals(oldest, calls.getOldestSubmitAge(now));
+        calls.submitFinished(first);
+        assertEquals(0, calls.getOldestSubmitAge(now));
+        assertTrue(oldest >= 5_000_000);
+    }
+
+    @Test
+    public void testEvaluates() {
+        ContractCalls calls = new ContractCalls();
+
+        calls.evaluateStarted();
+        calls.evaluateStarted();
+        calls.evaluateFinished();
+
+        assertEquals(1, calls.getEvaluates());
+        assertEquals(0, calls.getSubmits());
+    }
+}
@@ -0,0 +1,147 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.hyperledger.fabric.sdk.exception.TransactionException;
+import org.junit.Test;
+
+/**
+ * ContractPolicyTest
+ */
+public class ContractPolicyTest {
+
+    @Test
+    public void testBulkheadRejectsWhenFull() throws Exception {
+        ContractPolicy policy = new ContractPolicy(ContractPolicy.READ, 2, 0, 0, 50, 5, TimeUnit.SECONDS);
+        ContractPolicy.Permit first = policy.enter();
+        ContractPolicy.Permit second = policy.enter();
+        assertEquals(2, policy.getInFlight());
+
+        try {
+            policy.enter();
+            fail("Expected RejectedException");
+        } catch (ContractPolicy.RejectedException e) {
+            assertFalse(e.isCircuitOpen());
+        }
+        assertEquals(1, policy.getRejected());
+
+        first.close();
+        first.close();
+        policy.enter().close();
+        second.close();
+        assertEquals(0, policy.getInFlight());
+    }
+
+    @Test
+    public void testCircuitOpensAndCloses() throws Exception {
+        ContractPolicy policy = new ContractPolicy(ContractPolicy.WRITE, 0, 0, 4, 50, 5, TimeUnit.SECONDS);
+        long now = System.currentTimeMillis();
+        policy.record(false, now);
+        policy.record(true, now);
+        policy.record(false, now);
+        assertEquals(ContractPolicy.CLOSED, policy.getState());
+        policy.record(true, now);
+        assertEquals(ContractPolicy.OPEN, policy.getState());
+        assertEquals(3000, policy.getRetryAfterMillis(now + 2000));
+
+        try {
+            policy.enter();
+            fail("Expected RejectedException");
+        } catch (ContractPolicy.RejectedException e) {
+            assertTrue(e.isCircuitOpen());
+        }
+        assertEquals(1, policy.getPrevented());
+    }
+
+    @Test
+    public void testHalfOpenCircuit() throws Exception {
+        ContractPolicy policy = new ContractPolicy(ContractPolicy.WRITE, 0, 0, 1, 100, 0, TimeUnit.SECONDS);
+        policy.record(true, System.currentTimeMillis());
+        assertEquals(ContractPolicy.OPEN, policy.getState());
+
+        ContractPolicy.Permit trial = policy.enter();
+        assertEquals(ContractPolicy.HALF_OPEN, policy.getState());
+        // Only one trial call runs while half open.
+        try {
+            policy.enter();
+            fail("Expected RejectedException");
+        } catch (ContractPolicy.RejectedException e) {
+            assertTrue(e.isCircuitOpen());
+        }
+        trial.failed();
+        trial.close();
+        assertEquals(ContractPolicy.OPEN, policy.getState());
+
+        trial = policy.enter();
+        // A call admitted before the circuit opened does not decide the trial.
+        policy.record(false, System.currentTimeMillis());
+        assertEquals(ContractPolicy.HALF_OPEN, policy.getState());
+        trial.close();
+        assertEquals(ContractPolicy.CLOSED, policy.getState());
+        policy.enter().close();
+        policy.enter().close();
+    }
+
+    @Test
+    public void testHalfOpenTrialRejectedByBulkhead() throws Exception {
+        ContractPolicy policy = new ContractPolicy(ContractPolicy.WRITE, 1, 0, 1, 100, 0, TimeUnit.SECONDS);
+        ContractPolicy.Permit running = policy.enter();
+        policy.record(true, System.currentTimeMillis());
+
+        try {
+            policy.enter();
+            fail("Expected RejectedException");
+        } catch (ContractPolicy.RejectedException e) {
+            assertFalse(e.isCircuitOpen());
+        }
+        running.close();
+        // The trial slot was given back when the bulkhead turned the call away.
+        policy.enter().close();
+        assertEquals(ContractPolicy.CLOSED, policy.getState());
+    }
+
+    @Test
+    public void testTimeoutInterruptsCall() throws Exception {
+        ContractPolicy policy = new ContractPolicy(ContractPolicy.READ, 0, 50, 0, 50, 5, TimeUnit.MILLISECONDS);
+        ContractPolicy.Permit permit = policy.enter();
+        try {
+            Thread.sleep(5000);
+            fail("Expected InterruptedException");
+        } catch (InterruptedException e) {
+            assertTrue(permit.isTimedOut());
+        } finally {
+            permit.close();
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(1, policy.getTimedOut());
+
+        ContractPolicy.Permit quick = policy.enter();
+        quick.close();
+        Thread.sleep(100);
+        assertFalse(quick.isTimedOut());
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    public void testIsLedgerFailure() {
+        assertTrue(ContractPolicy.isLedgerFailure(new ContractException("No successful responses received. Errors: [timeout]")));
+        assertTrue(ContractPolicy.isLedgerFailure(new ContractException("Failed to send transaction to the orderer",
+                new TransactionException("connection refused"))));
+        assertTrue(ContractPolicy.isLedgerFailure(new ContractException("Query failed.", new ProposalException("UNAVAILABLE"))));
+        assertTrue(ContractPolicy.isLedgerFailure(new ContractException("No valid proposal responses received. 2 peer error responses: "
+                + "Channel mychannel Sending proposal with transaction: 1a to peer0 failed because of: gRPC failure=UNAVAILABLE; "
+                + "Channel mychannel sending proposal with transaction 1a to peer1 failed because of timeout(20000 milliseconds) expiration")));
+
+        assertFalse(ContractPolicy.isLedgerFailure(new ContractException("The my asset asset1 does not exist")));
+        assertFalse(ContractPolicy.isLedgerFailure(new ContractException("No valid proposal responses received. 1 peer error responses: "
+                + "transaction returned with failure: Error: The my asset asset1 does not exist")));
+        assertFalse(ContractPolicy.isLedgerFailure(new ContractException("Invalid page size x", new NumberFormatException("x"))));
+    }
+}
@@ -0,0 +1,345 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+import org.junit.Test;
+
+/**
+ * GatewayRegistryTest
+ */
+public class GatewayRegistryTest {
+
+    @Test
+    public void testGatewayIsCached() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            builds.incrementAndGet();
+            return mock(Gateway.class);
+        });
+
+        Gateway first = registry.getGateway("admin");
+        Gateway second = registry.getGateway("admin");
+
+        assertSame(first, second);
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            if (builds.incrementAndGet() == 1) {
+                throw new IdentityException("Fabric Identity : " + id + " not found in wallet.");
+            }
+            return mock(Gateway.class);
+        });
+
+        try {
+            registry.getGateway("admin");
+            fail("Expected IdentityException");
+        } catch (IdentityException e) {
+            // expected
+        }
+        registry.getGateway("admin");
+
+        assertEquals(2, builds.get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testErrorDuringBuildReleasesWaiters() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            if (builds.incrementAndGet() == 1) {
+                building.countDown();
+                await(fail);
+                throw new NoClassDefFoundError("org/hyperledger/fabric/sdk/Channel");
+            }
+            return mock(Gateway.class);
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Gateway> builder = pool.submit(() -> registry.getGateway("admin"));
+            assertTrue(building.await(10, TimeUnit.SECONDS));
+            AtomicReference<Thread> waiting = new AtomicReference<Thread>();
+            Future<Gateway> waiter = pool.submit(() -> {
+                waiting.set(Thread.currentThread());
+                return registry.getGateway("admin");
+            });
+            // Only fail the build once the second request is parked on it.
+            while (waiting.get() == null || waiting.get().getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            fail.countDown();
+
+            for (Future<Gateway> request : Arrays.asList(builder, waiter)) {
+                try {
+                    request.get(10, TimeUnit.SECONDS);
+                    fail("Expected NoClassDefFoundError");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof NoClassDefFoundError);
+                }
+            }
+            registry.getGateway("admin");
+            assertEquals(2, builds.get());
+        } finally {
+            fail.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidateClosesAndRebuilds() throws Exception {
+        List<String> removed = new ArrayList<String>();
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class),
+                (fabricId, gateway) -> removed.add(fabricId));
+
+        Gateway first = registry.getGateway("admin");
+        registry.invalidate("admin", first);
+        Gateway second = registry.getGateway("admin");
+
+        verify(first, timeout(5000)).close();
+        assertNotSame(first, second);
+        assertTrue(registry.isCurrent("admin", second));
+        assertEquals(1, removed.size());
+    }
+
+    @Test
+    public void testInvalidateIgnoresReplacedGateway() throws Exception {
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class));
+
+        Gateway first = registry.getGateway("admin");
+        registry.invalidate("admin", first);
+        Gateway second = registry.getGateway("admin");
+        // A late caller still holding the old gateway must not evict the new one.
+        registry.invalidate("admin", first);
+
+        assertTrue(registry.isCurrent("admin", second));
+        verify(second, never()).close();
+    }
+
+    @Test
+    public void testPoolEvictsLeastRecentlyUsedWhenFull() throws Exception {
+        List<String> removed = new ArrayList<String>();
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class),
+                (fabricId, gateway) -> removed.add(fabricId), 2, 0, 0, TimeUnit.SECONDS);
+        try {
+            Gateway user1 = registry.getGateway("user1");
+            Thread.sleep(1100);
+            registry.getGateway("user2");
+            Thread.sleep(1100);
+            registry.getGateway("user3");
+
+            assertEquals(2, registry.size());
+            assertEquals(1, registry.getSizeEvictions());
+            assertEquals("user1", removed.get(0));
+            verify(user1, timeout(5000)).close();
+            assertEquals(1, registry.getClosed());
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testPoolEvictsIdleGateways() throws Exception {
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class),
+                (fabricId, gateway) -> { }, 0, 200, 0, TimeUnit.MILLISECONDS);
+        try {
+            Gateway idle = registry.getGateway("idle");
+            Gateway busy = registry.getGateway("busy");
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(60);
+                registry.getGateway("busy");
+            }
+
+            verify(idle, timeout(5000)).close();
+            assertEquals(1, registry.getIdleEvictions());
+            assertTrue(registry.isCurrent("busy", busy));
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testTouchKeepsGatewayFromIdleEviction() throws Exception {
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class),
+                (fabricId, gateway) -> { }, 0, 200, 0, TimeUnit.MILLISECONDS);
+        try {
+            Gateway idle = registry.getGateway("idle");
+            Gateway busy = registry.getGateway("busy");
+            // Requests served from cached contracts only touch the gateway.
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(60);
+                registry.touch("busy");
+            }
+
+            verify(idle, timeout(5000)).close();
+            assertEquals(1, registry.getIdleEvictions());
+            assertTrue(registry.isCurrent("busy", busy));
+            registry.touch("unknown");
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvictedGatewayClosedAfterDelay() throws Exception {
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class),
+                (fabricId, gateway) -> { }, 0, 0, 500, TimeUnit.MILLISECONDS);
+        try {
+            Gateway gateway = registry.getGateway("admin");
+            registry.invalidate("admin", gateway);
+
+            // Requests still holding the gateway get the close delay to finish.
+            verify(gateway, never()).close();
+            verify(gateway, timeout(5000)).close();
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownClosesAllGateways() throws Exception {
+        GatewayRegistry registry = new GatewayRegistry(id -> mock(Gateway.class));
+        Gateway user1 = registry.getGateway("user1");
+        Gateway user2 = registry.getGateway("user2");
+
+        registry.shutdown();
+
+        verify(user1).close();
+        verify(user2).close();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testConcurrentFirstRequestsShareOneBuild() throws Exception {
+        int threads = 16;
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            builds.incrementAndGet();
+            await(release);
+            return mock(Gateway.class);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Gateway>> results = new ArrayList<Future<Gateway>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> registry.getGateway("admin")));
+            }
+            release.countDown();
+
+            Gateway expected = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Gateway> result : results) {
+                assertSame(expected, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, builds.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBuildsForDifferentIdentitiesRunInParallel() throws Exception {
+        CountDownLatch bothBuilding = new CountDownLatch(2);
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            bothBuilding.countDown();
+            // Each build only finishes once the other one has started.
+            await(bothBuilding);
+            return mock(Gateway.class);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Gateway> user1 = pool.submit(() -> registry.getGateway("user1"));
+            Future<Gateway> user2 = pool.submit(() -> registry.getGateway("user2"));
+            user1.get(15, TimeUnit.SECONDS);
+            user2.get(15, TimeUnit.SECONDS);
+            assertEquals(0, bothBuilding.getCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Contention benchmark: cache hits must keep flowing while a cold build is stuck connecting.
+    @Test
+    public void testHitsDoNotQueueBehindColdBuild() throws Exception {
+        int threads = 8;
+        int hitsPerThread = 100000;
+        CountDownLatch coldBuildStarted = new CountDownLatch(1);
+        CountDownLatch releaseColdBuild = new CountDownLatch(1);
+        GatewayRegistry registry = new GatewayRegistry(id -> {
+            if (id.equals("cold")) {
+                coldBuildStarted.countDown();
+                await(releaseColdBuild);
+            }
+            return mock(Gateway.class);
+        });
+        Gateway warm = registry.getGateway("warm");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<Gateway> cold = pool.submit(() -> registry.getGateway("cold"));
+            assertTrue(coldBuildStarted.await(10, TimeUnit.SECONDS));
+
+            List<Future<Integer>> hitters = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < threads; i++) {
+                hitters.add(pool.submit(() -> {
+                    int hits = 0;
+                    for (int j = 0; j < hitsPerThread; j++) {
+                        if (registry.getGateway("warm") == warm) {
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            for (Future<Integer> hitter : hitters) {
+                assertEquals(hitsPerThread, hitter.get(30, TimeUnit.SECONDS).intValue());
+            }
+
+            // All hits completed while the cold build was still blocked.
+            assertTrue(!cold.isDone());
+
+            releaseColdBuild.countDown();
+            cold.get(10, TimeUnit.SECONDS);
+        } finally {
+            releaseColdBuild.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws GatewayException {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new GatewayException("Interrupted.", e);
+        }
+    }
+}
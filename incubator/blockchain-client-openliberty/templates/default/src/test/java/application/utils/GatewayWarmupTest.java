@@ -0,0 +1,82 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * GatewayWarmupTest
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({System.class, ConnectionConfiguration.class})
+public class GatewayWarmupTest {
+
+    @Test
+    public void testWarmsEveryIdentity() {
+        GatewayWarmup warmup = new GatewayWarmup(identity -> {
+            if (identity.equals("user2")) {
+                throw new IllegalStateException("not in wallet");
+            }
+        }, 2, 10, TimeUnit.SECONDS);
+        assertFalse(warmup.isDone());
+
+        warmup.run(Arrays.asList("user1", "user2", "user3"));
+
+        assertTrue(warmup.isDone());
+        Map<String, GatewayWarmup.Result> results = warmup.getResults();
+        assertEquals(Arrays.asList("user1", "user2", "user3"), Arrays.asList(results.keySet().toArray()));
+        assertNull(results.get("user1").getError());
+        assertTrue(results.get("user2").getError().contains("not in wallet"));
+    }
+
+    @Test
+    public void testDoneAfterTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        GatewayWarmup warmup = new GatewayWarmup(identity -> {
+            if (identity.equals("slow")) {
+                release.await();
+            }
+        }, 2, 200, TimeUnit.MILLISECONDS);
+
+        warmup.run(Arrays.asList("fast", "slow"));
+
+        assertTrue(warmup.isDone());
+        assertEquals(1, warmup.getResults().size());
+        assertTrue(warmup.getResults().containsKey("fast"));
+        release.countDown();
+    }
+
+    @Test
+    public void testConfiguredIdentities() throws Exception {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("FABRIC_WARMUP_IDENTITIES")).thenReturn(" user1, user2,,user1 ,user3");
+        PowerMockito.when(System.getenv("FABRIC_GATEWAY_POOL_MAX_SIZE")).thenReturn("2");
+
+        assertEquals(Arrays.asList("user1", "user2"), GatewayWarmup.configuredIdentities());
+    }
+
+    @Test
+    public void testNothingToWarm() {
+        PowerMockito.mockStatic(System.class);
+        GatewayWarmup warmup = new GatewayWarmup(identity -> {
+            throw new IllegalStateException("not expected");
+        }, 2, 10, TimeUnit.SECONDS);
+
+        warmup.start();
+
+        assertTrue(warmup.isDone());
+        assertTrue(warmup.getResults().isEmpty());
+    }
+}
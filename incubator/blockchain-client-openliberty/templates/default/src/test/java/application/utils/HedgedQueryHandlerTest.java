@@ -0,0 +1,197 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.GatewayRuntimeException;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.gateway.Wallet;
+import org.hyperledger.fabric.gateway.spi.Query;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.sdk.ChaincodeResponse;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.junit.Test;
+
+/**
+ * HedgedQueryHandlerTest
+ */
+public class HedgedQueryHandlerTest {
+
+    private final Peer peer1 = mock(Peer.class);
+    private final Peer peer2 = mock(Peer.class);
+
+    @Test
+    public void testSlowPeerIsHedged() throws Exception {
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(95, 20, TimeUnit.MILLISECONDS, 0, 100, 4, null);
+        HedgedQueryHandler handler = new HedgedQueryHandler(Arrays.asList(peer1, peer2), hedging);
+        ProposalResponse slow = success();
+        ProposalResponse fast = success();
+        Query query = mock(Query.class);
+        when(query.evaluate(peer1)).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return slow;
+        });
+        when(query.evaluate(peer2)).thenReturn(fast);
+
+        long start = System.nanoTime();
+        assertSame(fast, handler.evaluate(query));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, hedging.getHedges());
+        assertEquals(1, hedging.getWins());
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() throws Exception {
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(95, 1, TimeUnit.MILLISECONDS, 0, 0, 4, null);
+        HedgedQueryHandler handler = new HedgedQueryHandler(Arrays.asList(peer1, peer2), hedging);
+        ProposalResponse slow = success();
+        Query query = mock(Query.class);
+        when(query.evaluate(peer1)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return slow;
+        });
+
+        assertSame(slow, handler.evaluate(query));
+        assertEquals(0, hedging.getHedges());
+        assertEquals(0.0, hedging.getHedgeRate(), 0);
+    }
+
+    @Test
+    public void testFailedPeerIsReplaced() throws Exception {
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(0, 0, TimeUnit.MILLISECONDS, 0, 0, 4, null);
+        HedgedQueryHandler handler = new HedgedQueryHandler(Arrays.asList(peer1, peer2), hedging);
+        ProposalResponse answer = success();
+        Query query = mock(Query.class);
+        when(query.evaluate(peer1)).thenThrow(new GatewayRuntimeException("peer1 down"));
+        when(query.evaluate(peer2)).thenReturn(answer);
+
+        assertSame(answer, handler.evaluate(query));
+        // The next query starts with the second peer.
+        assertSame(answer, handler.evaluate(query));
+
+        when(query.evaluate(peer2)).thenThrow(new GatewayRuntimeException("peer2 down"));
+        try {
+            handler.evaluate(query);
+            fail("Expected ContractException");
+        } catch (ContractException e) {
+            assertTrue(e.getMessage().contains("peer1 down"));
+            assertTrue(e.getMessage().contains("peer2 down"));
+        }
+    }
+
+    @Test
+    public void testChaincodeErrorIsReturned() throws Exception {
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(95, 1, TimeUnit.MILLISECONDS, 0, 100, 4, null);
+        HedgedQueryHandler handler = new HedgedQueryHandler(Arrays.asList(peer1, peer2), hedging);
+        ProposalResponse error = mock(ProposalResponse.class);
+        when(error.getStatus()).thenReturn(ChaincodeResponse.Status.FAILURE);
+        when(error.getMessage()).thenReturn("asset1 does not exist");
+        when(error.getProposalResponse()).thenReturn(FabricProposalResponse.ProposalResponse.getDefaultInstance());
+        Query query = mock(Query.class);
+        when(query.evaluate(peer1)).thenReturn(error);
+
+        try {
+            handler.evaluate(query);
+            fail("Expected ContractException");
+        } catch (ContractException e) {
+            assertEquals("asset1 does not exist", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScoredPeersAvoidFailingPeer() throws Exception {
+        when(peer1.getName()).thenReturn("peer1");
+        when(peer2.getName()).thenReturn("peer2");
+        PeerScores scores = new PeerScores(30, TimeUnit.SECONDS);
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(0, 0, TimeUnit.MILLISECONDS, 0, 0, 4, scores);
+        HedgedQueryHandler handler = new HedgedQueryHandler(Arrays.asList(peer1, peer2), hedging);
+        ProposalResponse answer = success();
+        Query query = mock(Query.class);
+        when(query.evaluate(peer1)).thenThrow(new GatewayRuntimeException("peer1 down"));
+        when(query.evaluate(peer2)).thenReturn(answer);
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(answer, handler.evaluate(query));
+        }
+        // Once peer1 has failed, every query goes to peer2 first.
+        verify(query, times(1)).evaluate(peer1);
+        verify(query, times(5)).evaluate(peer2);
+        assertTrue(scores.cost("peer1", System.currentTimeMillis()) > scores.cost("peer2", System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testForNetworkQueriesOrganizationPeers() throws Exception {
+        Peer otherOrg = mock(Peer.class);
+        Channel channel = mock(Channel.class);
+        // The SDK returns an unmodifiable view of the channel's peers.
+        when(channel.getPeers(EnumSet.of(Peer.PeerRole.CHAINCODE_QUERY)))
+                .thenReturn(Collections.unmodifiableCollection(Arrays.asList(peer1, otherOrg, peer2)));
+        when(channel.getPeersForOrganization("Org1MSP")).thenReturn(new HashSet<Peer>(Arrays.asList(peer1, peer2)));
+        Wallet.Identity identity = mock(Wallet.Identity.class);
+        when(identity.getMspId()).thenReturn("Org1MSP");
+        Gateway gateway = mock(Gateway.class);
+        when(gateway.getIdentity()).thenReturn(identity);
+        Network network = mock(Network.class);
+        when(network.getChannel()).thenReturn(channel);
+        when(network.getGateway()).thenReturn(gateway);
+        HedgedQueryHandler.Hedging hedging = new HedgedQueryHandler.Hedging(0, 0, TimeUnit.MILLISECONDS, 0, 0, 4, null);
+
+        HedgedQueryHandler handler = HedgedQueryHandler.forNetwork(network, hedging);
+        ProposalResponse answer = success();
+        Query query = mock(Query.class);
+        when(query.evaluate(otherOrg)).thenThrow(new GatewayRuntimeException("wrong organization"));
+        when(query.evaluate(peer1)).thenReturn(answer);
+        when(query.evaluate(peer2)).thenReturn(answer);
+        for (int i = 0; i < 4; i++) {
+            assertSame(answer, handler.evaluate(query));
+        }
+        verify(query, times(0)).evaluate(otherOrg);
+
+        when(channel.getPeersForOrganization("Org1MSP")).thenReturn(Collections.<Peer>emptySet());
+        try {
+            HedgedQueryHandler.forNetwork(network, hedging);
+            fail("Expected GatewayRuntimeException");
+        } catch (GatewayRuntimeException e) {
+            assertTrue(e.getMessage().contains("No peers"));
+        }
+    }
+
+    @Test
+    public void testLatencyTrackerPercentile() {
+        LatencyTracker tracker = new LatencyTracker(100, 1);
+        assertEquals(-1, tracker.percentile(95, TimeUnit.MILLISECONDS));
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(95, tracker.percentile(95, TimeUnit.MILLISECONDS));
+        assertEquals(50, tracker.percentile(50, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 100; i++) {
+            tracker.record(1000, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(1000, tracker.percentile(50, TimeUnit.MILLISECONDS));
+    }
+
+    private static ProposalResponse success() {
+        ProposalResponse response = mock(ProposalResponse.class);
+        when(response.getStatus()).thenReturn(ChaincodeResponse.Status.SUCCESS);
+        return response;
+    }
+}
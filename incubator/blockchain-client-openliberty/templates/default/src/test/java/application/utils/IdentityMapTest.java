@@ -0,0 +1,85 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.hyperledger.fabric_ca.sdk.exception.IdentityException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * IdentityMapTest
+ */
+public class IdentityMapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIdentityOf() throws Exception {
+        IdentityMap identities = new IdentityMap(write("{\"alice\":\"org1user\",\"bob\":\"org2user\"}", 1000));
+
+        assertEquals("org1user", identities.identityOf("alice"));
+        assertEquals("org2user", identities.identityOf("bob"));
+        assertNull(identities.identityOf("mallory"));
+        assertEquals(2, identities.size());
+    }
+
+    @Test
+    public void testAnyPrincipal() throws Exception {
+        IdentityMap identities = new IdentityMap(write("{\"alice\":\"org1user\",\"*\":\"guest\"}", 1000));
+
+        assertEquals("org1user", identities.identityOf("alice"));
+        assertEquals("guest", identities.identityOf("mallory"));
+    }
+
+    @Test
+    public void testReloadIfChanged() throws Exception {
+        Path file = write("{\"alice\":\"org1user\"}", 1000);
+        IdentityMap identities = new IdentityMap(file);
+
+        assertFalse(identities.reloadIfChanged());
+        write("{\"alice\":\"org2user\"}", 2000);
+        assertTrue(identities.reloadIfChanged());
+
+        assertEquals("org2user", identities.identityOf("alice"));
+        assertEquals(1, identities.getReloads());
+        assertFalse(identities.reloadIfChanged());
+    }
+
+    @Test
+    public void testInvalidReloadKeepsMapping() throws Exception {
+        Path file = write("{\"alice\":\"org1user\"}", 1000);
+        IdentityMap identities = new IdentityMap(file);
+
+        write("{\"alice\":", 2000);
+        assertFalse(identities.reloadIfChanged());
+        Files.delete(file);
+        assertFalse(identities.reloadIfChanged());
+
+        assertEquals("org1user", identities.identityOf("alice"));
+        assertEquals(0, identities.getReloads());
+        assertEquals(2, identities.getReloadFailures());
+    }
+
+    @Test(expected = IdentityException.class)
+    public void testInvalidFile() throws Exception {
+        new IdentityMap(write("[\"alice\"]", 1000));
+    }
+
+    private Path write(String json, long lastModified) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("identities.json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+}
@@ -0,0 +1,228 @@
+package application.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+import org.hyperledger.fabric.gateway.GatewayException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import application.api.MyAsset;
+import application.api.MyAssetController;
+import application.api.MyAssetPage;
+import application.api.exceptions.AssetException;
+import application.api.exceptions.AssetNotFoundException;
+
+/**
+ * LocalLedgerTest
+ */
+public class LocalLedgerTest {
+
+    private static Contract contract(LocalLedger ledger) {
+        return contract(ledger, new TransactionStatusIndex(100), null);
+    }
+
+    private static Contract contract(LocalLedger ledger, TransactionStatusIndex transactions, AssetCache assets) {
+        return ledger.connect("admin", transactions, assets).getNetwork("mychannel").getContract("myasset");
+    }
+
+    private static LocalLedger ledger(long commitMillis, double conflictRate, double failureRate) {
+        return new LocalLedger(LatencyDistribution.NONE, new LatencyDistribution(commitMillis, commitMillis),
+                conflictRate, failureRate, 0);
+    }
+
+    @Test
+    public void testFabricProfileSelectsNoLedger() throws Exception {
+        assertNull(LocalLedger.fromProfile("{\"type\":\"FABRIC\"}"));
+        assertNotNull(LocalLedger.fromProfile("{\"type\":\"local\",\"commitLatency\":{\"median\":5,\"p99\":20}}"));
+    }
+
+    @Test(expected = GatewayException.class)
+    public void testInvalidLedgerType() throws Exception {
+        LocalLedger.fromProfile("{\"type\":\"NOPE\"}");
+    }
+
+    @Test
+    public void testAssetLifecycle() throws Exception {
+        MyAssetController controller = new MyAssetController();
+        Contract contract = contract(ledger(0, 0, 0));
+
+        String transactionId = controller.createMyAsset(contract, new MyAsset("asset1", "one"));
+        assertNotNull(transactionId);
+        assertEquals("one", new JSONObject(new String(controller.getMyAsset(contract, "asset1"), StandardCharsets.UTF_8)).getString("value"));
+
+        controller.updateMyAsset(contract, new MyAsset("asset1", "two"));
+        assertEquals("two", new JSONObject(new String(controller.getMyAsset(contract, "asset1"), StandardCharsets.UTF_8)).getString("value"));
+
+        controller.deleteMyAsset(contract, "asset1");
+        try {
+            controller.getMyAsset(contract, "asset1");
+            fail("Expected AssetNotFoundException");
+        } catch (AssetNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = ContractException.class)
+    public void testCreateExistingAssetFails() throws Exception {
+        Contract contract = contract(ledger(0, 0, 0));
+        contract.submitTransaction("createMyAsset", "asset1", "one");
+        contract.submitTransaction("createMyAsset", "asset1", "two");
+    }
+
+    @Test
+    public void testGatewaysShareWorldState() throws Exception {
+        LocalLedger ledger = ledger(0, 0, 0);
+        contract(ledger).submitTransaction("createMyAsset", "asset1", "one");
+        Contract other = ledger.connect("user1", new TransactionStatusIndex(100), null).getNetwork("mychannel").getContract("myasset");
+        assertArrayEquals("true".getBytes(StandardCharsets.UTF_8), other.evaluateTransaction("myAssetExists", "asset1"));
+        Contract otherChannel = ledger.connect("admin", new TransactionStatusIndex(100), null).getNetwork("otherchannel").getContract("myasset");
+        assertArrayEquals("false".getBytes(StandardCharsets.UTF_8), otherChannel.evaluateTransaction("myAssetExists", "asset1"));
+    }
+
+    @Test
+    public void testConcurrentUpdatesConflict() throws Exception {
+        LocalLedger ledger = ledger(200, 0, 0);
+        Contract contract = contract(ledger);
+        contract.submitTransaction("createMyAsset", "asset1", "zero");
+
+        int writers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            Future<?>[] updates = new Future<?>[writers];
+            for (int i = 0; i < writers; i++) {
+                String value = "value" + i;
+                updates[i] = pool.submit(() -> {
+                    start.await();
+                    return contract.submitTransaction("updateMyAsset", "asset1", value);
+                });
+            }
+            start.countDown();
+            int committed = 0;
+            for (Future<?> update : updates) {
+                try {
+                    update.get(10, TimeUnit.SECONDS);
+                    committed++;
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause().getMessage().contains("MVCC_READ_CONFLICT"));
+                }
+            }
+            // All writers endorsed against the same version, only the first to commit wins.
+            assertEquals(1, committed);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInjectedConflictsAndFailures() throws Exception {
+        Contract conflicting = contract(ledger(0, 1, 0));
+        try {
+            conflicting.submitTransaction("createMyAsset", "asset1", "one");
+            fail("Expected ContractException");
+        } catch (ContractException e) {
+            assertTrue(e.getMessage().contains("MVCC_READ_CONFLICT"));
+        }
+        assertArrayEquals("false".getBytes(StandardCharsets.UTF_8), conflicting.evaluateTransaction("myAssetExists", "asset1"));
+
+        Contract failing = contract(ledger(0, 0, 1));
+        try {
+            failing.submitTransaction("createMyAsset", "asset1", "one");
+            fail("Expected ContractException");
+        } catch (ContractException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSubmitWithoutWaitingCommitsInBackground() throws Exception {
+        TransactionStatusIndex transactions = new TransactionStatusIndex(100);
+        AssetCache assets = new AssetCache(100, 0, TimeUnit.SECONDS);
+        Contract contract = contract(ledger(200, 0, 0), transactions, assets);
+        MyAssetController controller = new MyAssetController(assets, "mychannel", "myasset");
+
+        String transactionId = controller.createMyAssetAsync(contract, new MyAsset("asset1", "one"), false).get(10, TimeUnit.SECONDS);
+        assertTrue(transactions.isPending(transactionId));
+        assertArrayEquals("false".getBytes(StandardCharsets.UTF_8), contract.evaluateTransaction("myAssetExists", "asset1"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (transactions.isPending(transactionId) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        TransactionStatus status = transactions.get(transactionId);
+        assertEquals(TransactionStatus.COMMITTED, status.getStatus());
+        assertEquals(TransactionStatusIndex.VALID, status.getValidationCode());
+        assertArrayEquals("true".getBytes(StandardCharsets.UTF_8), contract.evaluateTransaction("myAssetExists", "asset1"));
+    }
+
+    @Test
+    public void testConflictRecordedInStatusIndex() throws Exception {
+        TransactionStatusIndex transactions = new TransactionStatusIndex(100);
+        Contract contract = contract(ledger(0, 1, 0), transactions, null);
+        MyAssetController controller = new MyAssetController();
+        try {
+            controller.createMyAsset(contract, new MyAsset("asset1", "one"));
+            fail("Expected AssetNotFoundException");
+        } catch (AssetNotFoundException e) {
+            // expected
+        }
+        assertEquals(1, transactions.size());
+        assertEquals(1, transactions.getInvalid());
+    }
+
+    @Test
+    public void testListAssetsByPage() throws Exception {
+        Contract contract = contract(ledger(0, 0, 0));
+        for (int i = 0; i < 5; i++) {
+            contract.submitTransaction("createMyAsset", "asset" + i, "value" + i);
+        }
+        MyAssetController controller = new MyAssetController();
+
+        MyAssetPage page = controller.getMyAssetRange(contract, "asset1", "", 2, null);
+        assertEquals("asset1", page.getRecords().get(0).getMyAssetId());
+        assertEquals("value2", page.getRecords().get(1).getValue());
+        assertEquals("asset3", page.getBookmark());
+
+        page = controller.getMyAssetRange(contract, "asset1", "asset4", 2, page.getBookmark());
+        assertEquals(1, page.getRecords().size());
+        assertEquals("asset3", page.getRecords().get(0).getMyAssetId());
+        assertEquals("", page.getBookmark());
+    }
+
+    @Test(expected = AssetException.class)
+    public void testRichQueryUnsupported() throws Exception {
+        new MyAssetController().queryMyAssets(contract(ledger(0, 0, 0)), "{\"selector\":{}}", 10, null);
+    }
+
+    @Test
+    public void testLatencyDistribution() {
+        LatencyDistribution latency = new LatencyDistribution(10, 50);
+        int samples = 20000;
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            nanos[i] = latency.sampleNanos();
+        }
+        Arrays.sort(nanos);
+        double median = nanos[samples / 2] / 1e6;
+        double p99 = nanos[samples * 99 / 100] / 1e6;
+        assertEquals(10, median, 1);
+        assertEquals(50, p99, 10);
+        assertEquals(0, LatencyDistribution.NONE.sampleNanos());
+    }
+}
@@ -0,0 +1,70 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * PeerScoresTest
+ */
+public class PeerScoresTest {
+
+    @Test
+    public void testCheaperPeerFirst() {
+        PeerScores scores = new PeerScores(30, TimeUnit.SECONDS);
+        scores.record("peer1", 50, TimeUnit.MILLISECONDS, false, 1000);
+        scores.record("peer2", 5, TimeUnit.MILLISECONDS, false, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Arrays.asList("peer2", "peer1"), scores.order(Arrays.asList("peer1", "peer2"), name -> name, 1000));
+        }
+        // The dearest peer never wins a pick of two.
+        scores.record("peer3", 20, TimeUnit.MILLISECONDS, false, 1000);
+        for (int i = 0; i < 20; i++) {
+            List<String> order = scores.order(Arrays.asList("peer1", "peer2", "peer3"), name -> name, 1000);
+            assertTrue(!"peer1".equals(order.get(0)));
+            assertEquals(3, order.size());
+        }
+    }
+
+    @Test
+    public void testFailuresRaiseCost() {
+        PeerScores scores = new PeerScores(30, TimeUnit.SECONDS);
+        scores.record("fast", 10, TimeUnit.MILLISECONDS, false, 1000);
+        scores.record("fast", 1, TimeUnit.MILLISECONDS, true, 1000);
+        scores.record("slow", 100, TimeUnit.MILLISECONDS, false, 1000);
+
+        // A fast failure does not lower the latency, and its error rate outweighs the slow peer.
+        PeerScores.Snapshot fast = scores.getScores(1000).get(0);
+        assertEquals("fast", fast.getPeer());
+        assertEquals(10.0, fast.getLatencyMillis(), 0.001);
+        assertEquals(0.2, fast.getErrorRate(), 0.001);
+        assertTrue(scores.cost("fast", 1000) > scores.cost("slow", 1000));
+        assertEquals(0.0, scores.cost("unknown", 1000), 0);
+    }
+
+    @Test
+    public void testScoresDecay() {
+        PeerScores scores = new PeerScores(10, TimeUnit.SECONDS);
+        scores.record("peer1", 100, TimeUnit.MILLISECONDS, true, 0);
+        scores.record("peer1", 100, TimeUnit.MILLISECONDS, false, 0);
+
+        double cost = scores.cost("peer1", 0);
+        assertEquals(cost / 2, scores.cost("peer1", 10000), 0.001);
+        assertEquals(cost / 4, scores.cost("peer1", 20000), 0.001);
+
+        PeerScores.Snapshot snapshot = scores.getScores(20000).get(0);
+        assertEquals(2, snapshot.getQueries());
+        assertEquals(1, snapshot.getErrors());
+        assertEquals(20000, snapshot.getIdleMillis());
+
+        // A sample after a long idle period mostly replaces the old averages.
+        scores.record("peer1", 10, TimeUnit.MILLISECONDS, false, 1000000);
+        assertEquals(10.0, scores.cost("peer1", 1000000), 0.01);
+    }
+}
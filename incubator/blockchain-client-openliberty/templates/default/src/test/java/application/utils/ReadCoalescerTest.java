@@ -0,0 +1,204 @@
+package application.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hyperledger.fabric.gateway.ContractException;
+import org.junit.Test;
+
+/**
+ * ReadCoalescerTest
+ */
+public class ReadCoalescerTest {
+    private static final byte[] VALUE = "{\"value\":\"one\"}".getBytes(StandardCharsets.UTF_8);
+
+    // Starts readers of the same asset while the first one's query is held open.
+    private static Future<?>[] readConcurrently(ReadCoalescer reads, ExecutorService pool, int readers,
+            ReadCoalescer.Read read, CountDownLatch queryStarted) throws Exception {
+        Future<?>[] results = new Future<?>[readers];
+        results[0] = pool.submit(() -> reads.read("admin", "mychannel", "myasset", "asset1", read));
+        assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < readers; i++) {
+            results[i] = pool.submit(() -> reads.read("admin", "mychannel", "myasset", "asset1", read));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (reads.getCoalesced() < readers - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return results;
+    }
+
+    @Test
+    public void testConcurrentReadsShareQuery() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true);
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReadCoalescer.Read read = () -> {
+            queries.incrementAndGet();
+            queryStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return VALUE;
+        };
+
+        int readers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        try {
+            Future<?>[] results = readConcurrently(reads, pool, readers, read, queryStarted);
+            release.countDown();
+            for (Future<?> result : results) {
+                assertArrayEquals(VALUE, (byte[]) result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, queries.get());
+        assertEquals(1, reads.getQueries());
+        assertEquals(readers - 1, reads.getCoalesced());
+        assertEquals(0, reads.getInFlight());
+    }
+
+    @Test
+    public void testFailureSharedWithWaiters() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true);
+        ContractException failure = new ContractException("The my asset asset1 does not exist");
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReadCoalescer.Read read = () -> {
+            queryStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw failure;
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?>[] results = readConcurrently(reads, pool, 2, read, queryStarted);
+            release.countDown();
+            for (Future<?> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("Expected ContractException");
+                } catch (ExecutionException e) {
+                    assertSame(failure, e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, reads.getInFlight());
+    }
+
+    @Test
+    public void testWaiterTimesOut() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReadCoalescer.Read read = () -> {
+            queryStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return VALUE;
+        };
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> leader = pool.submit(() -> reads.read("admin", "mychannel", "myasset", "asset1", read));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            try {
+                reads.read("admin", "mychannel", "myasset", "asset1", read, 50, TimeUnit.MILLISECONDS);
+                fail("Expected ContractException");
+            } catch (ContractException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            release.countDown();
+            assertArrayEquals(VALUE, (byte[]) leader.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        assertEquals(1, reads.getQueries());
+        assertEquals(0, reads.getInFlight());
+    }
+
+    @Test
+    public void testInterruptedWaiter() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReadCoalescer.Read read = () -> {
+            queryStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return VALUE;
+        };
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(() -> reads.read("admin", "mychannel", "myasset", "asset1", read));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            Thread.currentThread().interrupt();
+            try {
+                reads.read("admin", "mychannel", "myasset", "asset1", read);
+                fail("Expected ContractException");
+            } catch (ContractException e) {
+                assertTrue(e.getCause() instanceof InterruptedException);
+            }
+            // The interrupt is left for the caller to see.
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialReadsQueryAgain() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true);
+        AtomicInteger queries = new AtomicInteger();
+        ReadCoalescer.Read read = () -> {
+            queries.incrementAndGet();
+            return VALUE;
+        };
+        reads.read("admin", "mychannel", "myasset", "asset1", read);
+        reads.read("admin", "mychannel", "myasset", "asset1", read);
+        // A different identity may not be allowed to read what another one can.
+        reads.read("user1", "mychannel", "myasset", "asset1", read);
+        assertEquals(3, queries.get());
+        assertEquals(0, reads.getCoalesced());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(false);
+        assertArrayEquals(VALUE, reads.read("admin", "mychannel", "myasset", "asset1", () -> VALUE));
+        assertEquals(1, reads.getQueries());
+        assertEquals(0, reads.getInFlight());
+    }
+}
@@ -0,0 +1,66 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * SubmitExecutorTest
+ */
+public class SubmitExecutorTest {
+
+    @Test
+    public void testSubmit() throws Exception {
+        SubmitExecutor executor = new SubmitExecutor(2, 10, 30, TimeUnit.SECONDS);
+        try {
+            CompletableFuture<String> result = executor.submit(() -> "committed");
+            assertEquals("committed", result.get(10, TimeUnit.SECONDS));
+            assertEquals(30000, executor.getTimeout(TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectsWhenFull() throws Exception {
+        SubmitExecutor executor = new SubmitExecutor(1, 1, 30, TimeUnit.SECONDS);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(() -> {
+                running.countDown();
+                await(release);
+                return null;
+            });
+            running.await(10, TimeUnit.SECONDS);
+            executor.submit(() -> null);
+            assertEquals(1, executor.getQueueDepth());
+            assertEquals(1, executor.getActiveCount());
+
+            try {
+                executor.submit(() -> null);
+                fail("Expected RejectedExecutionException");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            assertEquals(1, executor.getRejections());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
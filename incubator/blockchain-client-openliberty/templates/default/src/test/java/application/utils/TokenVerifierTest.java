@@ -0,0 +1,209 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * TokenVerifierTest
+ */
+public class TokenVerifierTest {
+
+    private static final String ISSUER = "https://issuer.example.com";
+    private static final String AUDIENCE = "myassets";
+
+    private static KeyPair rsaKeys;
+    private static KeyPair ecKeys;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        rsaKeys = rsa.generateKeyPair();
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp256r1"));
+        ecKeys = ec.generateKeyPair();
+    }
+
+    @Test
+    public void testVerifyRs256() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+
+        assertEquals("alice", verifier.verify(token("RS256", "rsa1", claims("alice"))));
+    }
+
+    @Test
+    public void testVerifyEs256() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+
+        assertEquals("bob", verifier.verify(token("ES256", "ec1", claims("bob"))));
+    }
+
+    @Test
+    public void testRepeatedTokenIsCached() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+        String token = token("RS256", "rsa1", claims("alice"));
+
+        assertEquals("alice", verifier.verify(token));
+        assertEquals("alice", verifier.verify(token));
+        assertEquals("alice", verifier.verify(token));
+
+        assertEquals(1, verifier.getCache().getMisses());
+        assertEquals(2, verifier.getCache().getHits());
+        assertEquals(1, verifier.getCache().size());
+    }
+
+    @Test
+    public void testRejectsExpiredToken() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+        JSONObject claims = claims("alice").put("exp", now() - 120);
+
+        assertNull(verifier.verify(token("RS256", "rsa1", claims)));
+        assertNull(verifier.verify(token("RS256", "rsa1", claims("alice").put("nbf", now() + 120))));
+        JSONObject noExpiry = claims("alice");
+        noExpiry.remove("exp");
+        assertNull(verifier.verify(token("RS256", "rsa1", noExpiry)));
+        // Claims that are not numbers are rejected rather than failing the request.
+        assertNull(verifier.verify(token("RS256", "rsa1", claims("alice").put("exp", "tomorrow"))));
+        assertNull(verifier.verify(token("RS256", "rsa1", claims("alice").put("nbf", "yesterday"))));
+        assertEquals(0, verifier.getCache().size());
+    }
+
+    @Test
+    public void testRejectsWrongIssuerOrAudience() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+
+        assertNull(verifier.verify(token("RS256", "rsa1", claims("alice").put("iss", "https://other.example.com"))));
+        assertNull(verifier.verify(token("RS256", "rsa1", claims("alice").put("aud", "other"))));
+        assertEquals("alice", verifier.verify(token("RS256", "rsa1",
+                claims("alice").put("aud", new JSONArray().put("other").put(AUDIENCE)))));
+    }
+
+    @Test
+    public void testRejectsBadSignatureAndUnsignedTokens() throws Exception {
+        TokenVerifier verifier = verifier(new AtomicInteger());
+        String token = token("RS256", "rsa1", claims("alice"));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + encode(claims("mallory").toString().getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        String unsigned = encode(new JSONObject().put("alg", "none").toString().getBytes(StandardCharsets.UTF_8)) + "."
+                + parts[1] + ".";
+
+        assertNull(verifier.verify(tampered));
+        assertNull(verifier.verify(unsigned));
+        assertNull(verifier.verify(token("ES256", "rsa1", claims("alice"))));
+        assertNull(verifier.verify("not a token"));
+    }
+
+    @Test
+    public void testUnknownKeyIdReloadIsRateLimited() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        TokenVerifier verifier = verifier(fetches);
+
+        assertEquals("alice", verifier.verify(token("RS256", "rsa1", claims("alice"))));
+        assertNull(verifier.verify(token("RS256", "rotated", claims("alice"))));
+        assertNull(verifier.verify(token("RS256", "rotated", claims("bob"))));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testFromProfile() throws Exception {
+        assertNull(TokenVerifier.fromProfile("{\"type\":\"NONE\"}"));
+        assertNull(TokenVerifier.fromProfile(null));
+    }
+
+    @Test(expected = org.hyperledger.fabric_ca.sdk.exception.IdentityException.class)
+    public void testFromProfileInvalidType() throws Exception {
+        TokenVerifier.fromProfile("{\"type\":\"SAML\"}");
+    }
+
+    private static TokenVerifier verifier(AtomicInteger fetches) {
+        String jwks = jwks();
+        JwksKeySet keys = new JwksKeySet(() -> {
+            fetches.incrementAndGet();
+            return jwks;
+        }, 0);
+        return new TokenVerifier(keys, ISSUER, AUDIENCE, "sub", 60, TimeUnit.SECONDS, 100);
+    }
+
+    private static String jwks() {
+        RSAPublicKey rsa = (RSAPublicKey) rsaKeys.getPublic();
+        ECPublicKey ec = (ECPublicKey) ecKeys.getPublic();
+        return new JSONObject().put("keys", new JSONArray()
+                .put(new JSONObject().put("kty", "RSA").put("kid", "rsa1").put("use", "sig")
+                        .put("n", encode(rsa.getModulus())).put("e", encode(rsa.getPublicExponent())))
+                .put(new JSONObject().put("kty", "EC").put("kid", "ec1").put("crv", "P-256")
+                        .put("x", encode(ec.getW().getAffineX())).put("y", encode(ec.getW().getAffineY())))
+                .put(new JSONObject().put("kty", "RSA").put("kid", "enc1").put("use", "enc")
+                        .put("n", encode(rsa.getModulus())).put("e", encode(rsa.getPublicExponent()))))
+                .toString();
+    }
+
+    private static JSONObject claims(String subject) {
+        return new JSONObject().put("sub", subject).put("iss", ISSUER).put("aud", AUDIENCE).put("exp", now() + 300);
+    }
+
+    private static long now() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    private static String token(String algorithm, String keyId, JSONObject claims) throws Exception {
+        String signingInput = encode(new JSONObject().put("alg", algorithm).put("kid", keyId).toString().getBytes(StandardCharsets.UTF_8))
+                + "." + encode(claims.toString().getBytes(StandardCharsets.UTF_8));
+        boolean ec = algorithm.startsWith("ES");
+        PrivateKey key = ec ? ecKeys.getPrivate() : rsaKeys.getPrivate();
+        Signature signature = Signature.getInstance("SHA256with" + (ec ? "ECDSA" : "RSA"));
+        signature.initSign(key);
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        byte[] signed = signature.sign();
+        return signingInput + "." + encode(ec ? toRaw(signed, 32) : signed);
+    }
+
+    // Converts a DER encoded ECDSA signature to the R and S concatenation JWS uses.
+    private static byte[] toRaw(byte[] der, int length) {
+        int offset = der[1] == (byte) 0x81 ? 3 : 2;
+        int rLength = der[offset + 1];
+        byte[] r = Arrays.copyOfRange(der, offset + 2, offset + 2 + rLength);
+        offset += 2 + rLength;
+        byte[] s = Arrays.copyOfRange(der, offset + 2, offset + 2 + der[offset + 1]);
+        byte[] raw = new byte[2 * length];
+        copyUnsigned(r, raw, 0, length);
+        copyUnsigned(s, raw, length, length);
+        return raw;
+    }
+
+    private static void copyUnsigned(byte[] integer, byte[] raw, int offset, int length) {
+        int start = integer.length > length ? integer.length - length : 0;
+        int size = integer.length - start;
+        System.arraycopy(integer, start, raw, offset + length - size, size);
+    }
+
+    private static String encode(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return encode(bytes);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,94 @@
+package application.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * TransactionStatusIndexTest
+ */
+public class TransactionStatusIndexTest {
+
+    @Test
+    public void testPendingThenCommitted() {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        index.pending("tx1");
+        assertTrue(index.isPending("tx1"));
+        assertEquals(0, index.get("tx1").getCompletedAt());
+
+        index.complete("tx1", TransactionStatusIndex.VALID);
+        TransactionStatus status = index.get("tx1");
+        assertEquals(TransactionStatus.COMMITTED, status.getStatus());
+        assertEquals(TransactionStatusIndex.VALID, status.getValidationCode());
+        assertTrue(status.getCompletedAt() > 0);
+        assertEquals(1, index.getCommitted());
+    }
+
+    @Test
+    public void testInvalidValidationCode() {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        index.pending("tx1");
+        index.complete("tx1", "MVCC_READ_CONFLICT");
+        assertEquals(TransactionStatus.INVALID, index.get("tx1").getStatus());
+        assertEquals("MVCC_READ_CONFLICT", index.get("tx1").getValidationCode());
+        assertEquals(1, index.getInvalid());
+    }
+
+    @Test
+    public void testFirstOutcomeWins() {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        index.pending("tx1");
+        index.unknown("tx1", "timeout");
+        index.complete("tx1", TransactionStatusIndex.VALID);
+        assertEquals(TransactionStatus.UNKNOWN, index.get("tx1").getStatus());
+        assertEquals("timeout", index.get("tx1").getMessage());
+        assertEquals(1, index.getUnknown());
+        assertEquals(0, index.getCommitted());
+    }
+
+    @Test
+    public void testUntrackedTransactionIgnored() {
+        TransactionStatusIndex index = new TransactionStatusIndex(10);
+        index.complete("tx1", TransactionStatusIndex.VALID);
+        assertNull(index.get("tx1"));
+        assertNull(index.get(null));
+        assertEquals(0, index.getCommitted());
+    }
+
+    @Test
+    public void testOldestEvicted() {
+        TransactionStatusIndex index = new TransactionStatusIndex(2);
+        index.pending("tx1");
+        index.pending("tx2");
+        index.pending("tx3");
+        assertNull(index.get("tx1"));
+        assertNotNull(index.get("tx2"));
+        assertNotNull(index.get("tx3"));
+        assertEquals(2, index.size());
+        assertEquals(1, index.getEvictions());
+    }
+
+    @Test
+    public void testRemovedNotCountedAsEvicted() {
+        TransactionStatusIndex index = new TransactionStatusIndex(2);
+        for (int i = 0; i < 10; i++) {
+            index.pending("tx" + i);
+            index.remove("tx" + i);
+        }
+        assertEquals(0, index.size());
+        assertEquals(0, index.getEvictions());
+    }
+
+    @Test
+    public void testDisabled() {
+        TransactionStatusIndex index = new TransactionStatusIndex(0);
+        index.pending("tx1");
+        assertFalse(index.isEnabled());
+        assertFalse(index.isPending("tx1"));
+        assertEquals(0, index.size());
+    }
+}
@@ -2,6 +2,7 @@ package application.utils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -138,6 +139,34 @@ public class WalletManagerTest {
             assertNotNull(wallet);
         }
 
+        // shared wallet is built once and is read-only
+        @Test
+        public void testSharedWallet() throws IdentityException, IOException {
+            String profile = "{type:IN_MEMORY}";
+            JSONArray array = new JSONArray();
+            JSONObject id1 = new JSONObject();
+            id1.put("cert", CERT);
+            id1.put("msp_id", MSPID);
+            id1.put("private_key", KEY);
+            id1.put("name", "id1");
+            array.put(id1);
+            PowerMockito.mockStatic(ConnectionConfiguration.class);
+            PowerMockito.when(ConnectionConfiguration.getWalletProfile()).thenReturn(profile);
+            PowerMockito.when(ConnectionConfiguration.getWalletCredentials()).thenReturn(array.toString());
+
+            Wallet wallet = WalletManager.getSharedWallet();
+
+            assertSame(wallet, WalletManager.getSharedWallet());
+            assertNotNull(wallet.get("id1"));
+            assertEquals(1, wallet.getAllLabels().size());
+            try {
+                wallet.remove("id1");
+                fail("Expected Exception to be thrown");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+
         // walletProfile FILE_SYSTEM good path
         @Test
         public void testWMDProfileFileSystemGP() throws IdentityException, IOException {